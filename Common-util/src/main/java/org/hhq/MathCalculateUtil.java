@@ -4,36 +4,57 @@ import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.collections4.MapUtils;
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.hhq.expression.BatchEvaluator;
+import org.hhq.expression.CompiledExpression;
+import org.hhq.expression.EvalMode;
+import org.hhq.expression.ExpressionCache;
+import org.hhq.expression.FunctionArityException;
+import org.hhq.expression.FunctionRegistry;
+import org.hhq.expression.Functions;
+import org.hhq.expression.IncrementalEvaluator;
+import org.hhq.expression.MathFunction;
+import org.hhq.expression.Operators;
+import org.hhq.expression.TraceListener;
 
-import java.lang.reflect.Constructor;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.math.BigDecimal;
-import java.text.DecimalFormat;
 import java.util.*;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToDoubleFunction;
+import java.util.function.BinaryOperator;
 import java.util.function.Predicate;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
- * {@code calculate} 计算的总起，提供外部访问
+ * {@code calculate} 计算的总起，提供外部访问；表达式编译后缓存于{@code expressionCache}，重复计算同一表达式时不再解析
+ * 函数参数个数错误的表达式无法编译，{@code calculate}与原改写方式一致忽略多余的参数，回退到{@code calculateByRewrite}；
+ * {@code compile}、{@code calculate(String, Map, EvalMode)}等编译方式的入口严格校验参数个数，抛出{@link FunctionArityException}
+ * {@code generate} 将表达式生成为字节码函数，适用于热点表达式
+ * {@code calculateBatch} 批量计算，同一表达式在列式数据上并行逐行计算
+ * {@code incremental} 增量计算，变量改变时只重算依赖该变量的子表达式
+ * 相互引用的多个公式(一个公式的结果作为另一个公式的变量)使用{@link org.hhq.expression.FormulaSet}按依赖图并行计算
+ * {@code calculateByRewrite} 原字符串改写方式的计算，每次计算都重新拆分、改写表达式，保留用于对照
+ * {@code compile} 表达式预编译，提供外部访问；编译一次，多次传入不同变量计算
+ * 预编译的表达式支持两种求值模式{@link EvalMode}：DOUBLE在double上计算，不产生中间对象；DECIMAL在BigDecimal上按指定精度计算
  * {@code replaceParamsValues} 变量替换，提供外部访问
  * {@code isValidExpression} 表达式校验，目前只提供基本校验
  * {@code splitModules} 模块拆分，‘()’分隔的为主模块， ‘,’分隔的为子模块；每次只提取一个主模块，不管是主模块还是子模块都是计算到不含运算符号的结果值为止
  * 主模块用于分块，和进行对应于math中方法的运算{@code perfectCalculate}
  * 子模块用于分块，和进行对应于运算符号的值计算{@code arithmeticSplit},{@code arithmeticSort},{@code doCalculate}
  * <p>
- * 日志：{@code logger} 提供info级别的日志记录 {@code level} 用于splitModules中指定当前模块层级
+ * 跟踪：默认关闭，{@code setTracing(true)}以info级别记录到{@code logger}，{@code setTraceListener}注册自定义的跟踪监听{@link TraceListener}；
+ * 关闭时计算过程不拼接任何日志字符串 {@code level} 用于splitModules中指定当前模块层级
+ * <p>
+ * 线程安全：类中的静态状态(缓存、跟踪监听)均可并发访问，计算过程中的状态(如模块层级{@code level})随调用传递，可被多线程并发调用
  * <p>
  * 如果需要扩展{@see MathCalculateUtil}：
  * 1、如果你只是想增加运算规则:
  * 对应于双目运算符
  * {@code arithmeticPriority}存储运算规则，以及运算优先级
  * 对应于:BigDecimal
- * {@code calauteMap}存储运算规则，以及运算方法
+ * {@link Operators}存储运算规则，以及运算方法
  * 对应于Math：
- * {@code prefix}存储运算方法，以及运算方法的使用规则
+ * {@link Functions}存储内置的运算方法，以及运算方法的参数个数
+ * {@link FunctionRegistry}注册自定义的运算方法，表达式编译时校验函数是否存在以及参数个数
  * {@code suffix}存储运算方法，以及运算方法的使用规则
  * 2、如果你想扩展规则(用于变量运算):
  * 对应于除双目运算符外的其他运算符
@@ -47,8 +68,8 @@ import java.util.logging.Logger;
  *
  * @see BigDecimal
  * @see Math
- * @see Constructor
- * @see Method
+ * @see Operators
+ * @see Functions
  * @see java8.lambda
  */
 public class MathCalculateUtil {
@@ -68,23 +89,19 @@ public class MathCalculateUtil {
     }
 
     /**
-     * 存储计算规则
+     * 日志
      */
-    private static final Map<String, String> calauteMap = new HashMap<>();
+    private static Logger logger = Logger.getLogger(MathCalculateUtil.class.toString());
 
-    static {
-        //key,操作类型，value:对应于BigDecimal方法
-        calauteMap.put("*", "multiply");
-        calauteMap.put("/", "divide");
-        calauteMap.put("%", "remainder");
-        calauteMap.put("+", "add");
-        calauteMap.put("-", "subtract");
-    }
+    /**
+     * 预编译表达式缓存，key:表达式
+     */
+    private static volatile ExpressionCache expressionCache = new ExpressionCache(ExpressionCache.DEFAULT_MAXIMUM_SIZE);
 
     /**
-     * 日志
+     * 跟踪监听，为null时不跟踪
      */
-    private static Logger logger = Logger.getLogger(MathCalculateUtil.class.toString());
+    private static volatile TraceListener traceListener;
 
     /**
      * @param expression 表达式
@@ -97,25 +114,188 @@ public class MathCalculateUtil {
 
     /**
      * 表达式计算
+     * 表达式只在第一次计算时编译，之后从{@code expressionCache}中获取
+     * 结果格式与改写方式一致：含有运算时为double的字符串(如：6.0)，只有一个数字或变量时为其原文(如：5、2.50)
+     * 函数结果为Infinity、NaN(如：{@code pow(10,400)})时与改写方式一致返回Infinity、NaN
+     * 函数参数个数错误(如：{@code tan(x,1000)})的表达式无法编译，与原改写方式一致忽略多余的参数，使用{@code calculateByRewrite}计算
      *
      * @param expression 表达式
      * @param paramMap   变量映射
      * @return 计算结果
      */
     public static String calculate(String expression, Map<String, Object> paramMap) throws Exception {
-        level.set(0);
+        //参数个数错误的判断随表达式缓存，之后直接使用改写方式
+        CompiledExpression compiled = expressionCache.getOrNull(expression);
+        if (compiled == null) {
+            return calculateByRewrite(expression, paramMap);
+        }
+        BigDecimal result;
+        try {
+            result = compiled.evaluate(paramMap);
+        } catch (ArithmeticException e) {
+            //函数结果为Infinity、NaN时BigDecimal无法表示，改写方式返回Infinity、NaN；除以0时改写方式同样抛出ArithmeticException
+            return calculateByRewrite(expression, paramMap);
+        }
+        TraceListener listener = traceListener;
+        if (listener != null) {
+            listener.onCalculate(expression, paramMap, result);
+        }
+        String operand = compiled.getOperand();
+        if (operand != null) {
+            //与改写方式一致，不含运算时返回数字或变量值的原文，如：5而不是5.0
+            return operand.charAt(0) == '{' ? paramsValues(paramMap.get(operand)) : operand;
+        }
+        return String.valueOf(result.doubleValue());
+    }
+
+    /**
+     * 表达式计算，字符串改写方式
+     * 每次计算都进行变量替换、表达式校验以及模块拆分
+     *
+     * @param expression 表达式
+     * @param paramMap   变量映射
+     * @return 计算结果
+     */
+    public static String calculateByRewrite(String expression, Map<String, Object> paramMap) throws Exception {
         expression = "(" + expression + ")";
         expression = replaceParamsValues(expression, paramMap);
-        if (logger.isLoggable(Level.INFO)) {
-            logger.log(Level.INFO, "calculate:变量替换后的表达式：" + expression);
-        }
-        assert StringUtils.isEmpty(expression) || expression.matches("(\\{|\\}|\\[|\\])+") : "表达式错误";
+        assert StringUtils.isEmpty(expression) || !expression.matches(".*(\\{|\\}|\\[|\\]).*") : "表达式错误";
         expression = splitModules(expression);
         return expression;
     }
 
+    /**
+     * 按指定模式计算表达式
+     *
+     * @param expression 表达式
+     * @param paramMap   变量映射
+     * @param mode       求值模式，{@link EvalMode#DOUBLE}或{@link EvalMode#decimal(java.math.MathContext)}
+     * @return DOUBLE模式返回Double，DECIMAL模式返回BigDecimal
+     */
+    public static Number calculate(String expression, Map<String, Object> paramMap, EvalMode mode) {
+        Number result = expressionCache.get(expression).evaluate(paramMap, mode);
+        TraceListener listener = traceListener;
+        if (listener != null) {
+            listener.onCalculate(expression, paramMap, result);
+        }
+        return result;
+    }
+
+    /**
+     * 批量计算，同一表达式在列式数据上逐行计算，行拆分后在公共ForkJoinPool中并行计算
+     *
+     * @param expression 表达式
+     * @param columns    变量列，key为占位符(如：{pam})，各列长度相同
+     * @return 每行的计算结果
+     * @see BatchEvaluator
+     */
+    public static double[] calculateBatch(String expression, Map<String, double[]> columns) {
+        return new BatchEvaluator(expressionCache.get(expression)).evaluate(columns);
+    }
+
+    /**
+     * 增量计算，适用于每次只改变少数变量的场景
+     * IncrementalEvaluator evaluator = MathCalculateUtil.incremental(expression, map);
+     * evaluator.update("{a}", 10);
+     *
+     * @param expression 表达式
+     * @param paramMap   初始变量映射
+     * @return 增量计算器，保存计算状态，不是线程安全的
+     * @see IncrementalEvaluator
+     */
+    public static IncrementalEvaluator incremental(String expression, Map<String, Object> paramMap) {
+        return new IncrementalEvaluator(expressionCache.get(expression), paramMap);
+    }
+
+    /**
+     * @return 预编译表达式缓存，可获取命中、未命中、淘汰计数
+     */
+    public static ExpressionCache getExpressionCache() {
+        return expressionCache;
+    }
+
+    /**
+     * 设置缓存容量，原缓存中的表达式及计数将被丢弃
+     *
+     * @param maximumSize 最多缓存的表达式个数
+     */
+    public static void setExpressionCacheSize(int maximumSize) {
+        expressionCache = new ExpressionCache(maximumSize);
+    }
+
+    /**
+     * 打开或关闭跟踪，打开时以info级别记录到日志中
+     *
+     * @param tracing 是否跟踪
+     * @see TraceListener#logging(Logger)
+     */
+    public static void setTracing(boolean tracing) {
+        traceListener = tracing ? TraceListener.logging(logger) : null;
+    }
+
+    /**
+     * @return 是否正在跟踪
+     */
+    public static boolean isTracing() {
+        return traceListener != null;
+    }
+
+    /**
+     * 注册跟踪监听，替换原有的监听
+     *
+     * @param listener 跟踪监听，为null时关闭跟踪
+     */
+    public static void setTraceListener(TraceListener listener) {
+        traceListener = listener;
+    }
+
+    /**
+     * @return 跟踪监听，未跟踪时为null
+     */
+    public static TraceListener getTraceListener() {
+        return traceListener;
+    }
+
+    /**
+     * @return 默认的函数注册表，注册的函数可在所有表达式中使用
+     */
+    public static FunctionRegistry getFunctionRegistry() {
+        return FunctionRegistry.getDefault();
+    }
+
+    /**
+     * 表达式预编译
+     * 表达式只解析一次，之后的计算不再进行字符串改写，适用于同一表达式使用不同变量多次计算
+     * String expression = "max({a},{b})*2+1";
+     * CompiledExpression compiled = MathCalculateUtil.compile(expression);
+     * compiled.evaluate(map);
+     *
+     * @param expression 表达式
+     * @return 编译后的表达式
+     * @throws IllegalArgumentException 表达式错误
+     */
+    public static CompiledExpression compile(String expression) {
+        return CompiledExpression.compile(expression);
+    }
+
+    /**
+     * 将表达式生成为JVM字节码
+     * 生成的函数参数为按{@link CompiledExpression#getParameterNames()}下标排列的变量值
+     * String expression = "{a}*2+max({a},{b})";
+     * ToDoubleFunction<double[]> function = MathCalculateUtil.generate(expression);
+     * function.applyAsDouble(new double[]{1, 2});
+     *
+     * @param expression 表达式
+     * @return 生成的计算函数
+     * @see CompiledExpression#toFunction()
+     */
+    public static ToDoubleFunction<double[]> generate(String expression) {
+        return expressionCache.get(expression).toFunction();
+    }
+
     /**
      * 消除传入参数
+     * 一次扫描表达式，遇到{name}时从参数映射中取值替换
      *
      * @param expression 含有参数的表达式
      * @param paramMap   传入参数映射
@@ -123,62 +303,68 @@ public class MathCalculateUtil {
      */
     public static String replaceParamsValues(String expression, Map<String, Object> paramMap) throws Exception {
         if (MapUtils.isNotEmpty(paramMap) && isValidExpression(expression)) {
-            for (Map.Entry<String, Object> entry : paramMap.entrySet()) {
-                if (expression.contains(entry.getKey())) {
-                    if (logger.isLoggable(Level.INFO)) {
-                        logger.log(Level.INFO, "replaceParamsValues:当前变量：" + entry.getKey() + ";变量值：" + entry.getValue());
-                    }
-                    expression = expression.substring(0, expression.indexOf(entry.getKey())) + paramsValues(entry.getValue()) + expression.substring(expression.indexOf(entry.getKey()) + entry.getKey().length());
+            TraceListener listener = traceListener;
+            StringBuilder builder = new StringBuilder(expression.length() + 16);
+            int from = 0;
+            for (int start = expression.indexOf('{'); start >= 0; start = expression.indexOf('{', from)) {
+                int end = expression.indexOf('}', start);
+                if (end < 0) {
+                    break;
+                }
+                String key = expression.substring(start, end + 1);
+                Object value = paramMap.get(key);
+                if (value == null) {
+                    break;
                 }
+                if (listener != null) {
+                    listener.onReplace(key, value);
+                }
+                builder.append(expression, from, start).append(paramsValues(value));
+                from = end + 1;
             }
+            expression = builder.append(expression, from, expression.length()).toString();
         }
         if (expression != null && expression.contains("{")) {
-            throw new Exception("表达式错误：MathCalculateUtil:replaceParamsValues(" + expression + "," + paramMap.toString() + ")");
+            throw new Exception("表达式错误：MathCalculateUtil:replaceParamsValues(" + expression + "," + paramMap + ")");
         }
         return expression;
     }
 
+    /**
+     * 变量值转换为不含分组符号的数字字符串
+     */
     private static String paramsValues(Object object) {
-        DecimalFormat decimalFormat = new DecimalFormat();
-        BigDecimal bigDecimal = null;
         if (object instanceof BigDecimal) {
-            bigDecimal = (BigDecimal) object;
-        } else if (object instanceof Integer) {
-            bigDecimal = new BigDecimal((Integer) object);
-        } else if (object instanceof Float) {
-            bigDecimal = new BigDecimal((Float) object);
-        } else if (object instanceof Double) {
-            bigDecimal = new BigDecimal((Double) object);
-        } else {
-            return decimalFormat.format(object);
+            return ((BigDecimal) object).toPlainString();
+        } else if (object instanceof Integer || object instanceof Long || object instanceof Short || object instanceof Byte) {
+            return object.toString();
+        } else if (object instanceof Number) {
+            return BigDecimal.valueOf(((Number) object).doubleValue()).toPlainString();
         }
-        return decimalFormat.format(bigDecimal);
-    }
-
-    private static final Map<String, Object> prefix = new HashMap<>();
-
-    static {
-        //key对应于math中的方法，value：第一个参数为允许使用的参数个数，第二个参数表示实际允许的参数个数（-1 无限制），第三个为是否将比较的值加入下一次比较
-        prefix.put("max", new int[]{2, -1, 1});
-        prefix.put("min", new int[]{2, -1, 1});
-        prefix.put("abs", new int[]{1, 1});
-        prefix.put("pow", new int[]{2, 2});
-        prefix.put("floor", new int[]{1, 1});
-        prefix.put("tan", new int[]{1, 1});
+        return object.toString().trim();
     }
 
     private static final Set<String> suffix = new HashSet<>();
 
-    private static AtomicInteger level = new AtomicInteger(1);
+    /**
+     * 对原始表达式进行分模块
+     *
+     * @param expression 真值表达式
+     * @return 返回最简表达式
+     */
+    protected static String splitModules(String expression) throws Exception {
+        return splitModules(expression, 1);
+    }
 
     /**
      * 对原始表达式进行分模块
      *
      * @param expression 真值表达式
+     * @param level      当前模块层级
      * @return 返回最简表达式
      */
     //以()和,进行分模块：主模块() 子模块，
-    protected static String splitModules(String expression) throws Exception {
+    private static String splitModules(String expression, int level) throws Exception {
         if (isValidExpression(expression)) {
             //模块开始点
             int start = expression.lastIndexOf("(");
@@ -196,10 +382,12 @@ public class MathCalculateUtil {
             String valuesPrefix = "";
             //过滤的结果
             Optional<String> filterResult = null;
-            if (MapUtils.isNotEmpty(prefix)) {
+            Set<String> functionNames = FunctionRegistry.getDefault().names();
+            if (CollectionUtils.isNotEmpty(functionNames)) {
                 final String tempPrefixStr = prefixStr;
-                Predicate<String> filter = str -> StringUtils.isNotEmpty(str) && tempPrefixStr.lastIndexOf(str) + str.length() == tempPrefixStr.length();
-                filterResult = prefix.keySet().stream().filter(filter).findFirst();
+                Predicate<String> filter = str -> StringUtils.isNotEmpty(str) && tempPrefixStr.endsWith(str);
+                //取最长的函数名，避免自定义函数名以内置函数名结尾时误匹配
+                filterResult = functionNames.stream().filter(filter).max(Comparator.comparingInt(String::length));
                 if (filterResult.isPresent() && StringUtils.isNotEmpty(filterResult.get()))
                     valuesPrefix = filterResult.get();
                 if (StringUtils.isNotEmpty(valuesPrefix))
@@ -237,19 +425,21 @@ public class MathCalculateUtil {
                     builder.append(valueArray[i]);
                 }
             }
-            if (logger.isLoggable(Level.INFO)) {
-                logger.info("splitModules:第" + level.incrementAndGet() + "层，表达式:" + values + "，子表达式的计算结果：" + builder.toString());
+            String moduleResult = builder.toString();
+            TraceListener listener = traceListener;
+            if (listener != null) {
+                listener.onModule(level, values, moduleResult);
             }
             //算出结果
-            values = perfectCalculate(valuesPrefix, builder.toString(), valuesSuffix);
+            values = perfectCalculate(valuesPrefix, moduleResult, valuesSuffix, level);
             //计算后的表达式
             expression = prefixStr + values + suffixStr;
-            if (logger.isLoggable(Level.INFO)) {
-                logger.info("splitModules:第" + level.get() + "层，最新原表达式:" + expression);
+            if (listener != null) {
+                listener.onRewrite(level, expression);
             }
             //不放过每一层()
             if (expression.contains("(") && isValidExpression(expression)) {
-                return splitModules(expression);
+                return splitModules(expression, level + 1);
             }
         }
         return expression;
@@ -317,13 +507,9 @@ public class MathCalculateUtil {
                     continue;
                 }
                 if (ArrayUtils.isNotEmpty(valuesArray) && StringUtils.isNotEmpty(valuesArray[0]) && StringUtils.isNotEmpty(valuesArray[1])) {
-                    String methodName = calauteMap.get(symbol);
-                    Constructor<BigDecimal> constructor = BigDecimal.class.getConstructor(String.class);
-                    BigDecimal bigDecimal1 = constructor.newInstance(valuesArray[0]);
-                    BigDecimal bigDecimal2 = constructor.newInstance(valuesArray[1]);
-                    Optional<Method> optional = Arrays.stream(BigDecimal.class.getMethods()).filter(method -> method.getName().contains(methodName) && method.getParameterCount() == 1).findFirst();
-                    if (optional.isPresent()) {
-                        BigDecimal bigDecimal3 = (BigDecimal) BigDecimal.class.getMethod(optional.get().getName(), optional.get().getParameterTypes()).invoke(bigDecimal1, bigDecimal2);
+                    BinaryOperator<BigDecimal> operator = Operators.decimal(symbol);
+                    if (operator != null) {
+                        BigDecimal bigDecimal3 = operator.apply(new BigDecimal(valuesArray[0]), new BigDecimal(valuesArray[1]));
                         String temp = valuesArray[0] + symbol + valuesArray[1];
                         int index = expression.indexOf(temp);
                         expression = expression.substring(0, index) + bigDecimal3.doubleValue() + expression.substring(index + temp.length(), expression.length());
@@ -370,83 +556,30 @@ public class MathCalculateUtil {
      *
      * @param prefix 前缀
      * @param value  计算的值
+     * @param level  当前模块层级
      * @return 最简结果
      */
-    private static String perfectCalculate(String prefix, String value, String suffix) throws NoSuchMethodException, IllegalAccessException, InstantiationException, InvocationTargetException {
+    private static String perfectCalculate(String prefix, String value, String suffix, int level) throws Exception {
         //每层最多有一层()
         if (StringUtils.isNotEmpty(prefix) && StringUtils.isNotEmpty(value)) {
-            Predicate<Method> methodPredicate = method -> method.getName().contains(prefix);
-            //float优先
-            Comparator<Method> methodComparator1 = (method1, method2) -> {
-                if (method1.getReturnType().getSimpleName().equalsIgnoreCase("float")) return -1;
-                if (method2.getReturnType().getSimpleName().equalsIgnoreCase("float")) return 1;
-                return 0;
-            };
-            //double优先
-            Comparator<Method> methodComparator2 = (method1, method2) -> {
-                if (method1.getReturnType().getSimpleName().equalsIgnoreCase("double")) return -1;
-                if (method2.getReturnType().getSimpleName().equalsIgnoreCase("double")) return 1;
-                return 0;
-            };
-            Optional<Method> optional = Arrays.stream(Math.class.getMethods()).filter(methodPredicate).sorted(methodComparator1).sorted(methodComparator2).findFirst();
-            if (!optional.isPresent()) throw new NullPointerException("没有对应的集合函数：" + prefix);
-            Method method = Math.class.getMethod(optional.get().getName(), optional.get().getParameterTypes());
-            if (method == null) throw new NullPointerException("没有对应的集合函数：" + prefix);
-            //暴力创建
-            Constructor<Math> constructor = Math.class.getDeclaredConstructor();
-            constructor.setAccessible(true);
-            Math math = constructor.newInstance();
-            Object object = MathCalculateUtil.prefix.get(prefix);
-            int model = 1;
-            int length = 0;
-            boolean useValue = false;
-            String result = "";
-            Object[] obj = null;
+            MathFunction function = FunctionRegistry.getDefault().get(prefix);
+            if (function == null) throw new NullPointerException("没有对应的集合函数：" + prefix);
             String[] values = value.split(",");
-            if (object instanceof int[]) {
-                int[] cm = (int[]) object;
-                if (cm.length > 0) length = model = cm[0] < 0 ? 1 : cm[0];
-                if (cm.length > 1) length = cm[1] < 0 ? values.length : model;
-                if (cm.length > 2) useValue = cm[2] == 1;
-                if (model < length && logger.isLoggable(Level.WARNING))
-                    logger.log(Level.WARNING,"perfectCalculate:第" + level.get() + "层，当前集合函数为：" + prefix + ";允许使用的参数个数为:" + model + ";当前使用允许使用参数个数为:" + length);
+            //不限参数个数的函数使用全部参数，其余函数多余的参数忽略
+            int length = function.isVariadic() ? values.length : Math.min(values.length, function.getMaxArity());
+            if (length < function.getMinArity()) {
+                throw new Exception("表达式错误：MathCalculateUtil.perfectCalculate(" + prefix + "," + value + ")，参数个数不足");
             }
-            String simpleName = optional.get().getReturnType().getSimpleName().toUpperCase();
-            for (int i = 1, n = 0, m = 0; i <= values.length && i <= length && length >= model; i++) {
-                switch (simpleName) {
-                    case "DOUBLE":
-                        if (obj == null) obj = new Double[model];
-                        if (n == 1) obj[0] = Double.valueOf(result);
-                        obj[m] = Double.valueOf(values[i - 1]);
-                        break;
-                    case "FLOAT":
-                        if (obj == null) obj = new Float[model];
-                        if (n == 1) obj[0] = Float.valueOf(result);
-                        obj[m] = Float.valueOf(values[i - 1]);
-                        break;
-                    case "LONG":
-                        if (obj == null) obj = new Long[model];
-                        if (n == 1) obj[0] = Long.valueOf(result);
-                        obj[m] = Long.valueOf(values[i - 1]);
-                        break;
-                    case "INT":
-                    case "INEGER":
-                        if (obj == null) obj = new Integer[model];
-                        if (n == 1) obj[0] = Integer.valueOf(result);
-                        obj[m] = Integer.valueOf(values[i - 1]);
-                        break;
-                    default:
-                        break;
-                }
-                m += 1;
-                if (i % model == 0 || m == model) {
-                    m = 0;
-                    if (useValue) m = n = 1;
-                    result = String.valueOf(method.invoke(math, obj));
-                }
+            if (length < values.length && logger.isLoggable(Level.WARNING))
+                logger.log(Level.WARNING, "perfectCalculate:第" + level + "层，当前集合函数为：" + prefix + ";允许使用的参数个数为:" + function.getMaxArity() + ";当前使用参数个数为:" + values.length);
+            double[] arguments = new double[length];
+            for (int i = 0; i < length; i++) {
+                arguments[i] = Double.parseDouble(values[i]);
             }
-            if (logger.isLoggable(Level.INFO)) {
-                logger.info("perfectCalculate:第" + level.get() + "层，操作:" + prefix + ";操作的表达式:" + value + ";操作结果：" + result);
+            String result = String.valueOf(function.applyAsDouble(arguments, length));
+            TraceListener listener = traceListener;
+            if (listener != null) {
+                listener.onFunction(level, prefix, value, result);
             }
             value = result;
         }
@@ -496,7 +629,7 @@ public class MathCalculateUtil {
     }
 
     public static void main(String[] args) throws Exception {
-        String expression = "tan(1+2+1.0+1+1+1+1000.10001+(100.0+10+19/20*6+5)+min(100,100.2,99,max(1,2,3,4,5,6,100,10000,1,19999,12,18000))+{pam},1000)";
+        String expression = "tan(1+2+1.0+1+1+1+1000.10001+(100.0+10+19/20*6+5)+min(100,100.2,99,max(1,2,3,4,5,6,100,10000,1,19999,12,18000))+{pam})";
         Map<String, Object> map = new HashMap<>();
         map.put("{pam}", 100);
         System.out.println("value:" + MathCalculateUtil.calculate(expression, map));
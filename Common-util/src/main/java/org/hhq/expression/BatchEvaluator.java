@@ -0,0 +1,189 @@
+package org.hhq.expression;
+
+import java.nio.DoubleBuffer;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * 批量计算：同一表达式在列式数据上逐行计算
+ * 每个变量对应一列(double[]或DoubleBuffer)，结果写入输出列；行按{@code threshold}拆分后交由{@link ForkJoinPool}并行计算
+ * <p>
+ * 计算过程中每个拆分任务只分配一个行缓冲数组，不为每行创建Map或对象
+ * <p>
+ * Map<String, double[]> columns = new HashMap<>();
+ * columns.put("{price}", prices);
+ * columns.put("{count}", counts);
+ * double[] totals = new BatchEvaluator(MathCalculateUtil.compile("{price}*{count}")).evaluate(columns);
+ */
+public final class BatchEvaluator {
+
+    /**
+     * 默认每个任务计算的最多行数，行数不超过该值时不再拆分
+     */
+    public static final int DEFAULT_THRESHOLD = 4096;
+
+    private final CompiledExpression expression;
+
+    private final ForkJoinPool pool;
+
+    private final int threshold;
+
+    /**
+     * 使用公共ForkJoinPool
+     *
+     * @param expression 编译后的表达式
+     */
+    public BatchEvaluator(CompiledExpression expression) {
+        this(expression, ForkJoinPool.commonPool(), DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * @param expression 编译后的表达式
+     * @param pool       计算使用的线程池
+     * @param threshold  每个任务计算的最多行数，即不再拆分的行数：行数不超过该值时由一个任务计算
+     */
+    public BatchEvaluator(CompiledExpression expression, ForkJoinPool pool, int threshold) {
+        if (expression == null || pool == null) {
+            throw new NullPointerException();
+        }
+        if (threshold <= 0) {
+            throw new IllegalArgumentException("threshold必须大于0：" + threshold);
+        }
+        this.expression = expression;
+        this.pool = pool;
+        this.threshold = threshold;
+    }
+
+    /**
+     * @param columns 变量列，key为占位符(如：{pam})，各列长度相同
+     * @return 计算结果，长度与变量列相同
+     */
+    public double[] evaluate(Map<String, double[]> columns) {
+        if (expression.getParameterCount() == 0) {
+            throw new IllegalArgumentException("表达式错误：表达式不含变量，无法确定行数：" + expression);
+        }
+        double[][] arrays = columns(columns);
+        double[] output = new double[arrays[0].length];
+        evaluate(arrays, output);
+        return output;
+    }
+
+    /**
+     * @param columns 变量列，key为占位符(如：{pam})，长度不小于输出列
+     * @param output  输出列，行数即输出列的长度
+     */
+    public void evaluate(Map<String, double[]> columns, double[] output) {
+        evaluate(columns(columns), output);
+    }
+
+    /**
+     * 按缓冲区计算，从各缓冲区当前位置开始读写，不改变缓冲区位置
+     *
+     * @param columns 变量列，key为占位符(如：{pam})，剩余长度不小于输出列
+     * @param output  输出列，行数即输出列的剩余长度
+     */
+    public void evaluate(Map<String, DoubleBuffer> columns, DoubleBuffer output) {
+        String[] names = expression.getParameterNames();
+        DoubleBuffer[] buffers = new DoubleBuffer[names.length];
+        int rows = output.remaining();
+        for (int i = 0; i < names.length; i++) {
+            DoubleBuffer buffer = columns.get(names[i]);
+            if (buffer == null) {
+                throw new IllegalArgumentException("表达式错误：缺少变量列" + names[i]);
+            }
+            if (buffer.remaining() < rows) {
+                throw new IllegalArgumentException("变量列" + names[i] + "长度不足：" + buffer.remaining() + "<" + rows);
+            }
+            buffers[i] = buffer.slice();
+        }
+        pool.invoke(new BufferTask(buffers, output.slice(), 0, rows));
+    }
+
+    private void evaluate(double[][] arrays, double[] output) {
+        for (int i = 0; i < arrays.length; i++) {
+            if (arrays[i].length < output.length) {
+                throw new IllegalArgumentException("变量列" + expression.getParameterNames()[i] + "长度不足：" + arrays[i].length + "<" + output.length);
+            }
+        }
+        pool.invoke(new ArrayTask(arrays, output, 0, output.length));
+    }
+
+    private double[][] columns(Map<String, double[]> columns) {
+        String[] names = expression.getParameterNames();
+        double[][] arrays = new double[names.length][];
+        for (int i = 0; i < names.length; i++) {
+            arrays[i] = columns.get(names[i]);
+            if (arrays[i] == null) {
+                throw new IllegalArgumentException("表达式错误：缺少变量列" + names[i]);
+            }
+        }
+        return arrays;
+    }
+
+    /**
+     * 数组列计算任务
+     */
+    private final class ArrayTask extends RecursiveAction {
+        private final double[][] columns;
+        private final double[] output;
+        private final int from;
+        private final int to;
+
+        ArrayTask(double[][] columns, double[] output, int from, int to) {
+            this.columns = columns;
+            this.output = output;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > threshold) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new ArrayTask(columns, output, from, middle), new ArrayTask(columns, output, middle, to));
+                return;
+            }
+            double[] row = new double[expression.getFrameSize()];
+            for (int r = from; r < to; r++) {
+                for (int p = 0; p < columns.length; p++) {
+                    row[p] = columns[p][r];
+                }
+                output[r] = expression.evaluateFrame(row);
+            }
+        }
+    }
+
+    /**
+     * 缓冲区列计算任务，使用绝对位置读写，多个任务可共享同一缓冲区
+     */
+    private final class BufferTask extends RecursiveAction {
+        private final DoubleBuffer[] columns;
+        private final DoubleBuffer output;
+        private final int from;
+        private final int to;
+
+        BufferTask(DoubleBuffer[] columns, DoubleBuffer output, int from, int to) {
+            this.columns = columns;
+            this.output = output;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > threshold) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new BufferTask(columns, output, from, middle), new BufferTask(columns, output, middle, to));
+                return;
+            }
+            double[] row = new double[expression.getFrameSize()];
+            for (int r = from; r < to; r++) {
+                for (int p = 0; p < columns.length; p++) {
+                    row[p] = columns[p].get(r);
+                }
+                output.put(r, expression.evaluateFrame(row));
+            }
+        }
+    }
+}
@@ -0,0 +1,533 @@
+package org.hhq.expression;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * 将语法树生成为JVM字节码
+ * 生成的类实现{@code ToDoubleFunction<double[]>}，参数为按变量下标排列的变量值，
+ * 方法体为直线型的double运算(dadd、dmul、invokestatic Math.max等)，可被JIT像手写代码一样内联
+ * <p>
+ * 只使用JDK：手写class文件(版本49，无需StackMapTable)，每个生成的类使用独立的类加载器，不再使用时可被回收
+ * <p>
+ * 内置函数直接调用{@link Math}的静态方法，其他函数通过构造时传入的{@link MathFunction}数组调用
+ * 公共子表达式先计算并存入局部变量，引用处直接读取局部变量
+ */
+final class BytecodeGenerator {
+
+    private static final String OBJECT = "java/lang/Object";
+    private static final String MATH = "java/lang/Math";
+    private static final String MATH_FUNCTION = "org/hhq/expression/MathFunction";
+    private static final String FUNCTIONS_DESCRIPTOR = "[L" + MATH_FUNCTION + ";";
+
+    /**
+     * key:内置函数，value:对应于Math中的方法名称及描述符
+     */
+    private static final Map<MathFunction, String[]> intrinsics = new IdentityHashMap<>();
+
+    static {
+        intrinsics.put(Functions.get("max"), new String[]{"max", "(DD)D"});
+        intrinsics.put(Functions.get("min"), new String[]{"min", "(DD)D"});
+        intrinsics.put(Functions.get("abs"), new String[]{"abs", "(D)D"});
+        intrinsics.put(Functions.get("pow"), new String[]{"pow", "(DD)D"});
+        intrinsics.put(Functions.get("floor"), new String[]{"floor", "(D)D"});
+        intrinsics.put(Functions.get("tan"), new String[]{"tan", "(D)D"});
+    }
+
+    private static final AtomicInteger sequence = new AtomicInteger();
+
+    /**
+     * 局部变量：0 this，1 参数，2 参数转换后的double[]，3开始为公共子表达式(每个占两个位置)
+     */
+    private static final int VALUES_LOCAL = 2;
+
+    private static final int FIRST_TEMP_LOCAL = 3;
+
+    /**
+     * JVM规定的方法字节码长度上限
+     */
+    private static final int MAX_CODE_LENGTH = 65535;
+
+    private final ConstantPool pool = new ConstantPool();
+
+    private final ByteArrayOutputStream code = new ByteArrayOutputStream();
+
+    /**
+     * 非内置函数，按出现顺序排列，下标即在构造参数中的位置
+     */
+    private final List<MathFunction> functions = new ArrayList<>();
+
+    private final String className;
+
+    /**
+     * 变量个数，公共子表达式的下标减去该值即为其序号
+     */
+    private final int parameterCount;
+
+    private BytecodeGenerator(String className, int parameterCount) {
+        this.className = className;
+        this.parameterCount = parameterCount;
+    }
+
+    /**
+     * 生成字节码并实例化
+     *
+     * @param root           语法树根节点
+     * @param temps          公共子表达式，按计算顺序排列
+     * @param parameterCount 变量个数
+     * @return 生成的计算函数
+     */
+    @SuppressWarnings("unchecked")
+    static ToDoubleFunction<double[]> generate(Node root, Node[] temps, int parameterCount) {
+        String className = "org/hhq/expression/GeneratedExpression" + sequence.incrementAndGet();
+        BytecodeGenerator generator = new BytecodeGenerator(className, parameterCount);
+        byte[] bytes = generator.toClassFile(root, temps);
+        try {
+            Class<?> generated = new GeneratedClassLoader(BytecodeGenerator.class.getClassLoader())
+                    .define(className.replace('/', '.'), bytes);
+            return (ToDoubleFunction<double[]>) generated.getConstructor(MathFunction[].class)
+                    .newInstance((Object) generator.functions.toArray(new MathFunction[0]));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("表达式字节码生成失败：" + className, e);
+        }
+    }
+
+    private byte[] toClassFile(Node root, Node[] temps) {
+        //方法体：((double[]) values) -> 表达式
+        code(0x2B);                                     //aload_1
+        code(0xC0).code2(pool.classRef("[D"));          //checkcast [D
+        code(0x4D);                                     //astore_2
+        int maxStack = Math.max(1, depth(root));
+        for (int i = 0; i < temps.length; i++) {
+            emit(temps[i]);
+            localInstruction(0x39, FIRST_TEMP_LOCAL + 2 * i);   //dstore
+            maxStack = Math.max(maxStack, depth(temps[i]));
+        }
+        emit(root);
+        code(0xAF);                                     //dreturn
+        int maxLocals = FIRST_TEMP_LOCAL + 2 * temps.length;
+        byte[] body = code.toByteArray();
+        if (body.length > MAX_CODE_LENGTH) {
+            throw new IllegalStateException(String.format("表达式过长，字节码长度%d超过方法上限%d", body.length, MAX_CODE_LENGTH));
+        }
+
+        int thisClass = pool.classRef(className);
+        int superClass = pool.classRef(OBJECT);
+        int functionInterface = pool.classRef("java/util/function/ToDoubleFunction");
+        int functionsField = pool.fieldRef(className, "functions", FUNCTIONS_DESCRIPTOR);
+        int objectInit = pool.methodRef(OBJECT, "<init>", "()V");
+        int codeName = pool.utf8("Code");
+        int initName = pool.utf8("<init>");
+        int initDescriptor = pool.utf8("(" + FUNCTIONS_DESCRIPTOR + ")V");
+        int applyName = pool.utf8("applyAsDouble");
+        int applyDescriptor = pool.utf8("(L" + OBJECT + ";)D");
+        int fieldName = pool.utf8("functions");
+        int fieldDescriptor = pool.utf8(FUNCTIONS_DESCRIPTOR);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256 + body.length);
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(49);
+            pool.write(out);
+            out.writeShort(0x0001 | 0x0010 | 0x0020);   //public final super
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(1);
+            out.writeShort(functionInterface);
+            //字段：private final MathFunction[] functions
+            out.writeShort(1);
+            out.writeShort(0x0002 | 0x0010);
+            out.writeShort(fieldName);
+            out.writeShort(fieldDescriptor);
+            out.writeShort(0);
+            out.writeShort(2);
+            //构造方法：super(); this.functions = functions;
+            out.writeShort(0x0001);
+            out.writeShort(initName);
+            out.writeShort(initDescriptor);
+            out.writeShort(1);
+            out.writeShort(codeName);
+            out.writeInt(12 + 10);
+            out.writeShort(2);
+            out.writeShort(2);
+            out.writeInt(10);
+            out.writeByte(0x2A);                        //aload_0
+            out.writeByte(0xB7);                        //invokespecial Object.<init>
+            out.writeShort(objectInit);
+            out.writeByte(0x2A);                        //aload_0
+            out.writeByte(0x2B);                        //aload_1
+            out.writeByte(0xB5);                        //putfield functions
+            out.writeShort(functionsField);
+            out.writeByte(0xB1);                        //return
+            out.writeShort(0);
+            out.writeShort(0);
+            //计算方法：public double applyAsDouble(Object values)
+            out.writeShort(0x0001);
+            out.writeShort(applyName);
+            out.writeShort(applyDescriptor);
+            out.writeShort(1);
+            out.writeShort(codeName);
+            out.writeInt(12 + body.length);
+            out.writeShort(maxStack);
+            out.writeShort(maxLocals);
+            out.writeInt(body.length);
+            out.write(body);
+            out.writeShort(0);
+            out.writeShort(0);
+            //类属性
+            out.writeShort(0);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * 生成节点的计算指令，执行后栈顶为节点的double值
+     */
+    private void emit(Node node) {
+        if (node instanceof Nodes.NumberNode) {
+            double value = ((Nodes.NumberNode) node).doubleValue;
+            if (Double.doubleToRawLongBits(value) == 0L) {
+                code(0x0E);                             //dconst_0
+            } else if (value == 1.0) {
+                code(0x0F);                             //dconst_1
+            } else {
+                code(0x14).code2(pool.doubleConstant(value));   //ldc2_w
+            }
+        } else if (node instanceof Nodes.ParamNode) {
+            code(0x19).code(VALUES_LOCAL);              //aload values
+            pushInt(((Nodes.ParamNode) node).slot);
+            code(0x31);                                 //daload
+        } else if (node instanceof Nodes.TempNode) {
+            localInstruction(0x18, FIRST_TEMP_LOCAL + 2 * (((Nodes.TempNode) node).slot - parameterCount));  //dload
+        } else if (node instanceof Nodes.NegateNode) {
+            emit(((Nodes.NegateNode) node).operand);
+            code(0x77);                                 //dneg
+        } else if (node instanceof Nodes.BinaryNode) {
+            //左深的运算链沿左子节点迭代，递归深度只与右子节点的嵌套有关
+            Deque<Nodes.BinaryNode> chain = leftChain(node);
+            emit(chain.peek().left);
+            while (!chain.isEmpty()) {
+                Nodes.BinaryNode binary = chain.pop();
+                emit(binary.right);
+                code(binaryInstruction(binary.operator));
+            }
+        } else if (node instanceof Nodes.FunctionNode) {
+            emitFunction((Nodes.FunctionNode) node);
+        } else {
+            throw new IllegalStateException("不支持生成字节码的节点：" + node.getClass().getName());
+        }
+    }
+
+    private void emitFunction(Nodes.FunctionNode node) {
+        MathFunction function = node.function;
+        Node[] arguments = node.arguments;
+        String[] intrinsic = intrinsics.get(function);
+        if (intrinsic != null) {
+            int method = pool.methodRef(MATH, intrinsic[0], intrinsic[1]);
+            emit(arguments[0]);
+            if (function.isUnary()) {
+                code(0xB8).code2(method);               //invokestatic
+                return;
+            }
+            for (int i = 1; i < arguments.length; i++) {
+                emit(arguments[i]);
+                code(0xB8).code2(method);
+            }
+            return;
+        }
+        int index = functions.indexOf(function);
+        if (index < 0) {
+            index = functions.size();
+            functions.add(function);
+        }
+        if (function.isUnary()) {
+            loadFunction(index);
+            emit(arguments[0]);
+            code(0xB6).code2(pool.methodRef(MATH_FUNCTION, "applyAsDouble", "(D)D"));  //invokevirtual
+            return;
+        } else if (function.kind() == MathFunction.Kind.TERNARY) {
+            loadFunction(index);
+            emit(arguments[0]);
+            emit(arguments[1]);
+            emit(arguments[2]);
+            code(0xB6).code2(pool.methodRef(MATH_FUNCTION, "applyAsDouble", "(DDD)D"));
+            return;
+        } else if (function.kind() == MathFunction.Kind.VARARGS) {
+            //function.applyAsDouble(new double[]{...}, n)
+            loadFunction(index);
+            pushInt(arguments.length);
+            code(0xBC).code(7);                         //newarray double
+            for (int i = 0; i < arguments.length; i++) {
+                code(0x59);                             //dup
+                pushInt(i);
+                emit(arguments[i]);
+                code(0x52);                             //dastore
+            }
+            pushInt(arguments.length);
+            code(0xB6).code2(pool.methodRef(MATH_FUNCTION, "applyAsDouble", "([DI)D"));
+            return;
+        }
+        int method = pool.methodRef(MATH_FUNCTION, "applyAsDouble", "(DD)D");
+        loadFunction(index);
+        emit(arguments[0]);
+        emit(arguments[1]);
+        code(0xB6).code2(method);
+        for (int i = 2; i < arguments.length; i++) {
+            //栈：acc -> function, acc
+            loadFunction(index);
+            code(0x5B);                                 //dup_x2
+            code(0x57);                                 //pop
+            emit(arguments[i]);
+            code(0xB6).code2(method);
+        }
+    }
+
+    private void loadFunction(int index) {
+        code(0x2A);                                     //aload_0
+        code(0xB4).code2(pool.fieldRef(className, "functions", FUNCTIONS_DESCRIPTOR));  //getfield
+        pushInt(index);
+        code(0x32);                                     //aaload
+    }
+
+    /**
+     * 计算节点所需的最大操作数栈深度，double占两个槽位
+     */
+    private int depth(Node node) {
+        if (node instanceof Nodes.NegateNode) {
+            return depth(((Nodes.NegateNode) node).operand);
+        } else if (node instanceof Nodes.BinaryNode) {
+            Deque<Nodes.BinaryNode> chain = leftChain(node);
+            int depth = depth(chain.peek().left);
+            while (!chain.isEmpty()) {
+                depth = Math.max(depth, 2 + depth(chain.pop().right));
+            }
+            return depth;
+        } else if (node instanceof Nodes.FunctionNode) {
+            Nodes.FunctionNode function = (Nodes.FunctionNode) node;
+            if (function.function.kind() == MathFunction.Kind.VARARGS) {
+                //栈：function, array, array, index, 参数
+                int depth = 3;
+                for (Node argument : function.arguments) {
+                    depth = Math.max(depth, 4 + depth(argument));
+                }
+                return depth;
+            }
+            int base = intrinsics.containsKey(function.function) ? 0 : 1;
+            int depth = Math.max(base + depth(function.arguments[0]), base == 0 ? 2 : 4);
+            boolean ternary = function.function.kind() == MathFunction.Kind.TERNARY;
+            for (int i = 1; i < function.arguments.length; i++) {
+                //三参数函数的参数依次入栈，其余函数每次归并后栈上只保留一个结果
+                depth = Math.max(depth, base + (ternary ? 2 * i : 2) + depth(function.arguments[i]));
+            }
+            return depth;
+        }
+        return 2;
+    }
+
+    /**
+     * @return 从node开始沿左子节点连续的运算，栈顶为最内层
+     */
+    private static Deque<Nodes.BinaryNode> leftChain(Node node) {
+        Deque<Nodes.BinaryNode> chain = new ArrayDeque<>();
+        while (node instanceof Nodes.BinaryNode) {
+            chain.push((Nodes.BinaryNode) node);
+            node = ((Nodes.BinaryNode) node).left;
+        }
+        return chain;
+    }
+
+    private static int binaryInstruction(char operator) {
+        switch (operator) {
+            case '+':
+                return 0x63;                            //dadd
+            case '-':
+                return 0x67;                            //dsub
+            case '*':
+                return 0x6B;                            //dmul
+            case '/':
+                return 0x6F;                            //ddiv
+            case '%':
+                return 0x73;                            //drem
+            default:
+                throw new IllegalStateException("未知运算符：" + operator);
+        }
+    }
+
+    /**
+     * 局部变量指令，下标超过255时使用wide
+     */
+    private void localInstruction(int opcode, int local) {
+        if (local <= 0xFF) {
+            code(opcode).code(local);
+        } else {
+            code(0xC4).code(opcode).code2(local);       //wide
+        }
+    }
+
+    private void pushInt(int value) {
+        if (value <= 5) {
+            code(0x03 + value);                         //iconst_n
+        } else if (value <= Byte.MAX_VALUE) {
+            code(0x10).code(value);                     //bipush
+        } else if (value <= Short.MAX_VALUE) {
+            code(0x11).code2(value);                    //sipush
+        } else {
+            code(0x13).code2(pool.intConstant(value));  //ldc_w
+        }
+    }
+
+    private BytecodeGenerator code(int b) {
+        code.write(b);
+        return this;
+    }
+
+    private BytecodeGenerator code2(int value) {
+        code.write(value >>> 8);
+        code.write(value);
+        return this;
+    }
+
+    /**
+     * 常量池，相同的常量只写入一次
+     */
+    private static final class ConstantPool {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(bytes);
+        private final Map<String, Integer> indexes = new HashMap<>();
+        private int count = 1;
+
+        int utf8(String value) {
+            Integer index = indexes.get("U" + value);
+            if (index != null) {
+                return index;
+            }
+            try {
+                out.writeByte(1);
+                out.writeUTF(value);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            return add("U" + value, 1);
+        }
+
+        int classRef(String internalName) {
+            Integer index = indexes.get("C" + internalName);
+            if (index != null) {
+                return index;
+            }
+            int name = utf8(internalName);
+            write(7, name, -1);
+            return add("C" + internalName, 1);
+        }
+
+        int fieldRef(String owner, String name, String descriptor) {
+            return memberRef(9, owner, name, descriptor);
+        }
+
+        int methodRef(String owner, String name, String descriptor) {
+            return memberRef(10, owner, name, descriptor);
+        }
+
+        int doubleConstant(double value) {
+            String key = "D" + Double.doubleToRawLongBits(value);
+            Integer index = indexes.get(key);
+            if (index != null) {
+                return index;
+            }
+            try {
+                out.writeByte(6);
+                out.writeDouble(value);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            //double占两个常量池位置
+            return add(key, 2);
+        }
+
+        int intConstant(int value) {
+            String key = "I" + value;
+            Integer index = indexes.get(key);
+            if (index != null) {
+                return index;
+            }
+            try {
+                out.writeByte(3);
+                out.writeInt(value);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            return add(key, 1);
+        }
+
+        private int memberRef(int tag, String owner, String name, String descriptor) {
+            String key = tag + owner + "." + name + descriptor;
+            Integer index = indexes.get(key);
+            if (index != null) {
+                return index;
+            }
+            int ownerIndex = classRef(owner);
+            String nameAndTypeKey = "N" + name + descriptor;
+            Integer nameAndType = indexes.get(nameAndTypeKey);
+            if (nameAndType == null) {
+                int nameIndex = utf8(name);
+                int descriptorIndex = utf8(descriptor);
+                write(12, nameIndex, descriptorIndex);
+                nameAndType = add(nameAndTypeKey, 1);
+            }
+            write(tag, ownerIndex, nameAndType);
+            return add(key, 1);
+        }
+
+        private void write(int tag, int first, int second) {
+            try {
+                out.writeByte(tag);
+                out.writeShort(first);
+                if (second >= 0) {
+                    out.writeShort(second);
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private int add(String key, int size) {
+            int index = count;
+            indexes.put(key, index);
+            count += size;
+            return index;
+        }
+
+        void write(DataOutputStream target) throws IOException {
+            target.writeShort(count);
+            bytes.writeTo(target);
+        }
+    }
+
+    /**
+     * 生成类的类加载器，每个生成的类独占一个
+     */
+    private static final class GeneratedClassLoader extends ClassLoader {
+
+        GeneratedClassLoader(ClassLoader parent) {
+            super(parent);
+        }
+
+        Class<?> define(String name, byte[] bytes) {
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+}
@@ -0,0 +1,309 @@
+package org.hhq.expression;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * 预编译的表达式
+ * 表达式只在{@link #compile(String)}时解析一次，之后每次{@link #evaluate(Map)}只在语法树上求值，不再进行字符串改写
+ * <p>
+ * 编译后的表达式不可变，可以被缓存并在多线程间共享
+ * <p>
+ * 求值模式见{@link EvalMode}：{@link #evaluateDouble(double[])}在double上求值，不产生中间对象；
+ * {@link #evaluateDecimal(Map, MathContext)}在BigDecimal上按指定精度求值
+ * <p>
+ * 变量在编译时按首次出现的顺序绑定到下标({@link #getParameterNames()})，除Map外，
+ * 也可以通过下标数组{@link #evaluateDouble(double[])}或查找函数{@link #evaluateDouble(ToDoubleFunction)}传入变量值，
+ * 数值不需要格式化为字符串再解析
+ * <p>
+ * 编译时进行常量折叠、恒等化简以及公共子表达式提取(见{@link ExpressionOptimizer})，公共子表达式每次求值只计算一次，
+ * 其结果存放在变量之后的下标，因此{@link #evaluateDouble(double[])}传入长度为{@link #getFrameSize()}的数组时不产生任何对象
+ * <p>
+ * 热点表达式可以通过{@link #toFunction()}生成字节码，由JIT像手写代码一样编译内联
+ * <p>
+ * CompiledExpression compiled = CompiledExpression.compile("max({a},{b})*2+1");
+ * Map<String, Object> map = new HashMap<>();
+ * map.put("{a}", 1);
+ * map.put("{b}", 2);
+ * compiled.evaluate(map);
+ *
+ * @see org.hhq.MathCalculateUtil#compile(String)
+ */
+public final class CompiledExpression {
+
+    /**
+     * 原始表达式
+     */
+    private final String expression;
+
+    /**
+     * 语法树
+     */
+    private final Node root;
+
+    /**
+     * 公共子表达式，按计算顺序排列，第i个结果存放在下标parameterNames.length+i
+     */
+    private final Node[] temps;
+
+    /**
+     * 变量占位符，按变量下标排列
+     */
+    private final String[] parameterNames;
+
+    /**
+     * 表达式只有一个数字或变量(可带括号)时为该数字或占位符的原文，否则为null
+     */
+    private final String operand;
+
+    /**
+     * 生成的字节码函数，首次使用时生成
+     */
+    private volatile ToDoubleFunction<double[]> function;
+
+    private CompiledExpression(String expression, String operand, Node root, Node[] temps, String[] parameterNames) {
+        this.expression = expression;
+        this.operand = operand;
+        this.root = root;
+        this.temps = temps;
+        this.parameterNames = parameterNames;
+    }
+
+    /**
+     * 编译表达式
+     *
+     * @param expression 表达式
+     * @return 编译后的表达式
+     * @throws IllegalArgumentException 表达式错误
+     */
+    public static CompiledExpression compile(String expression) {
+        return compile(expression, FunctionRegistry.getDefault());
+    }
+
+    /**
+     * 使用指定的函数注册表编译表达式，函数及其参数个数在编译时校验
+     *
+     * @param expression 表达式
+     * @param registry   函数注册表
+     * @return 编译后的表达式
+     * @throws IllegalArgumentException 表达式错误，函数不存在或参数个数错误
+     */
+    public static CompiledExpression compile(String expression, FunctionRegistry registry) {
+        ExpressionParser parser = new ExpressionParser(expression, registry);
+        Node root = parser.parse();
+        String[] parameterNames = parser.getParameterNames();
+        //按优化前的语法树判断，{a}*1优化后也只是变量，但含有运算
+        String operand = root instanceof Nodes.NumberNode || root instanceof Nodes.ParamNode ? expression.replaceAll("[()\\s]", "") : null;
+        ExpressionOptimizer optimizer = ExpressionOptimizer.optimize(root, parameterNames.length);
+        return new CompiledExpression(expression, operand, optimizer.getRoot(), optimizer.getTemps(), parameterNames);
+    }
+
+    /**
+     * @return 计算结果
+     */
+    public BigDecimal evaluate() {
+        return evaluate(null);
+    }
+
+    /**
+     * 表达式计算，精度为{@link Operators#MATH_CONTEXT}
+     *
+     * @param params 变量映射，key为占位符(如：{pam})，value为Number或者数字字符串
+     * @return 计算结果
+     * @throws IllegalArgumentException 缺少变量
+     */
+    public BigDecimal evaluate(Map<String, ?> params) {
+        return evaluateDecimal(params, Operators.MATH_CONTEXT);
+    }
+
+    /**
+     * 按指定模式计算
+     *
+     * @param params 变量映射
+     * @param mode   求值模式
+     * @return DOUBLE模式返回Double，DECIMAL模式返回BigDecimal
+     * @throws ArithmeticException DECIMAL模式下除以0或函数结果为Infinity、NaN
+     */
+    public Number evaluate(Map<String, ?> params, EvalMode mode) {
+        if (mode.isDouble()) {
+            return evaluateDouble(params);
+        }
+        return evaluateDecimal(params, mode.getMathContext());
+    }
+
+    /**
+     * double计算
+     *
+     * @param params 变量映射
+     * @return 计算结果
+     * @throws IllegalArgumentException 缺少变量
+     */
+    public double evaluateDouble(Map<String, ?> params) {
+        double[] values = new double[getFrameSize()];
+        for (int i = 0; i < parameterNames.length; i++) {
+            values[i] = Nodes.toDouble(parameter(params, parameterNames[i]));
+        }
+        return evaluateFrame(values);
+    }
+
+    /**
+     * double计算
+     * 数组长度不小于{@link #getFrameSize()}时，公共子表达式的结果直接写入变量之后的位置，求值过程不产生任何对象；
+     * 否则复制到新的数组中计算
+     *
+     * @param values 变量值，按{@link #getParameterNames()}的下标排列
+     * @return 计算结果
+     */
+    public double evaluateDouble(double[] values) {
+        if (values.length < parameterNames.length) {
+            throw new IllegalArgumentException("表达式错误：需要" + parameterNames.length + "个变量，传入" + values.length + "个");
+        }
+        if (values.length < getFrameSize()) {
+            values = Arrays.copyOf(values, getFrameSize());
+        }
+        return evaluateFrame(values);
+    }
+
+    /**
+     * 先计算公共子表达式，再计算语法树
+     *
+     * @param frame 长度为{@link #getFrameSize()}的数组，前部为变量值
+     */
+    double evaluateFrame(double[] frame) {
+        for (int i = 0; i < temps.length; i++) {
+            frame[parameterNames.length + i] = temps[i].evaluateDouble(frame);
+        }
+        return root.evaluateDouble(frame);
+    }
+
+    /**
+     * double计算，每个变量只查找一次
+     *
+     * @param lookup 变量查找函数，参数为占位符(如：{pam})
+     * @return 计算结果
+     */
+    public double evaluateDouble(ToDoubleFunction<String> lookup) {
+        double[] values = new double[getFrameSize()];
+        for (int i = 0; i < parameterNames.length; i++) {
+            values[i] = lookup.applyAsDouble(parameterNames[i]);
+        }
+        return evaluateFrame(values);
+    }
+
+    /**
+     * BigDecimal计算
+     *
+     * @param params      变量映射
+     * @param mathContext 运算精度
+     * @return 计算结果
+     * @throws IllegalArgumentException 缺少变量
+     */
+    public BigDecimal evaluateDecimal(Map<String, ?> params, MathContext mathContext) {
+        BigDecimal[] values = new BigDecimal[getFrameSize()];
+        for (int i = 0; i < parameterNames.length; i++) {
+            values[i] = Nodes.toBigDecimal(parameter(params, parameterNames[i]));
+        }
+        for (int i = 0; i < temps.length; i++) {
+            values[parameterNames.length + i] = temps[i].evaluateDecimal(values, mathContext);
+        }
+        return root.evaluateDecimal(values, mathContext);
+    }
+
+    private static Object parameter(Map<String, ?> params, String placeholder) {
+        Object value = params == null ? null : params.get(placeholder);
+        if (value == null) {
+            throw new IllegalArgumentException("表达式错误：缺少变量" + placeholder);
+        }
+        return value;
+    }
+
+    /**
+     * @return 变量占位符，数组下标即变量下标
+     */
+    public String[] getParameterNames() {
+        return parameterNames.clone();
+    }
+
+    /**
+     * @return 变量个数
+     */
+    public int getParameterCount() {
+        return parameterNames.length;
+    }
+
+    /**
+     * @return 求值所需的数组长度：变量个数+公共子表达式个数
+     */
+    public int getFrameSize() {
+        return parameterNames.length + temps.length;
+    }
+
+    /**
+     * @param placeholder 占位符(如：{pam})
+     * @return 变量下标，表达式中不含该变量时返回-1
+     */
+    public int indexOf(String placeholder) {
+        for (int i = 0; i < parameterNames.length; i++) {
+            if (parameterNames[i].equals(placeholder)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 生成实现{@code ToDoubleFunction<double[]>}的类，函数参数为按{@link #getParameterNames()}下标排列的变量值
+     * 首次调用时生成，之后返回同一实例；生成的函数不可变，可在多线程间共享
+     *
+     * @return 生成的计算函数
+     * @throws IllegalStateException 表达式过长，生成的字节码超过JVM的方法长度上限
+     */
+    public ToDoubleFunction<double[]> toFunction() {
+        ToDoubleFunction<double[]> generated = function;
+        if (generated == null) {
+            synchronized (this) {
+                generated = function;
+                if (generated == null) {
+                    function = generated = BytecodeGenerator.generate(root, temps, parameterNames.length);
+                }
+            }
+        }
+        return generated;
+    }
+
+    /**
+     * @return 语法树根节点
+     */
+    Node root() {
+        return root;
+    }
+
+    /**
+     * @return 公共子表达式
+     */
+    Node[] temps() {
+        return temps;
+    }
+
+    /**
+     * @return 表达式只有一个数字或变量(可带括号)时为该数字或占位符(如：{pam})的原文，含有运算时为null
+     */
+    public String getOperand() {
+        return operand;
+    }
+
+    /**
+     * @return 原始表达式
+     */
+    public String getExpression() {
+        return expression;
+    }
+
+    @Override
+    public String toString() {
+        return expression;
+    }
+}
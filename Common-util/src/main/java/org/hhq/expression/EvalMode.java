@@ -0,0 +1,54 @@
+package org.hhq.expression;
+
+import java.math.MathContext;
+
+/**
+ * 表达式求值的数值模式
+ * {@link #DOUBLE} 在double上求值，不产生中间对象，适用于只需要double精度的计算
+ * {@link #DECIMAL} 或 {@link #decimal(MathContext)} 在BigDecimal上按指定精度求值
+ */
+public final class EvalMode {
+
+    /**
+     * double求值
+     */
+    public static final EvalMode DOUBLE = new EvalMode(null);
+
+    /**
+     * BigDecimal求值，精度为{@link Operators#MATH_CONTEXT}
+     */
+    public static final EvalMode DECIMAL = new EvalMode(Operators.MATH_CONTEXT);
+
+    /**
+     * BigDecimal运算精度，DOUBLE模式时为null
+     */
+    private final MathContext mathContext;
+
+    private EvalMode(MathContext mathContext) {
+        this.mathContext = mathContext;
+    }
+
+    /**
+     * @param mathContext 运算精度
+     * @return 指定精度的BigDecimal求值模式
+     */
+    public static EvalMode decimal(MathContext mathContext) {
+        if (mathContext == null) {
+            throw new NullPointerException("mathContext");
+        }
+        return new EvalMode(mathContext);
+    }
+
+    public boolean isDouble() {
+        return mathContext == null;
+    }
+
+    public MathContext getMathContext() {
+        return mathContext;
+    }
+
+    @Override
+    public String toString() {
+        return isDouble() ? "DOUBLE" : "DECIMAL(" + mathContext + ")";
+    }
+}
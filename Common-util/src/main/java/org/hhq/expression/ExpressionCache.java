@@ -0,0 +1,182 @@
+package org.hhq.expression;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 预编译表达式缓存
+ * key:表达式，value:编译后的表达式；容量有限，超出容量时淘汰最久未使用的表达式(LRU)
+ * <p>
+ * 命中时只读取{@link ConcurrentHashMap}，不加锁；未命中时在锁外编译，仅淘汰时加锁
+ * 访问时间使用逻辑时钟，时钟只在新增表达式时前进(每次前进2)，命中时记为当前时钟+1，
+ * 因此命中不会产生写竞争，且命中的表达式总是新于之前新增的表达式、旧于之后新增的表达式
+ * <p>
+ * 函数参数个数错误({@link FunctionArityException})的表达式同样缓存，记录错误信息，再次获取时不再解析
+ * <p>
+ * 提供命中{@link #hitCount()}、未命中{@link #missCount()}、淘汰{@link #evictionCount()}计数
+ */
+public final class ExpressionCache {
+
+    /**
+     * 默认容量
+     */
+    public static final int DEFAULT_MAXIMUM_SIZE = 1024;
+
+    private final int maximumSize;
+
+    private final ConcurrentHashMap<String, Entry> entries;
+
+    /**
+     * 逻辑时钟
+     */
+    private final AtomicLong clock = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param maximumSize 最多缓存的表达式个数
+     */
+    public ExpressionCache(int maximumSize) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("maximumSize必须大于0：" + maximumSize);
+        }
+        this.maximumSize = maximumSize;
+        this.entries = new ConcurrentHashMap<>(Math.min(maximumSize, 256));
+    }
+
+    /**
+     * 获取编译后的表达式，不存在时编译并缓存
+     *
+     * @param expression 表达式
+     * @return 编译后的表达式
+     * @throws FunctionArityException   函数参数个数错误
+     * @throws IllegalArgumentException 表达式错误，除参数个数错误外，错误的表达式不会被缓存
+     */
+    public CompiledExpression get(String expression) {
+        Entry entry = entry(expression);
+        if (entry.compiled == null) {
+            throw new FunctionArityException(entry.arityError);
+        }
+        return entry.compiled;
+    }
+
+    /**
+     * 获取编译后的表达式，函数参数个数错误时返回null而不抛出异常
+     *
+     * @param expression 表达式
+     * @return 编译后的表达式，函数参数个数错误时为null
+     * @throws IllegalArgumentException 表达式错误(参数个数错误除外)
+     */
+    public CompiledExpression getOrNull(String expression) {
+        return entry(expression).compiled;
+    }
+
+    private Entry entry(String expression) {
+        Entry entry = entries.get(expression);
+        if (entry != null) {
+            hits.increment();
+            entry.touch(clock.get() + 1);
+            return entry;
+        }
+        misses.increment();
+        Entry created;
+        try {
+            created = new Entry(CompiledExpression.compile(expression), null, clock.addAndGet(2));
+        } catch (FunctionArityException e) {
+            created = new Entry(null, e.getMessage(), clock.addAndGet(2));
+        }
+        entry = entries.putIfAbsent(expression, created);
+        if (entry != null) {
+            return entry;
+        }
+        if (entries.size() > maximumSize) {
+            evict();
+        }
+        return created;
+    }
+
+    /**
+     * 淘汰最久未使用的表达式，直到不超过容量
+     */
+    private synchronized void evict() {
+        while (entries.size() > maximumSize) {
+            Map.Entry<String, Entry> eldest = null;
+            for (Map.Entry<String, Entry> candidate : entries.entrySet()) {
+                if (eldest == null || candidate.getValue().lastAccess < eldest.getValue().lastAccess) {
+                    eldest = candidate;
+                }
+            }
+            if (eldest == null) {
+                return;
+            }
+            if (entries.remove(eldest.getKey(), eldest.getValue())) {
+                evictions.increment();
+            }
+        }
+    }
+
+    /**
+     * 清空缓存，计数不清零
+     */
+    public void clear() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "ExpressionCache{size=" + size() + ", maximumSize=" + maximumSize + ", hits=" + hitCount()
+                + ", misses=" + missCount() + ", evictions=" + evictionCount() + "}";
+    }
+
+    private static final class Entry {
+        /**
+         * 编译后的表达式，函数参数个数错误时为null
+         */
+        final CompiledExpression compiled;
+
+        /**
+         * 函数参数个数错误的信息
+         */
+        final String arityError;
+
+        volatile long lastAccess;
+
+        Entry(CompiledExpression compiled, String arityError, long lastAccess) {
+            this.compiled = compiled;
+            this.arityError = arityError;
+            this.lastAccess = lastAccess;
+        }
+
+        void touch(long now) {
+            if (lastAccess != now) {
+                lastAccess = now;
+            }
+        }
+    }
+}
@@ -0,0 +1,335 @@
+package org.hhq.expression;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 语法树优化，编译时执行一次
+ * 1、常量折叠：子节点都是常量的运算、函数在编译时算出结果，如：19/20*6+5 -> 10.7
+ * 折叠使用BigDecimal精确运算，结果只在求值时按精度取舍一次；无法精确表示的除法(如：1/3)及除以0不折叠
+ * 2、化简：x*1、1*x、x/1、x+0、0+x、x-0 -> x，0-x -> -x，--x -> x
+ * 3、公共子表达式：结构相同的子树只保留一份，被引用多次的运算、函数作为临时值，每次求值只计算一次
+ * <p>
+ * 函数被视为纯函数：相同参数总是返回相同结果
+ */
+final class ExpressionOptimizer {
+
+    private static final BigDecimal[] NO_DECIMALS = new BigDecimal[0];
+
+    private static final double[] NO_DOUBLES = new double[0];
+
+    /**
+     * 结构相同的节点只保留一份
+     */
+    private final Map<Key, Node> canonical = new HashMap<>();
+
+    /**
+     * 节点被父节点引用的次数
+     */
+    private final Map<Node, Integer> references = new IdentityHashMap<>();
+
+    /**
+     * 节点的创建顺序，子节点总在父节点之前
+     */
+    private final List<Node> order = new ArrayList<>();
+
+    /**
+     * 临时值下标的起点，即变量个数
+     */
+    private final int parameterCount;
+
+    private Node root;
+
+    private Node[] temps;
+
+    private ExpressionOptimizer(int parameterCount) {
+        this.parameterCount = parameterCount;
+    }
+
+    /**
+     * @param root           语法树根节点
+     * @param parameterCount 变量个数，临时值存放在变量之后的下标
+     * @return 优化结果
+     */
+    static ExpressionOptimizer optimize(Node root, int parameterCount) {
+        ExpressionOptimizer optimizer = new ExpressionOptimizer(parameterCount);
+        Node simplified = optimizer.simplify(root);
+        optimizer.count(simplified);
+        optimizer.extractTemps(simplified);
+        return optimizer;
+    }
+
+    /**
+     * @return 优化后的根节点
+     */
+    Node getRoot() {
+        return root;
+    }
+
+    /**
+     * @return 临时值的计算节点，按计算顺序排列，第i个临时值存放在下标parameterCount+i
+     */
+    Node[] getTemps() {
+        return temps;
+    }
+
+    /**
+     * 左深的运算链(如：a+b+c+...)沿左子节点迭代化简，递归深度只与右子节点、取负及函数参数的嵌套有关；
+     * 化简顺序与先左后右的递归一致
+     */
+    private Node simplify(Node node) {
+        Deque<Nodes.BinaryNode> chain = new ArrayDeque<>();
+        while (node instanceof Nodes.BinaryNode) {
+            chain.push((Nodes.BinaryNode) node);
+            node = ((Nodes.BinaryNode) node).left;
+        }
+        Node left = simplifyOperand(node);
+        while (!chain.isEmpty()) {
+            Nodes.BinaryNode binary = chain.pop();
+            Node right = simplify(binary.right);
+            Node identity = identity(binary.operator, left, right);
+            if (identity != null) {
+                left = identity;
+                continue;
+            }
+            Node simplified = new Nodes.BinaryNode(binary.operator, left, right);
+            left = isConstant(left) && isConstant(right) ? fold(simplified) : intern(simplified);
+        }
+        return left;
+    }
+
+    /**
+     * 化简运算以外的节点
+     */
+    private Node simplifyOperand(Node node) {
+        if (node instanceof Nodes.NegateNode) {
+            Node operand = simplify(((Nodes.NegateNode) node).operand);
+            if (operand instanceof Nodes.NegateNode) {
+                return ((Nodes.NegateNode) operand).operand;
+            } else if (operand instanceof Nodes.NumberNode) {
+                Nodes.NumberNode number = (Nodes.NumberNode) operand;
+                return intern(new Nodes.NumberNode(number.value.negate(), -number.doubleValue, number.rounded));
+            }
+            return intern(new Nodes.NegateNode(operand));
+        } else if (node instanceof Nodes.FunctionNode) {
+            Nodes.FunctionNode function = (Nodes.FunctionNode) node;
+            Node[] arguments = new Node[function.arguments.length];
+            boolean constant = true;
+            for (int i = 0; i < arguments.length; i++) {
+                arguments[i] = simplify(function.arguments[i]);
+                constant &= isConstant(arguments[i]);
+            }
+            Node simplified = new Nodes.FunctionNode(function.function, arguments);
+            return constant ? fold(simplified) : intern(simplified);
+        }
+        return intern(node);
+    }
+
+    /**
+     * 化简恒等运算
+     *
+     * @return 化简结果，无法化简时返回null
+     */
+    private Node identity(char operator, Node left, Node right) {
+        switch (operator) {
+            case '*':
+                if (isConstant(right, 1)) return left;
+                if (isConstant(left, 1)) return right;
+                break;
+            case '/':
+                if (isConstant(right, 1)) return left;
+                break;
+            case '+':
+                if (isConstant(right, 0)) return left;
+                if (isConstant(left, 0)) return right;
+                break;
+            case '-':
+                if (isConstant(right, 0)) return left;
+                if (isConstant(left, 0) && !isConstant(right)) return intern(new Nodes.NegateNode(right));
+                break;
+            default:
+                break;
+        }
+        return null;
+    }
+
+    /**
+     * 常量折叠，BigDecimal结果无法精确表示或函数结果为Infinity、NaN时不折叠
+     */
+    private Node fold(Node node) {
+        BigDecimal value;
+        try {
+            value = node.evaluateDecimal(NO_DECIMALS, MathContext.UNLIMITED);
+        } catch (ArithmeticException e) {
+            return intern(node);
+        }
+        return intern(new Nodes.NumberNode(value, node.evaluateDouble(NO_DOUBLES), true));
+    }
+
+    private Node intern(Node node) {
+        Key key = new Key(node);
+        Node existing = canonical.get(key);
+        if (existing != null) {
+            return existing;
+        }
+        canonical.put(key, node);
+        order.add(node);
+        return node;
+    }
+
+    /**
+     * 统计引用次数，每个节点的子节点只统计一次；使用栈遍历，不受树的深度限制
+     */
+    private void count(Node root) {
+        Deque<Node> pending = new ArrayDeque<>();
+        pending.push(root);
+        while (!pending.isEmpty()) {
+            Node node = pending.pop();
+            Integer count = references.get(node);
+            references.put(node, count == null ? 1 : count + 1);
+            if (count == null) {
+                for (Node child : children(node)) {
+                    pending.push(child);
+                }
+            }
+        }
+    }
+
+    /**
+     * 被引用多次的运算、函数作为临时值
+     */
+    private void extractTemps(Node simplified) {
+        Map<Node, Node> replaced = new IdentityHashMap<>();
+        List<Node> definitions = new ArrayList<>();
+        for (Node node : order) {
+            Integer count = references.get(node);
+            if (node != simplified && count != null && count > 1
+                    && (node instanceof Nodes.BinaryNode || node instanceof Nodes.FunctionNode)) {
+                definitions.add(rebuild(node, replaced));
+                replaced.put(node, new Nodes.TempNode(parameterCount + definitions.size() - 1));
+            }
+        }
+        root = rebuild(simplified, replaced);
+        temps = definitions.toArray(new Node[0]);
+    }
+
+    /**
+     * 将子树中的临时值替换为{@link Nodes.TempNode}，左深的运算链与{@link #simplify(Node)}一样迭代处理
+     */
+    private Node rebuild(Node node, Map<Node, Node> replaced) {
+        Deque<Nodes.BinaryNode> chain = new ArrayDeque<>();
+        Node current = node;
+        while (current instanceof Nodes.BinaryNode && (current == node || !replaced.containsKey(current))) {
+            chain.push((Nodes.BinaryNode) current);
+            current = ((Nodes.BinaryNode) current).left;
+        }
+        if (chain.isEmpty()) {
+            return rebuildOperand(node, replaced);
+        }
+        Node left = replace(current, replaced);
+        while (!chain.isEmpty()) {
+            Nodes.BinaryNode binary = chain.pop();
+            left = new Nodes.BinaryNode(binary.operator, left, replace(binary.right, replaced));
+        }
+        return left;
+    }
+
+    private Node rebuildOperand(Node node, Map<Node, Node> replaced) {
+        if (node instanceof Nodes.NegateNode) {
+            return new Nodes.NegateNode(replace(((Nodes.NegateNode) node).operand, replaced));
+        } else if (node instanceof Nodes.FunctionNode) {
+            Nodes.FunctionNode function = (Nodes.FunctionNode) node;
+            Node[] arguments = new Node[function.arguments.length];
+            for (int i = 0; i < arguments.length; i++) {
+                arguments[i] = replace(function.arguments[i], replaced);
+            }
+            return new Nodes.FunctionNode(function.function, arguments);
+        }
+        return node;
+    }
+
+    private Node replace(Node node, Map<Node, Node> replaced) {
+        Node temp = replaced.get(node);
+        return temp != null ? temp : rebuild(node, replaced);
+    }
+
+    static Node[] children(Node node) {
+        if (node instanceof Nodes.NegateNode) {
+            return new Node[]{((Nodes.NegateNode) node).operand};
+        } else if (node instanceof Nodes.BinaryNode) {
+            return new Node[]{((Nodes.BinaryNode) node).left, ((Nodes.BinaryNode) node).right};
+        } else if (node instanceof Nodes.FunctionNode) {
+            return ((Nodes.FunctionNode) node).arguments;
+        }
+        return new Node[0];
+    }
+
+    private static boolean isConstant(Node node) {
+        return node instanceof Nodes.NumberNode;
+    }
+
+    private static boolean isConstant(Node node, int value) {
+        return node instanceof Nodes.NumberNode && ((Nodes.NumberNode) node).value.compareTo(BigDecimal.valueOf(value)) == 0;
+    }
+
+    /**
+     * 节点结构，子节点已去重，按引用比较
+     */
+    private static final class Key {
+        private final Class<?> type;
+        private final Object value;
+        private final Node[] children;
+
+        Key(Node node) {
+            this.type = node.getClass();
+            this.children = children(node);
+            if (node instanceof Nodes.NumberNode) {
+                Nodes.NumberNode number = (Nodes.NumberNode) node;
+                this.value = Arrays.asList(number.value, number.rounded);
+            } else if (node instanceof Nodes.ParamNode) {
+                this.value = ((Nodes.ParamNode) node).slot;
+            } else if (node instanceof Nodes.BinaryNode) {
+                this.value = ((Nodes.BinaryNode) node).operator;
+            } else if (node instanceof Nodes.FunctionNode) {
+                this.value = ((Nodes.FunctionNode) node).function;
+            } else {
+                this.value = null;
+            }
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            if (type != key.type || !Objects.equals(value, key.value) || children.length != key.children.length) {
+                return false;
+            }
+            for (int i = 0; i < children.length; i++) {
+                if (children[i] != key.children[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = type.hashCode() * 31 + Objects.hashCode(value);
+            for (Node child : children) {
+                hash = hash * 31 + System.identityHashCode(child);
+            }
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package org.hhq.expression;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 表达式解析，一次扫描完成分词和语法分析，生成语法树
+ * <p>
+ * 文法(优先级由低到高)：
+ * expression := term (('+'|'-') term)*
+ * term       := unary (('*'|'/'|'%') unary)*
+ * unary      := ('+'|'-') unary | primary
+ * primary    := number | '{'name'}' | function '(' expression (',' expression)* ')' | '(' expression ')'
+ * <p>
+ * 变量在解析时按首次出现的顺序分配下标，求值时按下标取值，不再按名称查找
+ */
+final class ExpressionParser {
+
+    private final String expression;
+
+    /**
+     * 函数在解析时查找并校验参数个数
+     */
+    private final FunctionRegistry registry;
+
+    private int position;
+
+    /**
+     * key:占位符，value:变量下标
+     */
+    private final Map<String, Integer> placeholders = new LinkedHashMap<>();
+
+    ExpressionParser(String expression) {
+        this(expression, FunctionRegistry.getDefault());
+    }
+
+    ExpressionParser(String expression, FunctionRegistry registry) {
+        this.expression = expression;
+        this.registry = registry;
+    }
+
+    /**
+     * 解析表达式
+     *
+     * @return 语法树根节点
+     */
+    Node parse() {
+        if (expression == null || expression.trim().isEmpty()) {
+            throw new IllegalArgumentException("表达式错误：表达式为空");
+        }
+        Node root = parseExpression();
+        skipWhitespace();
+        if (position < expression.length()) {
+            throw error("多余的字符'" + expression.charAt(position) + "'");
+        }
+        return root;
+    }
+
+    /**
+     * @return 变量占位符，按下标排列
+     */
+    String[] getParameterNames() {
+        return placeholders.keySet().toArray(new String[0]);
+    }
+
+    private Node parseExpression() {
+        Node node = parseTerm();
+        while (true) {
+            char operator = peek();
+            if (operator != '+' && operator != '-') {
+                return node;
+            }
+            position++;
+            node = new Nodes.BinaryNode(operator, node, parseTerm());
+        }
+    }
+
+    private Node parseTerm() {
+        Node node = parseUnary();
+        while (true) {
+            char operator = peek();
+            if (operator != '*' && operator != '/' && operator != '%') {
+                return node;
+            }
+            position++;
+            node = new Nodes.BinaryNode(operator, node, parseUnary());
+        }
+    }
+
+    private Node parseUnary() {
+        char c = peek();
+        if (c == '-') {
+            position++;
+            return new Nodes.NegateNode(parseUnary());
+        } else if (c == '+') {
+            position++;
+            return parseUnary();
+        }
+        return parsePrimary();
+    }
+
+    private Node parsePrimary() {
+        char c = peek();
+        if (c == '(') {
+            position++;
+            Node node = parseExpression();
+            expect(')');
+            return node;
+        } else if (c == '{') {
+            int end = expression.indexOf('}', position);
+            if (end < 0) {
+                throw error("变量缺少'}'");
+            }
+            String placeholder = expression.substring(position, end + 1);
+            position = end + 1;
+            Integer slot = placeholders.get(placeholder);
+            if (slot == null) {
+                slot = placeholders.size();
+                placeholders.put(placeholder, slot);
+            }
+            return new Nodes.ParamNode(placeholder, slot);
+        } else if (isDigit(c) || c == '.') {
+            return parseNumber();
+        } else if (Character.isLetter(c)) {
+            return parseFunction();
+        }
+        throw error(position < expression.length() ? "非法字符'" + c + "'" : "表达式不完整");
+    }
+
+    private Node parseNumber() {
+        int start = position;
+        while (position < expression.length() && (isDigit(expression.charAt(position)) || expression.charAt(position) == '.')) {
+            position++;
+        }
+        try {
+            return new Nodes.NumberNode(new BigDecimal(expression.substring(start, position)));
+        } catch (NumberFormatException e) {
+            throw error("非法数字'" + expression.substring(start, position) + "'");
+        }
+    }
+
+    private Node parseFunction() {
+        int start = position;
+        while (position < expression.length() && Character.isLetterOrDigit(expression.charAt(position))) {
+            position++;
+        }
+        String name = expression.substring(start, position);
+        MathFunction function = registry.get(name);
+        if (function == null) {
+            throw error("没有对应的集合函数：" + name);
+        }
+        expect('(');
+        List<Node> arguments = new ArrayList<>();
+        arguments.add(parseExpression());
+        while (peek() == ',') {
+            position++;
+            arguments.add(parseExpression());
+        }
+        expect(')');
+        if (!function.acceptsArity(arguments.size())) {
+            throw new FunctionArityException(message("函数" + name + "参数个数错误：" + arguments.size() + "，需要" + arity(function)));
+        }
+        return new Nodes.FunctionNode(function, arguments.toArray(new Node[0]));
+    }
+
+    private static String arity(MathFunction function) {
+        if (function.getMaxArity() == function.getMinArity()) {
+            return function.getMinArity() + "个";
+        }
+        return function.isVariadic() ? "至少" + function.getMinArity() + "个" : function.getMinArity() + "~" + function.getMaxArity() + "个";
+    }
+
+    private void expect(char c) {
+        if (peek() != c) {
+            throw error("缺少'" + c + "'");
+        }
+        position++;
+    }
+
+    /**
+     * 跳过空白后查看当前字符，到达结尾时返回0
+     */
+    private char peek() {
+        skipWhitespace();
+        return position < expression.length() ? expression.charAt(position) : 0;
+    }
+
+    private void skipWhitespace() {
+        while (position < expression.length() && Character.isWhitespace(expression.charAt(position))) {
+            position++;
+        }
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message(message));
+    }
+
+    private String message(String message) {
+        return "表达式错误：" + message + "，位置：" + position + "，表达式：" + expression;
+    }
+}
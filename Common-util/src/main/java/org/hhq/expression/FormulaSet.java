@@ -0,0 +1,362 @@
+package org.hhq.expression;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * 公式集：一组相互引用的公式，公式的结果作为其他公式的变量
+ * <p>
+ * 创建时编译全部公式，按变量引用建立依赖图(DAG)并检测循环引用；依赖图按层划分，
+ * 同一层的公式互不依赖，层内公式数超过{@code threshold}时拆分后交由{@link ForkJoinPool}并行计算，层与层之间依次计算
+ * <p>
+ * 公式名称即占位符(如：{total})，也可以省略{}；不是公式名称的变量为输入变量，由计算时传入
+ * <p>
+ * Map<String, String> formulas = new LinkedHashMap<>();
+ * formulas.put("{total}", "{price}*{count}");
+ * formulas.put("{tax}", "{total}*0.1");
+ * FormulaSet set = new FormulaSet(formulas);
+ * set.evaluate(inputs).get("{tax}");
+ * <p>
+ * 编译后不可变，可在多线程间共享
+ */
+public final class FormulaSet {
+
+    /**
+     * 默认每个任务计算的最多公式数，公式数不超过该值时不再拆分
+     */
+    public static final int DEFAULT_THRESHOLD = 64;
+
+    /**
+     * 公式名称(占位符)，按定义顺序排列
+     */
+    private final String[] formulaNames;
+
+    private final CompiledExpression[] formulas;
+
+    /**
+     * 输入变量的占位符，按输入下标排列
+     */
+    private final String[] inputNames;
+
+    /**
+     * 每个公式的变量在计算状态中的下标：输入变量在前，公式结果在后
+     */
+    private final int[][] argumentSlots;
+
+    /**
+     * 按层排列的公式下标
+     */
+    private final int[][] levels;
+
+    /**
+     * 公式所需的最大数组长度
+     */
+    private final int maxFrameSize;
+
+    private final ForkJoinPool pool;
+
+    private final int threshold;
+
+    /**
+     * 使用默认函数注册表及公共ForkJoinPool
+     *
+     * @param formulas key:公式名称，value:表达式
+     * @throws IllegalArgumentException 表达式错误或循环引用
+     */
+    public FormulaSet(Map<String, String> formulas) {
+        this(formulas, FunctionRegistry.getDefault(), ForkJoinPool.commonPool(), DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * @param formulas  key:公式名称，value:表达式
+     * @param registry  函数注册表
+     * @param pool      计算使用的线程池
+     * @param threshold 每个任务计算的最多公式数，即不再拆分的公式数：同一层的公式数不超过该值时由调用线程计算整层
+     * @throws IllegalArgumentException 表达式错误或循环引用
+     */
+    public FormulaSet(Map<String, String> formulas, FunctionRegistry registry, ForkJoinPool pool, int threshold) {
+        if (formulas == null || registry == null || pool == null) {
+            throw new NullPointerException();
+        }
+        if (threshold <= 0) {
+            throw new IllegalArgumentException("threshold必须大于0：" + threshold);
+        }
+        this.pool = pool;
+        this.threshold = threshold;
+        int count = formulas.size();
+        this.formulaNames = new String[count];
+        this.formulas = new CompiledExpression[count];
+        Map<String, Integer> formulaIndexes = new LinkedHashMap<>();
+        int index = 0;
+        for (Map.Entry<String, String> entry : formulas.entrySet()) {
+            String name = placeholder(entry.getKey());
+            if (formulaIndexes.put(name, index) != null) {
+                throw new IllegalArgumentException("公式重复：" + name);
+            }
+            formulaNames[index] = name;
+            try {
+                this.formulas[index] = CompiledExpression.compile(entry.getValue(), registry);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("公式" + name + "：" + e.getMessage(), e);
+            }
+            index++;
+        }
+
+        //输入变量
+        Map<String, Integer> inputIndexes = new LinkedHashMap<>();
+        for (CompiledExpression formula : this.formulas) {
+            for (String parameter : formula.getParameterNames()) {
+                if (!formulaIndexes.containsKey(parameter) && !inputIndexes.containsKey(parameter)) {
+                    inputIndexes.put(parameter, inputIndexes.size());
+                }
+            }
+        }
+        this.inputNames = inputIndexes.keySet().toArray(new String[0]);
+
+        //变量下标及依赖
+        this.argumentSlots = new int[count][];
+        List<List<Integer>> dependents = new ArrayList<>();
+        int[] dependencyCounts = new int[count];
+        int maxFrameSize = 0;
+        for (int i = 0; i < count; i++) {
+            dependents.add(new ArrayList<>());
+        }
+        for (int i = 0; i < count; i++) {
+            String[] parameters = this.formulas[i].getParameterNames();
+            argumentSlots[i] = new int[parameters.length];
+            for (int j = 0; j < parameters.length; j++) {
+                Integer dependency = formulaIndexes.get(parameters[j]);
+                if (dependency == null) {
+                    argumentSlots[i][j] = inputIndexes.get(parameters[j]);
+                } else {
+                    argumentSlots[i][j] = inputNames.length + dependency;
+                    dependents.get(dependency).add(i);
+                    dependencyCounts[i]++;
+                }
+            }
+            maxFrameSize = Math.max(maxFrameSize, this.formulas[i].getFrameSize());
+        }
+        this.maxFrameSize = maxFrameSize;
+        this.levels = levels(dependents, dependencyCounts);
+    }
+
+    /**
+     * 拓扑排序并按层划分：公式的层数为其依赖的公式的最大层数加1
+     *
+     * @throws IllegalArgumentException 循环引用
+     */
+    private int[][] levels(List<List<Integer>> dependents, int[] dependencyCounts) {
+        int count = formulaNames.length;
+        int[] remaining = dependencyCounts.clone();
+        int[] formulaLevels = new int[count];
+        Deque<Integer> ready = new ArrayDeque<>();
+        for (int i = 0; i < count; i++) {
+            if (remaining[i] == 0) {
+                ready.add(i);
+            }
+        }
+        List<List<Integer>> levels = new ArrayList<>();
+        int sorted = 0;
+        while (!ready.isEmpty()) {
+            int formula = ready.poll();
+            sorted++;
+            if (levels.size() <= formulaLevels[formula]) {
+                levels.add(new ArrayList<>());
+            }
+            levels.get(formulaLevels[formula]).add(formula);
+            for (int dependent : dependents.get(formula)) {
+                formulaLevels[dependent] = Math.max(formulaLevels[dependent], formulaLevels[formula] + 1);
+                if (--remaining[dependent] == 0) {
+                    ready.add(dependent);
+                }
+            }
+        }
+        if (sorted < count) {
+            throw new IllegalArgumentException("公式循环引用：" + cycle(remaining));
+        }
+        int[][] result = new int[levels.size()][];
+        for (int i = 0; i < result.length; i++) {
+            List<Integer> level = levels.get(i);
+            result[i] = new int[level.size()];
+            for (int j = 0; j < result[i].length; j++) {
+                result[i][j] = level.get(j);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 从未能排序的公式出发，沿依赖找到一个环
+     *
+     * @param remaining 未满足的依赖个数，大于0的公式处于环上或依赖于环
+     * @return 如：{a} -> {b} -> {a}
+     */
+    private String cycle(int[] remaining) {
+        int start = 0;
+        while (remaining[start] == 0) {
+            start++;
+        }
+        //沿未满足的依赖前进，必然进入环
+        List<Integer> path = new ArrayList<>();
+        int[] visited = new int[formulaNames.length];
+        Arrays.fill(visited, -1);
+        int formula = start;
+        while (visited[formula] < 0) {
+            visited[formula] = path.size();
+            path.add(formula);
+            formula = unresolvedDependency(formula, remaining);
+        }
+        StringBuilder builder = new StringBuilder();
+        for (int i = visited[formula]; i < path.size(); i++) {
+            builder.append(formulaNames[path.get(i)]).append(" -> ");
+        }
+        return builder.append(formulaNames[formula]).toString();
+    }
+
+    private int unresolvedDependency(int formula, int[] remaining) {
+        for (int slot : argumentSlots[formula]) {
+            int dependency = slot - inputNames.length;
+            if (dependency >= 0 && remaining[dependency] > 0) {
+                return dependency;
+            }
+        }
+        throw new IllegalStateException("公式" + formulaNames[formula] + "没有未满足的依赖");
+    }
+
+    private static String placeholder(String name) {
+        if (name == null || name.isEmpty()) {
+            throw new IllegalArgumentException("公式名称不能为空");
+        }
+        return name.startsWith("{") ? name : "{" + name + "}";
+    }
+
+    /**
+     * 计算全部公式
+     *
+     * @param inputs 输入变量映射，key为占位符(如：{pam})；与公式同名的变量被忽略
+     * @return key:公式名称，value:计算结果，按定义顺序排列
+     * @throws IllegalArgumentException 缺少输入变量
+     */
+    public Map<String, Double> evaluate(Map<String, ?> inputs) {
+        double[] values = new double[inputNames.length];
+        for (int i = 0; i < inputNames.length; i++) {
+            Object value = inputs == null ? null : inputs.get(inputNames[i]);
+            if (value == null) {
+                throw new IllegalArgumentException("表达式错误：缺少变量" + inputNames[i]);
+            }
+            values[i] = Nodes.toDouble(value);
+        }
+        double[] results = evaluate(values);
+        Map<String, Double> map = new LinkedHashMap<>();
+        for (int i = 0; i < formulaNames.length; i++) {
+            map.put(formulaNames[i], results[i]);
+        }
+        return map;
+    }
+
+    /**
+     * 计算全部公式
+     *
+     * @param inputs 输入变量值，按{@link #getInputNames()}的下标排列
+     * @return 计算结果，按{@link #getFormulaNames()}的下标排列
+     */
+    public double[] evaluate(double[] inputs) {
+        if (inputs.length < inputNames.length) {
+            throw new IllegalArgumentException("表达式错误：需要" + inputNames.length + "个变量，传入" + inputs.length + "个");
+        }
+        double[] values = new double[inputNames.length + formulaNames.length];
+        System.arraycopy(inputs, 0, values, 0, inputNames.length);
+        double[] frame = new double[maxFrameSize];
+        for (int[] level : levels) {
+            if (level.length <= threshold) {
+                for (int formula : level) {
+                    evaluate(formula, values, frame);
+                }
+            } else {
+                pool.invoke(new LevelTask(level, 0, level.length, values));
+            }
+        }
+        return Arrays.copyOfRange(values, inputNames.length, values.length);
+    }
+
+    private void evaluate(int formula, double[] values, double[] frame) {
+        int[] slots = argumentSlots[formula];
+        for (int i = 0; i < slots.length; i++) {
+            frame[i] = values[slots[i]];
+        }
+        values[inputNames.length + formula] = formulas[formula].evaluateFrame(frame);
+    }
+
+    /**
+     * @return 公式名称，按定义顺序排列
+     */
+    public List<String> getFormulaNames() {
+        return Collections.unmodifiableList(Arrays.asList(formulaNames));
+    }
+
+    /**
+     * @return 输入变量的占位符，即不是公式名称的变量，按首次出现的顺序排列
+     */
+    public List<String> getInputNames() {
+        return Collections.unmodifiableList(Arrays.asList(inputNames));
+    }
+
+    /**
+     * @param name 公式名称
+     * @return 编译后的公式，不存在时返回null
+     */
+    public CompiledExpression getFormula(String name) {
+        String placeholder = placeholder(name);
+        for (int i = 0; i < formulaNames.length; i++) {
+            if (formulaNames[i].equals(placeholder)) {
+                return formulas[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return 依赖图的层数，即串行计算的步数
+     */
+    public int getLevelCount() {
+        return levels.length;
+    }
+
+    /**
+     * 同一层中的公式区间，超过{@code threshold}时对半拆分
+     */
+    private final class LevelTask extends RecursiveAction {
+        private final int[] level;
+        private final int from;
+        private final int to;
+        private final double[] values;
+
+        LevelTask(int[] level, int from, int to, double[] values) {
+            this.level = level;
+            this.from = from;
+            this.to = to;
+            this.values = values;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= threshold) {
+                double[] frame = new double[maxFrameSize];
+                for (int i = from; i < to; i++) {
+                    evaluate(level[i], values, frame);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new LevelTask(level, from, middle, values), new LevelTask(level, middle, to, values));
+        }
+    }
+}
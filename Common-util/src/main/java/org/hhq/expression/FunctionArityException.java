@@ -0,0 +1,13 @@
+package org.hhq.expression;
+
+/**
+ * 函数参数个数错误
+ * 编译表达式时函数的参数个数不符合{@link MathFunction}的要求时抛出；
+ * 原字符串改写方式的计算忽略多余的参数，{@link org.hhq.MathCalculateUtil#calculate(String, java.util.Map)}据此回退到改写方式
+ */
+public class FunctionArityException extends IllegalArgumentException {
+
+    public FunctionArityException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,128 @@
+package org.hhq.expression;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * 函数注册表，表达式编译时按名称查找函数并校验参数个数，求值时直接调用编译时绑定的函数，不再查找
+ * <p>
+ * 新建的注册表包含全部内置函数{@link Functions}；函数只能新增，不能替换或删除，
+ * 因此已编译(或已缓存)的表达式不受之后的注册影响
+ * <p>
+ * {@link #getDefault()}为{@link CompiledExpression#compile(String)}及{@link org.hhq.MathCalculateUtil}使用的注册表，
+ * 注册后所有表达式均可使用；需要隔离时新建注册表并通过{@link CompiledExpression#compile(String, FunctionRegistry)}编译
+ * <p>
+ * FunctionRegistry registry = FunctionRegistry.getDefault();
+ * registry.registerUnary("sqrt", Math::sqrt);
+ * registry.registerTernary("fma", (a, b, c) -> a * b + c);
+ * registry.registerVarargs("median", 1, -1, values -> ...);
+ * MathCalculateUtil.calculate("sqrt({a})+fma(1,2,3)", map);
+ * <p>
+ * 线程安全：可在计算的同时注册
+ */
+public final class FunctionRegistry {
+
+    private static final FunctionRegistry DEFAULT = new FunctionRegistry();
+
+    /**
+     * key:函数名称
+     */
+    private final ConcurrentMap<String, MathFunction> functions = new ConcurrentHashMap<>(Functions.all());
+
+    /**
+     * 新建包含全部内置函数的注册表
+     */
+    public FunctionRegistry() {
+    }
+
+    /**
+     * @return 默认注册表
+     */
+    public static FunctionRegistry getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * 注册函数
+     *
+     * @param function 函数
+     * @return 当前注册表
+     * @throws IllegalArgumentException 函数名称不合法或已存在
+     */
+    public FunctionRegistry register(MathFunction function) {
+        String name = function.getName();
+        if (!isValidName(name)) {
+            throw new IllegalArgumentException("函数名称错误：" + name + "，需要以字母开头，只包含字母和数字");
+        }
+        if (functions.putIfAbsent(name, function) != null) {
+            throw new IllegalArgumentException("函数已存在：" + name);
+        }
+        return this;
+    }
+
+    /**
+     * @see MathFunction#unary(String, DoubleUnaryOperator)
+     */
+    public FunctionRegistry registerUnary(String name, DoubleUnaryOperator operator) {
+        return register(MathFunction.unary(name, operator));
+    }
+
+    /**
+     * @see MathFunction#binary(String, DoubleBinaryOperator)
+     */
+    public FunctionRegistry registerBinary(String name, DoubleBinaryOperator operator) {
+        return register(MathFunction.binary(name, operator));
+    }
+
+    /**
+     * @see MathFunction#ternary(String, MathFunction.DoubleTernaryOperator)
+     */
+    public FunctionRegistry registerTernary(String name, MathFunction.DoubleTernaryOperator operator) {
+        return register(MathFunction.ternary(name, operator));
+    }
+
+    /**
+     * @see MathFunction#reducing(String, DoubleBinaryOperator)
+     */
+    public FunctionRegistry registerReducing(String name, DoubleBinaryOperator operator) {
+        return register(MathFunction.reducing(name, operator));
+    }
+
+    /**
+     * @see MathFunction#varargs(String, int, int, MathFunction.DoubleVarargsOperator)
+     */
+    public FunctionRegistry registerVarargs(String name, int minArity, int maxArity, MathFunction.DoubleVarargsOperator operator) {
+        return register(MathFunction.varargs(name, minArity, maxArity, operator));
+    }
+
+    /**
+     * @param name 函数名称
+     * @return 对应的函数，不存在时返回null
+     */
+    public MathFunction get(String name) {
+        return functions.get(name);
+    }
+
+    /**
+     * @return 全部函数名称
+     */
+    public Set<String> names() {
+        return Collections.unmodifiableSet(functions.keySet());
+    }
+
+    private static boolean isValidName(String name) {
+        if (name == null || name.isEmpty() || !Character.isLetter(name.charAt(0))) {
+            return false;
+        }
+        for (int i = 1; i < name.length(); i++) {
+            if (!Character.isLetterOrDigit(name.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,86 @@
+package org.hhq.expression;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 内置函数表，类加载时一次性建立
+ * key:函数名称，value:对应于Math中的方法或内置实现
+ * <p>
+ * max、min、abs、pow、floor、tan 对应于Math中的方法
+ * sum(x, ...) 求和，avg(x, ...) 平均值，round(x, n) 保留n位小数(四舍五入)，clamp(x, min, max) 限定在[min, max]之间
+ * <p>
+ * 自定义函数见{@link FunctionRegistry}
+ */
+public final class Functions {
+
+    private static final Map<String, MathFunction> functions;
+
+    static {
+        Map<String, MathFunction> map = new LinkedHashMap<>();
+        register(map, MathFunction.reducing("max", Math::max));
+        register(map, MathFunction.reducing("min", Math::min));
+        register(map, MathFunction.unary("abs", Math::abs));
+        register(map, MathFunction.binary("pow", Math::pow));
+        register(map, MathFunction.unary("floor", Math::floor));
+        register(map, MathFunction.unary("tan", Math::tan));
+        register(map, MathFunction.varargs("sum", 1, -1, Functions::sum));
+        register(map, MathFunction.varargs("avg", 1, -1, values -> sum(values) / values.length));
+        register(map, MathFunction.binary("round", Functions::round));
+        register(map, MathFunction.ternary("clamp", (value, min, max) -> Math.min(Math.max(value, min), max)));
+        functions = Collections.unmodifiableMap(map);
+    }
+
+    private Functions() {
+    }
+
+    private static void register(Map<String, MathFunction> map, MathFunction function) {
+        map.put(function.getName(), function);
+    }
+
+    private static double sum(double[] values) {
+        double sum = 0;
+        for (double value : values) {
+            sum += value;
+        }
+        return sum;
+    }
+
+    /**
+     * @param value 数值
+     * @param scale 保留的小数位数，负数时对整数位取整
+     * @return 四舍五入后的结果
+     */
+    private static double round(double value, double scale) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return value;
+        }
+        return BigDecimal.valueOf(value).setScale((int) scale, RoundingMode.HALF_UP).doubleValue();
+    }
+
+    /**
+     * @param name 函数名称
+     * @return 对应的内置函数，不存在时返回null
+     */
+    public static MathFunction get(String name) {
+        return functions.get(name);
+    }
+
+    /**
+     * @return 全部内置函数名称
+     */
+    public static Set<String> names() {
+        return functions.keySet();
+    }
+
+    /**
+     * @return 全部内置函数
+     */
+    static Map<String, MathFunction> all() {
+        return functions;
+    }
+}
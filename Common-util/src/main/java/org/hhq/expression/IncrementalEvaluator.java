@@ -0,0 +1,356 @@
+package org.hhq.expression;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 增量计算：保存每个运算(子表达式)的结果，变量改变时只重新计算依赖该变量的运算
+ * <p>
+ * 语法树按后序展开为运算单元，每个单元记录依赖它的父单元；{@link #update(String, double)}从变量出发，
+ * 按拓扑顺序只重算受影响的单元直到根，单元结果不变时不再向上传播，因此只改变一个变量时代价为O(深度)而不是O(节点数)
+ * <p>
+ * IncrementalEvaluator evaluator = new IncrementalEvaluator(MathCalculateUtil.compile(expression), map);
+ * evaluator.getValue();
+ * evaluator.update("{price}", 10.5);
+ * <p>
+ * 计算基于double；实例保存计算状态，不是线程安全的，每个数据流使用独立的实例
+ */
+public final class IncrementalEvaluator {
+
+    private final CompiledExpression expression;
+
+    /**
+     * 计算状态：变量值，公共子表达式的结果，其余运算单元的结果
+     */
+    private final double[] frame;
+
+    /**
+     * 运算单元，按拓扑顺序排列(子单元在前)
+     */
+    private final Node[] cells;
+
+    /**
+     * 运算单元的结果在{@code frame}中的下标
+     */
+    private final int[] cellSlots;
+
+    /**
+     * 依赖运算单元的父单元
+     */
+    private final int[][] cellParents;
+
+    /**
+     * 依赖变量的运算单元，按变量下标排列
+     */
+    private final int[][] parameterParents;
+
+    /**
+     * 根节点，子节点已替换为运算单元的结果
+     */
+    private final Node root;
+
+    /**
+     * 待重算的单元，按拓扑顺序出队的小顶堆
+     */
+    private final int[] heap;
+
+    private final boolean[] queued;
+
+    private int heapSize;
+
+    private int lastUpdateCount;
+
+    /**
+     * @param expression 编译后的表达式
+     * @param values     初始变量值，按{@link CompiledExpression#getParameterNames()}的下标排列
+     */
+    public IncrementalEvaluator(CompiledExpression expression, double[] values) {
+        if (values.length < expression.getParameterCount()) {
+            throw new IllegalArgumentException("表达式错误：需要" + expression.getParameterCount() + "个变量，传入" + values.length + "个");
+        }
+        this.expression = expression;
+        Builder builder = new Builder(expression);
+        this.root = builder.root;
+        this.cells = builder.cells.toArray(new Node[0]);
+        this.cellSlots = toArray(builder.cellSlots);
+        this.cellParents = toArrays(builder.cellParents);
+        this.parameterParents = toArrays(builder.parameterParents);
+        this.frame = new double[builder.frameSize];
+        System.arraycopy(values, 0, frame, 0, expression.getParameterCount());
+        this.heap = new int[cells.length];
+        this.queued = new boolean[cells.length];
+        for (int i = 0; i < cells.length; i++) {
+            frame[cellSlots[i]] = cells[i].evaluateDouble(frame);
+        }
+        this.lastUpdateCount = cells.length;
+    }
+
+    /**
+     * @param expression 编译后的表达式
+     * @param params     初始变量映射，key为占位符(如：{pam})
+     * @throws IllegalArgumentException 缺少变量
+     */
+    public IncrementalEvaluator(CompiledExpression expression, Map<String, ?> params) {
+        this(expression, values(expression, params));
+    }
+
+    private static double[] values(CompiledExpression expression, Map<String, ?> params) {
+        String[] names = expression.getParameterNames();
+        double[] values = new double[names.length];
+        for (int i = 0; i < names.length; i++) {
+            Object value = params == null ? null : params.get(names[i]);
+            if (value == null) {
+                throw new IllegalArgumentException("表达式错误：缺少变量" + names[i]);
+            }
+            values[i] = Nodes.toDouble(value);
+        }
+        return values;
+    }
+
+    /**
+     * @return 当前计算结果
+     */
+    public double getValue() {
+        return root.evaluateDouble(frame);
+    }
+
+    /**
+     * 改变一个变量，只重算依赖该变量的运算
+     *
+     * @param name  占位符(如：{pam})，也可以省略{}
+     * @param value 新的变量值
+     * @return 新的计算结果
+     * @throws IllegalArgumentException 表达式中不含该变量
+     */
+    public double update(String name, double value) {
+        return update(slotOf(name), value);
+    }
+
+    /**
+     * 改变一个变量，只重算依赖该变量的运算
+     *
+     * @param slot  变量下标
+     * @param value 新的变量值
+     * @return 新的计算结果
+     */
+    public double update(int slot, double value) {
+        if (slot < 0 || slot >= parameterParents.length) {
+            throw new IllegalArgumentException("表达式错误：变量下标越界：" + slot);
+        }
+        lastUpdateCount = 0;
+        if (Double.compare(frame[slot], value) != 0) {
+            frame[slot] = value;
+            enqueue(parameterParents[slot]);
+            propagate();
+        }
+        return getValue();
+    }
+
+    /**
+     * 同时改变多个变量，每个受影响的运算只重算一次
+     *
+     * @param params 变量映射，key为占位符(如：{pam})
+     * @return 新的计算结果
+     */
+    public double update(Map<String, ?> params) {
+        lastUpdateCount = 0;
+        for (Map.Entry<String, ?> entry : params.entrySet()) {
+            int slot = slotOf(entry.getKey());
+            double value = Nodes.toDouble(entry.getValue());
+            if (Double.compare(frame[slot], value) != 0) {
+                frame[slot] = value;
+                enqueue(parameterParents[slot]);
+            }
+        }
+        propagate();
+        return getValue();
+    }
+
+    /**
+     * @param name 占位符(如：{pam})，也可以省略{}
+     * @return 当前变量值
+     */
+    public double get(String name) {
+        return frame[slotOf(name)];
+    }
+
+    /**
+     * @return 最近一次更新重算的运算个数，用于监控
+     */
+    public int getLastUpdateCount() {
+        return lastUpdateCount;
+    }
+
+    /**
+     * @return 运算个数，即全部重算的代价
+     */
+    public int getCellCount() {
+        return cells.length;
+    }
+
+    public CompiledExpression getExpression() {
+        return expression;
+    }
+
+    private int slotOf(String name) {
+        int slot = expression.indexOf(name);
+        if (slot < 0 && !name.startsWith("{")) {
+            slot = expression.indexOf("{" + name + "}");
+        }
+        if (slot < 0) {
+            throw new IllegalArgumentException("表达式错误：表达式中不含变量" + name + "：" + expression);
+        }
+        return slot;
+    }
+
+    /**
+     * 按拓扑顺序重算，结果不变的单元不再向上传播
+     */
+    private void propagate() {
+        while (heapSize > 0) {
+            int cell = poll();
+            queued[cell] = false;
+            lastUpdateCount++;
+            double value = cells[cell].evaluateDouble(frame);
+            if (Double.compare(frame[cellSlots[cell]], value) != 0) {
+                frame[cellSlots[cell]] = value;
+                enqueue(cellParents[cell]);
+            }
+        }
+    }
+
+    private void enqueue(int[] parents) {
+        for (int parent : parents) {
+            if (!queued[parent]) {
+                queued[parent] = true;
+                int i = heapSize++;
+                while (i > 0 && heap[(i - 1) >>> 1] > parent) {
+                    heap[i] = heap[(i - 1) >>> 1];
+                    i = (i - 1) >>> 1;
+                }
+                heap[i] = parent;
+            }
+        }
+    }
+
+    private int poll() {
+        int result = heap[0];
+        int last = heap[--heapSize];
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            if (child + 1 < heapSize && heap[child + 1] < heap[child]) {
+                child++;
+            }
+            if (heap[child] >= last) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = last;
+        return result;
+    }
+
+    private static int[] toArray(List<Integer> list) {
+        int[] array = new int[list.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = list.get(i);
+        }
+        return array;
+    }
+
+    private static int[][] toArrays(List<List<Integer>> lists) {
+        int[][] arrays = new int[lists.size()][];
+        for (int i = 0; i < arrays.length; i++) {
+            arrays[i] = toArray(lists.get(i));
+        }
+        return arrays;
+    }
+
+    /**
+     * 将语法树展开为运算单元
+     * 公共子表达式的结果仍存放在原下标，其余运算的结果依次存放在公共子表达式之后
+     */
+    private static final class Builder {
+        private final List<Node> cells = new ArrayList<>();
+        private final List<Integer> cellSlots = new ArrayList<>();
+        private final List<List<Integer>> cellParents = new ArrayList<>();
+        private final List<List<Integer>> parameterParents = new ArrayList<>();
+
+        /**
+         * key:结果下标，value:运算单元
+         */
+        private final Map<Integer, Integer> slotCells = new HashMap<>();
+
+        private int frameSize;
+
+        private final Node root;
+
+        Builder(CompiledExpression expression) {
+            Node[] temps = expression.temps();
+            int parameterCount = expression.getParameterCount();
+            this.frameSize = expression.getFrameSize();
+            for (int i = 0; i < parameterCount; i++) {
+                parameterParents.add(new ArrayList<>());
+            }
+            for (int i = 0; i < temps.length; i++) {
+                flatten(temps[i], parameterCount + i);
+            }
+            this.root = flatten(expression.root(), -1);
+        }
+
+        /**
+         * @param node 节点
+         * @param slot 结果存放的下标，-1时分配新的下标
+         * @return 替换后的节点：常量、变量保持不变，运算替换为读取其结果的{@link Nodes.TempNode}
+         */
+        private Node flatten(Node node, int slot) {
+            if (node instanceof Nodes.NumberNode || node instanceof Nodes.ParamNode || node instanceof Nodes.TempNode) {
+                return node;
+            }
+            Node cell;
+            Node[] children;
+            if (node instanceof Nodes.NegateNode) {
+                children = new Node[]{flatten(((Nodes.NegateNode) node).operand, -1)};
+                cell = new Nodes.NegateNode(children[0]);
+            } else if (node instanceof Nodes.BinaryNode) {
+                Nodes.BinaryNode binary = (Nodes.BinaryNode) node;
+                children = new Node[]{flatten(binary.left, -1), flatten(binary.right, -1)};
+                cell = new Nodes.BinaryNode(binary.operator, children[0], children[1]);
+            } else if (node instanceof Nodes.FunctionNode) {
+                Nodes.FunctionNode function = (Nodes.FunctionNode) node;
+                children = new Node[function.arguments.length];
+                for (int i = 0; i < children.length; i++) {
+                    children[i] = flatten(function.arguments[i], -1);
+                }
+                cell = new Nodes.FunctionNode(function.function, children);
+            } else {
+                throw new IllegalStateException("不支持增量计算的节点：" + node.getClass().getName());
+            }
+            int index = cells.size();
+            int cellSlot = slot < 0 ? frameSize++ : slot;
+            cells.add(cell);
+            cellSlots.add(cellSlot);
+            cellParents.add(new ArrayList<>());
+            slotCells.put(cellSlot, index);
+            for (Node child : children) {
+                List<Integer> parents = null;
+                if (child instanceof Nodes.ParamNode) {
+                    parents = parameterParents.get(((Nodes.ParamNode) child).slot);
+                } else if (child instanceof Nodes.TempNode) {
+                    parents = cellParents.get(slotCells.get(((Nodes.TempNode) child).slot));
+                }
+                if (parents != null && !parents.contains(index)) {
+                    parents.add(index);
+                }
+            }
+            return new Nodes.TempNode(cellSlot);
+        }
+    }
+}
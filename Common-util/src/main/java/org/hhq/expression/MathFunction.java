@@ -0,0 +1,227 @@
+package org.hhq.expression;
+
+import java.util.Arrays;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * 表达式函数
+ * 单参数函数对应于{@link DoubleUnaryOperator}，双参数函数对应于{@link DoubleBinaryOperator}，
+ * 三参数函数对应于{@link DoubleTernaryOperator}，
+ * 不限参数个数的函数(如max、min)使用{@link DoubleBinaryOperator}从左到右依次归并，
+ * 需要全部参数的函数(如avg)对应于{@link DoubleVarargsOperator}
+ * <p>
+ * 函数应为纯函数：相同参数总是返回相同结果，编译时参数均为常量的函数会被直接算出结果
+ *
+ * @see FunctionRegistry
+ */
+public final class MathFunction {
+
+    /**
+     * 三参数运算
+     */
+    @FunctionalInterface
+    public interface DoubleTernaryOperator {
+        double applyAsDouble(double first, double second, double third);
+    }
+
+    /**
+     * 可变参数运算
+     */
+    @FunctionalInterface
+    public interface DoubleVarargsOperator {
+        /**
+         * @param values 参数，数组长度即参数个数，不要保留该数组
+         * @return 计算结果
+         */
+        double applyAsDouble(double[] values);
+    }
+
+    /**
+     * 函数类型，决定求值及生成字节码的方式
+     */
+    enum Kind {
+        UNARY, BINARY, TERNARY, REDUCING, VARARGS
+    }
+
+    /**
+     * 函数名称
+     */
+    private final String name;
+
+    /**
+     * 最少参数个数
+     */
+    private final int minArity;
+
+    /**
+     * 最多参数个数，-1 无限制
+     */
+    private final int maxArity;
+
+    private final Kind kind;
+
+    private final DoubleUnaryOperator unary;
+
+    private final DoubleBinaryOperator binary;
+
+    private final DoubleTernaryOperator ternary;
+
+    private final DoubleVarargsOperator varargs;
+
+    private MathFunction(String name, int minArity, int maxArity, Kind kind, DoubleUnaryOperator unary,
+                         DoubleBinaryOperator binary, DoubleTernaryOperator ternary, DoubleVarargsOperator varargs) {
+        this.name = name;
+        this.minArity = minArity;
+        this.maxArity = maxArity;
+        this.kind = kind;
+        this.unary = unary;
+        this.binary = binary;
+        this.ternary = ternary;
+        this.varargs = varargs;
+    }
+
+    /**
+     * @param name     函数名称
+     * @param operator 单参数运算
+     * @return 单参数函数
+     */
+    public static MathFunction unary(String name, DoubleUnaryOperator operator) {
+        return new MathFunction(name, 1, 1, Kind.UNARY, requireNonNull(operator), null, null, null);
+    }
+
+    /**
+     * @param name     函数名称
+     * @param operator 双参数运算
+     * @return 双参数函数
+     */
+    public static MathFunction binary(String name, DoubleBinaryOperator operator) {
+        return new MathFunction(name, 2, 2, Kind.BINARY, null, requireNonNull(operator), null, null);
+    }
+
+    /**
+     * @param name     函数名称
+     * @param operator 三参数运算
+     * @return 三参数函数
+     */
+    public static MathFunction ternary(String name, DoubleTernaryOperator operator) {
+        return new MathFunction(name, 3, 3, Kind.TERNARY, null, null, requireNonNull(operator), null);
+    }
+
+    /**
+     * @param name     函数名称
+     * @param operator 归并运算
+     * @return 不少于两个参数的归并函数
+     */
+    public static MathFunction reducing(String name, DoubleBinaryOperator operator) {
+        return new MathFunction(name, 2, -1, Kind.REDUCING, null, requireNonNull(operator), null, null);
+    }
+
+    /**
+     * @param name     函数名称
+     * @param minArity 最少参数个数，不小于1
+     * @param maxArity 最多参数个数，-1 无限制
+     * @param operator 可变参数运算
+     * @return 可变参数函数
+     */
+    public static MathFunction varargs(String name, int minArity, int maxArity, DoubleVarargsOperator operator) {
+        if (minArity < 1 || (maxArity >= 0 && maxArity < minArity)) {
+            throw new IllegalArgumentException("函数" + name + "参数个数错误：" + minArity + "~" + maxArity);
+        }
+        return new MathFunction(name, minArity, maxArity, Kind.VARARGS, null, null, null, requireNonNull(operator));
+    }
+
+    private static <T> T requireNonNull(T operator) {
+        if (operator == null) {
+            throw new IllegalArgumentException("函数运算不能为空");
+        }
+        return operator;
+    }
+
+    /**
+     * 单参数计算
+     */
+    public double applyAsDouble(double value) {
+        return unary.applyAsDouble(value);
+    }
+
+    /**
+     * 双参数计算，归并函数的单步归并
+     */
+    public double applyAsDouble(double left, double right) {
+        return binary.applyAsDouble(left, right);
+    }
+
+    /**
+     * 三参数计算
+     */
+    public double applyAsDouble(double first, double second, double third) {
+        return ternary.applyAsDouble(first, second, third);
+    }
+
+    /**
+     * @param values 参数
+     * @param length 使用的参数个数
+     * @return 计算结果
+     */
+    public double applyAsDouble(double[] values, int length) {
+        switch (kind) {
+            case UNARY:
+                return unary.applyAsDouble(values[0]);
+            case TERNARY:
+                return ternary.applyAsDouble(values[0], values[1], values[2]);
+            case VARARGS:
+                return varargs.applyAsDouble(length == values.length ? values : Arrays.copyOf(values, length));
+            default:
+                double result = values[0];
+                for (int i = 1; i < length; i++) {
+                    result = binary.applyAsDouble(result, values[i]);
+                }
+                return result;
+        }
+    }
+
+    Kind kind() {
+        return kind;
+    }
+
+    public boolean isUnary() {
+        return kind == Kind.UNARY;
+    }
+
+    public boolean isReducing() {
+        return kind == Kind.REDUCING;
+    }
+
+    /**
+     * @return 是否不限参数个数
+     */
+    public boolean isVariadic() {
+        return maxArity < 0;
+    }
+
+    /**
+     * @param arity 参数个数
+     * @return 参数个数是否合法
+     */
+    public boolean acceptsArity(int arity) {
+        return arity >= minArity && (maxArity < 0 || arity <= maxArity);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getMinArity() {
+        return minArity;
+    }
+
+    public int getMaxArity() {
+        return maxArity;
+    }
+
+    @Override
+    public String toString() {
+        return name + "(" + minArity + (maxArity == minArity ? "" : "~" + (maxArity < 0 ? "" : String.valueOf(maxArity))) + ")";
+    }
+}
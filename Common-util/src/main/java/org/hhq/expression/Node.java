@@ -0,0 +1,31 @@
+package org.hhq.expression;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+
+/**
+ * 表达式语法树节点
+ * 由{@link ExpressionParser}一次性构建，构建后不可变，可被多线程共享
+ * 变量在编译时已绑定到下标，求值时直接按下标读取
+ *
+ * @see CompiledExpression
+ */
+abstract class Node {
+
+    /**
+     * double求值，不产生中间对象
+     *
+     * @param values 变量值，按变量下标排列
+     * @return 计算结果
+     */
+    abstract double evaluateDouble(double[] values);
+
+    /**
+     * BigDecimal求值
+     *
+     * @param values      变量值，按变量下标排列
+     * @param mathContext 运算精度
+     * @return 计算结果
+     */
+    abstract BigDecimal evaluateDecimal(BigDecimal[] values, MathContext mathContext);
+}
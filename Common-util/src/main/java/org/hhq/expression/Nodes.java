@@ -0,0 +1,222 @@
+package org.hhq.expression;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.function.DoubleBinaryOperator;
+
+/**
+ * 语法树节点的具体实现
+ * 常量{@code NumberNode}，变量{@code ParamNode}，取负{@code NegateNode}，双目运算{@code BinaryNode}，函数{@code FunctionNode}，
+ * 公共子表达式的结果{@code TempNode}
+ * 运算符和函数在解析时已从{@link Operators}、{@link Functions}中取得，求值时不再查找
+ */
+final class Nodes {
+
+    private Nodes() {
+    }
+
+    /**
+     * 常量
+     * 表达式中的字面量按原值参与计算；常量折叠的结果为精确值，求值时按精度取舍({@code rounded})
+     */
+    static final class NumberNode extends Node {
+        final BigDecimal value;
+        final double doubleValue;
+        final boolean rounded;
+
+        NumberNode(BigDecimal value) {
+            this(value, value.doubleValue(), false);
+        }
+
+        NumberNode(BigDecimal value, double doubleValue, boolean rounded) {
+            this.value = value;
+            this.doubleValue = doubleValue;
+            this.rounded = rounded;
+        }
+
+        @Override
+        double evaluateDouble(double[] values) {
+            return doubleValue;
+        }
+
+        @Override
+        BigDecimal evaluateDecimal(BigDecimal[] values, MathContext mathContext) {
+            return rounded ? value.round(mathContext) : value;
+        }
+    }
+
+    /**
+     * 变量，对应于表达式中的{name}，编译时绑定到下标{@code slot}
+     */
+    static final class ParamNode extends Node {
+        final String placeholder;
+        final int slot;
+
+        ParamNode(String placeholder, int slot) {
+            this.placeholder = placeholder;
+            this.slot = slot;
+        }
+
+        @Override
+        double evaluateDouble(double[] values) {
+            return values[slot];
+        }
+
+        @Override
+        BigDecimal evaluateDecimal(BigDecimal[] values, MathContext mathContext) {
+            return values[slot];
+        }
+    }
+
+    /**
+     * 公共子表达式的结果，由{@link CompiledExpression}在计算语法树前算出并存放在下标{@code slot}
+     */
+    static final class TempNode extends Node {
+        final int slot;
+
+        TempNode(int slot) {
+            this.slot = slot;
+        }
+
+        @Override
+        double evaluateDouble(double[] values) {
+            return values[slot];
+        }
+
+        @Override
+        BigDecimal evaluateDecimal(BigDecimal[] values, MathContext mathContext) {
+            return values[slot];
+        }
+    }
+
+    /**
+     * 单目取负
+     */
+    static final class NegateNode extends Node {
+        final Node operand;
+
+        NegateNode(Node operand) {
+            this.operand = operand;
+        }
+
+        @Override
+        double evaluateDouble(double[] values) {
+            return -operand.evaluateDouble(values);
+        }
+
+        @Override
+        BigDecimal evaluateDecimal(BigDecimal[] values, MathContext mathContext) {
+            return operand.evaluateDecimal(values, mathContext).negate();
+        }
+    }
+
+    /**
+     * 双目运算：+ - * / %
+     */
+    static final class BinaryNode extends Node {
+        final char operator;
+        final DoubleBinaryOperator doubleOperator;
+        final Operators.DecimalOperator decimalOperator;
+        final Node left;
+        final Node right;
+
+        BinaryNode(char operator, Node left, Node right) {
+            this.operator = operator;
+            this.doubleOperator = Operators.doubleOperator(operator);
+            this.decimalOperator = Operators.decimalOperator(operator);
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        double evaluateDouble(double[] values) {
+            return doubleOperator.applyAsDouble(left.evaluateDouble(values), right.evaluateDouble(values));
+        }
+
+        @Override
+        BigDecimal evaluateDecimal(BigDecimal[] values, MathContext mathContext) {
+            return decimalOperator.apply(left.evaluateDecimal(values, mathContext), right.evaluateDecimal(values, mathContext), mathContext);
+        }
+    }
+
+    /**
+     * 函数：max、min、abs、pow、floor、tan
+     * 函数基于double计算，DECIMAL模式下按指定精度转换结果
+     */
+    static final class FunctionNode extends Node {
+        final MathFunction function;
+        final Node[] arguments;
+
+        FunctionNode(MathFunction function, Node[] arguments) {
+            this.function = function;
+            this.arguments = arguments;
+        }
+
+        @Override
+        double evaluateDouble(double[] values) {
+            switch (function.kind()) {
+                case UNARY:
+                    return function.applyAsDouble(arguments[0].evaluateDouble(values));
+                case TERNARY:
+                    return function.applyAsDouble(arguments[0].evaluateDouble(values),
+                            arguments[1].evaluateDouble(values), arguments[2].evaluateDouble(values));
+                case VARARGS:
+                    double[] array = new double[arguments.length];
+                    for (int i = 0; i < array.length; i++) {
+                        array[i] = arguments[i].evaluateDouble(values);
+                    }
+                    return function.applyAsDouble(array, array.length);
+                default:
+                    double result = arguments[0].evaluateDouble(values);
+                    for (int i = 1; i < arguments.length; i++) {
+                        result = function.applyAsDouble(result, arguments[i].evaluateDouble(values));
+                    }
+                    return result;
+            }
+        }
+
+        @Override
+        BigDecimal evaluateDecimal(BigDecimal[] values, MathContext mathContext) {
+            double[] array = new double[arguments.length];
+            for (int i = 0; i < array.length; i++) {
+                array[i] = arguments[i].evaluateDecimal(values, mathContext).doubleValue();
+            }
+            double result = function.applyAsDouble(array, array.length);
+            if (!Double.isFinite(result)) {
+                //与BigDecimal除以0一致，以ArithmeticException报告无法表示的结果
+                throw new ArithmeticException("函数结果不是有限数：" + result);
+            }
+            return new BigDecimal(result, mathContext);
+        }
+    }
+
+    /**
+     * 变量值转换
+     *
+     * @param value 变量值
+     * @return double
+     */
+    static double toDouble(Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+        return Double.parseDouble(value.toString().trim());
+    }
+
+    /**
+     * 变量值转换
+     *
+     * @param value 变量值
+     * @return BigDecimal
+     */
+    static BigDecimal toBigDecimal(Object value) {
+        if (value instanceof BigDecimal) {
+            return (BigDecimal) value;
+        } else if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            return BigDecimal.valueOf(((Number) value).longValue());
+        } else if (value instanceof Number) {
+            return BigDecimal.valueOf(((Number) value).doubleValue());
+        }
+        return new BigDecimal(value.toString().trim());
+    }
+}
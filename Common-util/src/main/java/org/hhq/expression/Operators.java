@@ -0,0 +1,99 @@
+package org.hhq.expression;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BinaryOperator;
+import java.util.function.DoubleBinaryOperator;
+
+/**
+ * 双目运算符表，类加载时一次性建立
+ * key:运算符号，value:对应于BigDecimal的运算，以及对应于double的运算
+ */
+public final class Operators {
+
+    /**
+     * 除法等无法精确表示的结果按该精度取舍
+     */
+    public static final MathContext MATH_CONTEXT = MathContext.DECIMAL64;
+
+    /**
+     * 指定精度的BigDecimal运算
+     */
+    @FunctionalInterface
+    public interface DecimalOperator {
+        BigDecimal apply(BigDecimal left, BigDecimal right, MathContext mathContext);
+    }
+
+    private static final Map<String, BinaryOperator<BigDecimal>> decimalOperators;
+
+    private static final Map<String, DecimalOperator> contextOperators;
+
+    private static final Map<String, DoubleBinaryOperator> doubleOperators;
+
+    static {
+        Map<String, BinaryOperator<BigDecimal>> map = new HashMap<>();
+        map.put("*", BigDecimal::multiply);
+        map.put("/", (left, right) -> left.divide(right, MATH_CONTEXT));
+        map.put("%", BigDecimal::remainder);
+        map.put("+", BigDecimal::add);
+        map.put("-", BigDecimal::subtract);
+        decimalOperators = Collections.unmodifiableMap(map);
+    }
+
+    static {
+        Map<String, DecimalOperator> map = new HashMap<>();
+        map.put("*", BigDecimal::multiply);
+        map.put("/", BigDecimal::divide);
+        map.put("%", BigDecimal::remainder);
+        map.put("+", BigDecimal::add);
+        map.put("-", BigDecimal::subtract);
+        contextOperators = Collections.unmodifiableMap(map);
+    }
+
+    static {
+        Map<String, DoubleBinaryOperator> map = new HashMap<>();
+        map.put("*", (left, right) -> left * right);
+        map.put("/", (left, right) -> left / right);
+        map.put("%", (left, right) -> left % right);
+        map.put("+", (left, right) -> left + right);
+        map.put("-", (left, right) -> left - right);
+        doubleOperators = Collections.unmodifiableMap(map);
+    }
+
+    private Operators() {
+    }
+
+    /**
+     * @param symbol 运算符号
+     * @return 对应的运算，不存在时返回null
+     */
+    public static BinaryOperator<BigDecimal> decimal(String symbol) {
+        return decimalOperators.get(symbol);
+    }
+
+    /**
+     * @param symbol 运算符号
+     * @return 对应的指定精度运算，不存在时返回null
+     */
+    public static DecimalOperator decimalOperator(char symbol) {
+        return contextOperators.get(String.valueOf(symbol));
+    }
+
+    /**
+     * @param symbol 运算符号
+     * @return 对应的double运算，不存在时返回null
+     */
+    public static DoubleBinaryOperator doubleOperator(char symbol) {
+        return doubleOperators.get(String.valueOf(symbol));
+    }
+
+    /**
+     * @return 全部运算符号
+     */
+    public static Iterable<String> symbols() {
+        return decimalOperators.keySet();
+    }
+}
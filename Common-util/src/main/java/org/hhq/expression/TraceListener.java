@@ -0,0 +1,111 @@
+package org.hhq.expression;
+
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * 计算过程跟踪
+ * 通过{@link org.hhq.MathCalculateUtil#setTraceListener(TraceListener)}注册，默认不注册，即不跟踪；
+ * 不跟踪时计算过程不拼接任何诊断字符串，也不产生任何诊断对象
+ * <p>
+ * 回调在计算线程中同步执行，多线程并发计算时实现类需要自行保证线程安全；方法默认不做任何处理，按需实现
+ *
+ * @see #logging(Logger)
+ */
+public interface TraceListener {
+
+    /**
+     * 预编译表达式计算完成
+     *
+     * @param expression 表达式
+     * @param params     变量映射
+     * @param result     计算结果
+     */
+    default void onCalculate(String expression, Map<String, ?> params, Number result) {
+    }
+
+    /**
+     * 字符串改写：变量替换
+     *
+     * @param placeholder 占位符(如：{pam})
+     * @param value       变量值
+     */
+    default void onReplace(String placeholder, Object value) {
+    }
+
+    /**
+     * 字符串改写：一个模块中的运算符计算完成
+     *
+     * @param level  模块层级，从1开始
+     * @param module 模块表达式，不含括号
+     * @param result 子模块的计算结果，‘,’分隔
+     */
+    default void onModule(int level, String module, String result) {
+    }
+
+    /**
+     * 字符串改写：模块对应的函数计算完成
+     *
+     * @param level     模块层级
+     * @param function  函数名
+     * @param arguments 参数，‘,’分隔
+     * @param result    计算结果
+     */
+    default void onFunction(int level, String function, String arguments, String result) {
+    }
+
+    /**
+     * 字符串改写：一层模块计算完成
+     *
+     * @param level      模块层级
+     * @param expression 计算后的表达式
+     */
+    default void onRewrite(int level, String expression) {
+    }
+
+    /**
+     * 以info级别记录到日志中，与原先的日志内容一致
+     *
+     * @param logger 日志
+     * @return 跟踪监听
+     */
+    static TraceListener logging(final Logger logger) {
+        return new TraceListener() {
+            @Override
+            public void onCalculate(String expression, Map<String, ?> params, Number result) {
+                if (logger.isLoggable(Level.INFO)) {
+                    logger.info("calculate:表达式：" + expression + "；变量：" + params + "；计算结果：" + result);
+                }
+            }
+
+            @Override
+            public void onReplace(String placeholder, Object value) {
+                if (logger.isLoggable(Level.INFO)) {
+                    logger.info("replaceParamsValues:当前变量：" + placeholder + ";变量值：" + value);
+                }
+            }
+
+            @Override
+            public void onModule(int level, String module, String result) {
+                if (logger.isLoggable(Level.INFO)) {
+                    logger.info("splitModules:第" + level + "层，表达式:" + module + "，子表达式的计算结果：" + result);
+                }
+            }
+
+            @Override
+            public void onFunction(int level, String function, String arguments, String result) {
+                if (logger.isLoggable(Level.INFO)) {
+                    logger.info("perfectCalculate:第" + level + "层，操作:" + function + ";操作的表达式:" + arguments + ";操作结果：" + result);
+                }
+            }
+
+            @Override
+            public void onRewrite(int level, String expression) {
+                if (logger.isLoggable(Level.INFO)) {
+                    logger.info("splitModules:第" + level + "层，最新原表达式:" + expression);
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,257 @@
+package org.hhq;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.hhq.expression.CompiledExpression;
+import org.hhq.expression.FunctionArityException;
+import org.hhq.expression.TraceListener;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Unit test for {@link MathCalculateUtil}.
+ */
+public class MathCalculateUtilTest
+{
+    private static final int THREADS = 16;
+
+    private static final int EXPRESSIONS = 4000;
+
+    @BeforeClass
+    public static void quietLogging()
+    {
+        Logger.getLogger(MathCalculateUtil.class.toString()).setLevel(Level.WARNING);
+    }
+
+    @Test
+    public void shouldCalculateExample() throws Exception
+    {
+        String expression = "tan(1+2+1.0+1+1+1+1000.10001+(100.0+10+19/20*6+5)+min(100,100.2,99,max(1,2,3,4,5,6,100,10000,1,19999,12,18000))+{pam})";
+        Map<String, Object> map = new HashMap<>();
+        map.put("{pam}", 100);
+        double expected = Math.tan(1 + 2 + 1.0 + 1 + 1 + 1 + 1000.10001 + (100.0 + 10 + 19.0 / 20 * 6 + 5) + 99 + 100);
+        assertEquals(expected, Double.parseDouble(MathCalculateUtil.calculate(expression, map)), 1e-9);
+        assertEquals(expected, Double.parseDouble(MathCalculateUtil.calculateByRewrite(expression, map)), 1e-9);
+        assertEquals(expected, MathCalculateUtil.compile(expression).evaluateDouble(map), 1e-9);
+    }
+
+    /**
+     * 固定改写方式的运算符与函数结果，运算符、函数由{@link org.hhq.expression.Operators}、{@link org.hhq.expression.Functions}查表调用
+     */
+    @Test
+    public void shouldCalculateOperatorsAndFunctionsByRewrite() throws Exception
+    {
+        assertRewrite("7/2", "3.5");
+        assertRewrite("10/4*3", "7.5");
+        assertRewrite("19/20*6", "5.7");
+        //除法按MathContext.DECIMAL64计算，除不尽时不再抛出异常
+        assertRewrite("1/3", "0.3333333333333333");
+        assertRewrite("7%3", "1.0");
+        assertRewrite("10%4+1", "3.0");
+        assertRewrite("2+3*4", "14.0");
+        assertRewrite("(2+3)*4", "20.0");
+        assertRewrite("max(1,5,3)", "5.0");
+        assertRewrite("min(4,2,8,6)", "2.0");
+        assertRewrite("max(1,2,3,4,5,6,100,10000,1,19999,12,18000)", "19999.0");
+        assertRewrite("min(100,100.2,99)", "99.0");
+        assertRewrite("pow(2,10)", "1024.0");
+        assertRewrite("pow(2,0.5)", String.valueOf(Math.pow(2, 0.5)));
+        assertRewrite("tan(1)", String.valueOf(Math.tan(1)));
+        assertRewrite("tan(0)", "0.0");
+    }
+
+    @Test
+    public void shouldFormatResultsLikeRewrite() throws Exception
+    {
+        Map<String, Object> map = new HashMap<>();
+        map.put("{a}", new BigDecimal("2.50"));
+        map.put("{b}", 3);
+        for (String expression : new String[]{"5", "(5)", "((5))", "5.10", "0.50", "{a}", "({a})", "{b}", "{b}*1", "5*1", "2*3", "7/2",
+                "123456789012", "123456789012*1", "100000000*100000000"}) {
+            assertEquals(expression, MathCalculateUtil.calculateByRewrite(expression, map), MathCalculateUtil.calculate(expression, map));
+        }
+        assertEquals("5", MathCalculateUtil.calculate("5"));
+        assertEquals("2.50", MathCalculateUtil.calculate("{a}", map));
+        assertEquals("3.0", MathCalculateUtil.calculate("{b}*1", map));
+        assertEquals("1.23456789012E11", MathCalculateUtil.calculate("123456789012*1"));
+    }
+
+    @Test
+    public void shouldReturnNonFiniteFunctionResults() throws Exception
+    {
+        Map<String, Object> map = new HashMap<>();
+        map.put("{a}", 0);
+        assertEquals("Infinity", MathCalculateUtil.calculate("pow(10,400)"));
+        assertEquals("Infinity", MathCalculateUtil.calculate("pow(0,0-1)"));
+        assertEquals("Infinity", MathCalculateUtil.calculate("pow({a},0-1)", map));
+        assertEquals(MathCalculateUtil.calculateByRewrite("pow(10,400)", null), MathCalculateUtil.calculate("pow(10,400)"));
+        try {
+            MathCalculateUtil.calculate("1/{a}", map);
+            fail();
+        } catch (ArithmeticException e) {
+            //除以0仍抛出异常
+        }
+    }
+
+    private static void assertRewrite(String expression, String expected) throws Exception
+    {
+        assertEquals(expression, expected, MathCalculateUtil.calculateByRewrite(expression, null));
+        assertEquals(expression, Double.parseDouble(expected), Double.parseDouble(MathCalculateUtil.calculate(expression, null)), 1e-15);
+    }
+
+    /**
+     * 改写方式忽略多余的函数参数，calculate与其一致；编译仍校验参数个数
+     */
+    @Test
+    public void shouldIgnoreExtraFunctionArguments() throws Exception
+    {
+        String expression = "tan(1+2+1.0+1+1+1+1000.10001+(100.0+10+19/20*6+5)+min(100,100.2,99,max(1,2,3,4,5,6,100,10000,1,19999,12,18000))+{pam},1000)";
+        Map<String, Object> map = new HashMap<>();
+        map.put("{pam}", 100);
+        double expected = Math.tan(1 + 2 + 1.0 + 1 + 1 + 1 + 1000.10001 + (100.0 + 10 + 19.0 / 20 * 6 + 5) + 99 + 100);
+        assertEquals(MathCalculateUtil.calculateByRewrite(expression, map), MathCalculateUtil.calculate(expression, map));
+        assertEquals(expected, Double.parseDouble(MathCalculateUtil.calculate(expression, map)), 1e-9);
+        assertEquals("2.0", MathCalculateUtil.calculate("abs(2,3)", null));
+        try {
+            MathCalculateUtil.compile(expression);
+            fail();
+        } catch (FunctionArityException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("函数tan参数个数错误：2，需要1个"));
+        }
+        MathCalculateUtil.main(new String[0]);
+    }
+
+    @Test
+    public void shouldBindParametersToSlots() throws Exception
+    {
+        CompiledExpression compiled = MathCalculateUtil.compile("{a}*{b}+max({a},1000)");
+        assertArrayEquals(new String[]{"{a}", "{b}"}, compiled.getParameterNames());
+        assertEquals(1, compiled.indexOf("{b}"));
+        assertEquals(1006.0, compiled.evaluateDouble(new double[]{2, 3}), 0);
+        assertEquals(4000.0, compiled.evaluateDouble(name -> name.equals("{a}") ? 2 : 1500), 0);
+
+        Map<String, Object> map = new HashMap<>();
+        map.put("{a}", 1500);
+        map.put("{b}", 0.5);
+        assertEquals("((1500*0.5+max(1500,1000)))", MathCalculateUtil.replaceParamsValues("((" + compiled.getExpression() + "))", map));
+        assertEquals(2250.0, Double.parseDouble(MathCalculateUtil.calculateByRewrite(compiled.getExpression(), map)), 0);
+    }
+
+    @Test
+    public void shouldTraceOnlyWhenEnabled() throws Exception
+    {
+        final List<String> events = new ArrayList<>();
+        TraceListener listener = new TraceListener() {
+            @Override
+            public void onCalculate(String expression, Map<String, ?> params, Number result) {
+                events.add("calculate:" + result);
+            }
+
+            @Override
+            public void onReplace(String placeholder, Object value) {
+                events.add("replace:" + placeholder + "=" + value);
+            }
+
+            @Override
+            public void onFunction(int level, String function, String arguments, String result) {
+                events.add("function:" + level + ":" + function + "(" + arguments + ")=" + result);
+            }
+
+            @Override
+            public void onRewrite(int level, String expression) {
+                events.add("rewrite:" + level + ":" + expression);
+            }
+        };
+        Map<String, Object> map = new HashMap<>();
+        map.put("{a}", 3);
+        assertTrue(!MathCalculateUtil.isTracing());
+        MathCalculateUtil.calculateByRewrite("max({a},2)*2", map);
+        assertTrue(events.isEmpty());
+
+        MathCalculateUtil.setTraceListener(listener);
+        try {
+            assertTrue(MathCalculateUtil.isTracing());
+            MathCalculateUtil.calculateByRewrite("max({a},2)*2", map);
+            MathCalculateUtil.calculate("{a}+1", map);
+        } finally {
+            MathCalculateUtil.setTraceListener(null);
+        }
+        assertEquals("[replace:{a}=3, function:1:max(3,2)=3.0, rewrite:1:(3.0*2), rewrite:2:6.0, calculate:4]", events.toString());
+    }
+
+    /**
+     * 多线程并发计算不同的表达式，逐一校验结果
+     */
+    @Test
+    public void shouldCalculateConcurrently() throws Exception
+    {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        final CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<String>> futures = new ArrayList<>();
+            for (int i = 0; i < EXPRESSIONS; i++) {
+                final int n = i;
+                futures.add(executor.submit(new Callable<String>() {
+                    @Override
+                    public String call() throws Exception {
+                        start.await();
+                        return check(n);
+                    }
+                }));
+            }
+            start.countDown();
+            for (Future<String> future : futures) {
+                String failure = future.get(60, TimeUnit.SECONDS);
+                assertTrue(failure, failure == null);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * @param n 表达式序号
+     * @return 错误信息，结果正确时返回null
+     */
+    private static String check(int n) throws Exception
+    {
+        int a = n % 97;
+        int b = n % 13 + 1;
+        String expression = "(" + n + "+{a})*2+max(" + (n % 31) + ",{b},7)-" + (n % 5) + "*3+abs(" + b + ")";
+        double expected = (n + a) * 2 + Math.max(Math.max(n % 31, b), 7) - (n % 5) * 3 + b;
+        Map<String, Object> map = new HashMap<>();
+        map.put("{a}", a);
+        map.put("{b}", b);
+        double calculated = Double.parseDouble(MathCalculateUtil.calculate(expression, map));
+        if (calculated != expected) {
+            return expression + " calculate:" + calculated + " expected:" + expected;
+        }
+        double rewritten = Double.parseDouble(MathCalculateUtil.calculateByRewrite(expression, map));
+        if (rewritten != expected) {
+            return expression + " calculateByRewrite:" + rewritten + " expected:" + expected;
+        }
+        CompiledExpression compiled = MathCalculateUtil.compile(expression);
+        double evaluated = compiled.evaluateDouble(map);
+        if (evaluated != expected) {
+            return expression + " compiled:" + evaluated + " expected:" + expected;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,58 @@
+package org.hhq.expression;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.nio.DoubleBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Unit test for {@link BatchEvaluator}.
+ */
+public class BatchEvaluatorTest
+{
+    private static final int ROWS = 100000;
+
+    @Test
+    public void shouldEvaluateEveryRow()
+    {
+        CompiledExpression compiled = CompiledExpression.compile("{price}*{count}+max({price},10)%7");
+        double[] prices = new double[ROWS];
+        double[] counts = new double[ROWS];
+        double[] expected = new double[ROWS];
+        for (int i = 0; i < ROWS; i++) {
+            prices[i] = i * 0.5;
+            counts[i] = i % 11;
+            expected[i] = prices[i] * counts[i] + Math.max(prices[i], 10) % 7;
+        }
+        Map<String, double[]> columns = new HashMap<>();
+        columns.put("{price}", prices);
+        columns.put("{count}", counts);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            assertArrayEquals(expected, new BatchEvaluator(compiled, pool, 1000).evaluate(columns), 0);
+        } finally {
+            pool.shutdown();
+        }
+
+        Map<String, DoubleBuffer> buffers = new HashMap<>();
+        buffers.put("{price}", DoubleBuffer.wrap(prices));
+        buffers.put("{count}", DoubleBuffer.wrap(counts));
+        DoubleBuffer output = DoubleBuffer.allocate(ROWS);
+        new BatchEvaluator(compiled).evaluate(buffers, output);
+        assertEquals(0, output.position());
+        assertArrayEquals(expected, output.array(), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectMissingColumn()
+    {
+        Map<String, double[]> columns = new HashMap<>();
+        columns.put("{price}", new double[1]);
+        new BatchEvaluator(CompiledExpression.compile("{price}*{count}")).evaluate(columns);
+    }
+}
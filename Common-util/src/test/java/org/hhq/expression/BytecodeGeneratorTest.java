@@ -0,0 +1,56 @@
+package org.hhq.expression;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Unit test for {@link BytecodeGenerator}.
+ */
+public class BytecodeGeneratorTest
+{
+    private static final String[] EXPRESSIONS = {
+            "1",
+            "0",
+            "-{a}",
+            "{a}+{b}*{c}-{a}/{b}%{c}",
+            "tan(1+2+1.0+1+1+1+1000.10001+(100.0+10+19/20*6+5)+min(100,100.2,99,max(1,2,3,4,5,6,100,10000,1,19999,12,18000))+{a})",
+            "pow({a},2)+abs(-{b})+floor({c}/3)",
+            "max({a},{b},{c},min({a},{b}),1000000.5)",
+            "((((((({a}+1)*2)+3)*4)+5)*6)+7)"
+    };
+
+    @Test
+    public void shouldMatchInterpreter()
+    {
+        double[][] rows = {{1, 2, 3}, {-4.5, 0.25, 7}, {1e6, -3, 0.1}};
+        for (String expression : EXPRESSIONS) {
+            CompiledExpression compiled = CompiledExpression.compile(expression);
+            ToDoubleFunction<double[]> function = compiled.toFunction();
+            for (double[] row : rows) {
+                double[] values = java.util.Arrays.copyOf(row, compiled.getParameterCount());
+                assertEquals(expression, compiled.evaluateDouble(values), function.applyAsDouble(values), 0);
+            }
+        }
+    }
+
+    @Test
+    public void shouldGenerateOnce()
+    {
+        CompiledExpression compiled = CompiledExpression.compile("{a}*2");
+        assertSame(compiled.toFunction(), compiled.toFunction());
+        assertEquals(6.0, compiled.toFunction().applyAsDouble(new double[]{3}), 0);
+    }
+
+    @Test
+    public void shouldCallCustomFunctionInstance()
+    {
+        Node[] arguments = {new Nodes.NumberNode(java.math.BigDecimal.ONE), new Nodes.ParamNode("{a}", 0), new Nodes.NumberNode(java.math.BigDecimal.TEN)};
+        Node sum = new Nodes.FunctionNode(MathFunction.reducing("sum", Double::sum), arguments);
+        Node square = new Nodes.FunctionNode(MathFunction.unary("square", x -> x * x), new Node[]{sum});
+        assertEquals(square.evaluateDouble(new double[]{4}), BytecodeGenerator.generate(square, new Node[0], 1).applyAsDouble(new double[]{4}), 0);
+    }
+}
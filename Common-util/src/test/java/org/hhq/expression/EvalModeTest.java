@@ -0,0 +1,78 @@
+package org.hhq.expression;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.hhq.MathCalculateUtil;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Unit test for {@link EvalMode}，DOUBLE与DECIMAL模式的求值结果
+ */
+public class EvalModeTest
+{
+    @Test
+    public void shouldAddExactlyInDecimal()
+    {
+        Map<String, Object> map = new HashMap<>();
+        map.put("{a}", 0.1);
+        map.put("{b}", 0.2);
+        assertEquals(0.30000000000000004, MathCalculateUtil.calculate("0.1+0.2", null, EvalMode.DOUBLE));
+        assertEquals(new BigDecimal("0.3"), MathCalculateUtil.calculate("0.1+0.2", null, EvalMode.DECIMAL));
+        assertEquals(0.30000000000000004, MathCalculateUtil.calculate("{a}+{b}", map, EvalMode.DOUBLE));
+        assertEquals(new BigDecimal("0.3"), MathCalculateUtil.calculate("{a}+{b}", map, EvalMode.DECIMAL));
+    }
+
+    @Test
+    public void shouldDivideWithMathContext()
+    {
+        CompiledExpression compiled = CompiledExpression.compile("1/3");
+        assertEquals(1.0 / 3, compiled.evaluate(null, EvalMode.DOUBLE));
+        assertEquals(new BigDecimal("0.3333333333333333"), compiled.evaluate(null, EvalMode.DECIMAL));
+        assertEquals(new BigDecimal("0.333"), compiled.evaluate(null, EvalMode.decimal(new MathContext(3))));
+        assertEquals(new BigDecimal("0.33333"), compiled.evaluateDecimal(null, new MathContext(5)));
+        assertEquals("DECIMAL(precision=3 roundingMode=HALF_UP)", EvalMode.decimal(new MathContext(3)).toString());
+        assertTrue(EvalMode.DOUBLE.isDouble());
+    }
+
+    @Test
+    public void shouldRejectNonFiniteFunctionResultInDecimal()
+    {
+        Map<String, Object> map = new HashMap<>();
+        map.put("{a}", 0);
+        for (String expression : new String[]{"pow({a},-1)", "pow(10,400)+{a}", "pow({a}-1,0.5)"}) {
+            CompiledExpression compiled = CompiledExpression.compile(expression);
+            assertTrue(expression, !Double.isFinite(compiled.evaluate(map, EvalMode.DOUBLE).doubleValue()));
+            assertTrue(expression, !Double.isFinite(compiled.toFunction().applyAsDouble(new double[]{0})));
+            try {
+                compiled.evaluate(map, EvalMode.DECIMAL);
+                fail(expression);
+            } catch (ArithmeticException e) {
+                assertTrue(e.getMessage(), e.getMessage().startsWith("函数结果不是有限数"));
+            }
+        }
+    }
+
+    @Test
+    public void shouldDivideByZeroPerMode()
+    {
+        Map<String, Object> map = new HashMap<>();
+        map.put("{a}", 0);
+        for (String expression : new String[]{"1/0", "1/{a}"}) {
+            CompiledExpression compiled = CompiledExpression.compile(expression);
+            assertEquals(Double.POSITIVE_INFINITY, compiled.evaluate(map, EvalMode.DOUBLE));
+            try {
+                compiled.evaluate(map, EvalMode.DECIMAL);
+                fail(expression);
+            } catch (ArithmeticException e) {
+                //BigDecimal不能除以0
+            }
+        }
+    }
+}
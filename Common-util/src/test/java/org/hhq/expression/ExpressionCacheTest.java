@@ -0,0 +1,66 @@
+package org.hhq.expression;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+/**
+ * Unit test for {@link ExpressionCache}.
+ */
+public class ExpressionCacheTest
+{
+    @Test
+    public void shouldCountHitsAndMisses()
+    {
+        ExpressionCache cache = new ExpressionCache(4);
+        CompiledExpression compiled = cache.get("1+{a}");
+        assertSame(compiled, cache.get("1+{a}"));
+        assertSame(compiled, cache.get("1+{a}"));
+        assertEquals(2, cache.hitCount());
+        assertEquals(1, cache.missCount());
+        assertEquals(0, cache.evictionCount());
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsed()
+    {
+        ExpressionCache cache = new ExpressionCache(2);
+        CompiledExpression first = cache.get("1");
+        cache.get("2");
+        //"1"最近被使用，淘汰"2"
+        cache.get("1");
+        cache.get("3");
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.evictionCount());
+        assertSame(first, cache.get("1"));
+        assertEquals(3, cache.missCount());
+    }
+
+    @Test
+    public void shouldCacheArityErrors()
+    {
+        ExpressionCache cache = new ExpressionCache(4);
+        assertNull(cache.getOrNull("tan({a},1000)"));
+        assertNull(cache.getOrNull("tan({a},1000)"));
+        try {
+            cache.get("tan({a},1000)");
+            fail();
+        } catch (FunctionArityException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("函数tan参数个数错误"));
+        }
+        //只解析一次
+        assertEquals(1, cache.missCount());
+        assertEquals(2, cache.hitCount());
+        assertEquals(1, cache.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectInvalidExpression()
+    {
+        new ExpressionCache(2).get("max(1");
+    }
+}
@@ -0,0 +1,100 @@
+package org.hhq.expression;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Unit test for {@link ExpressionOptimizer}.
+ */
+public class ExpressionOptimizerTest
+{
+    @Test
+    public void shouldFoldConstants()
+    {
+        CompiledExpression compiled = CompiledExpression.compile("100.0+10+19/20*6+5+{a}");
+        Node root = compiled.root();
+        assertTrue(root instanceof Nodes.BinaryNode);
+        Node constant = ((Nodes.BinaryNode) root).left;
+        assertTrue(constant instanceof Nodes.NumberNode);
+        assertEquals(0, new BigDecimal("120.7").compareTo(((Nodes.NumberNode) constant).value));
+    }
+
+    @Test
+    public void shouldNotFoldInexactDivision()
+    {
+        CompiledExpression compiled = CompiledExpression.compile("1/3");
+        assertTrue(compiled.root() instanceof Nodes.BinaryNode);
+        assertEquals(new BigDecimal("0.33333"), compiled.evaluateDecimal(null, new MathContext(5)));
+    }
+
+    @Test
+    public void shouldNotFoldInfiniteFunctionResult()
+    {
+        CompiledExpression compiled = CompiledExpression.compile("pow(0,-1)+{a}");
+        assertTrue(compiled.root() instanceof Nodes.BinaryNode);
+        assertEquals(Double.POSITIVE_INFINITY, compiled.evaluateDouble(new double[]{1}), 0);
+        assertEquals(Double.POSITIVE_INFINITY, compiled.toFunction().applyAsDouble(new double[]{1}), 0);
+    }
+
+    @Test
+    public void shouldSimplifyIdentities()
+    {
+        assertTrue(CompiledExpression.compile("({a}*1+0)/1-0").root() instanceof Nodes.ParamNode);
+        assertTrue(CompiledExpression.compile("--{a}").root() instanceof Nodes.ParamNode);
+        assertTrue(CompiledExpression.compile("0-{a}").root() instanceof Nodes.NegateNode);
+    }
+
+    @Test
+    public void shouldExtractCommonSubexpressions()
+    {
+        CompiledExpression compiled = CompiledExpression.compile("max({a},{b})*2+max({a},{b})/({a}+{b})-({a}+{b})");
+        assertEquals(2, compiled.temps().length);
+        assertEquals(4, compiled.getFrameSize());
+        double[] frame = {3, 5, 0, 0};
+        double expected = Math.max(3, 5) * 2 + Math.max(3, 5) / 8.0 - 8;
+        assertEquals(expected, compiled.evaluateDouble(frame), 0);
+        assertEquals(expected, compiled.evaluateDouble(new double[]{3, 5}), 0);
+        assertEquals(expected, compiled.toFunction().applyAsDouble(frame), 0);
+    }
+
+    @Test
+    public void shouldOptimizeLongChains()
+    {
+        //左深的运算链不随项数递归
+        StringBuilder expression = new StringBuilder("{a}");
+        for (int i = 1; i < 7000; i++) {
+            expression.append("+{b}*").append(i);
+        }
+        CompiledExpression compiled = CompiledExpression.compile(expression.toString());
+        double expected = 2 + 3 * (6999 * 7000 / 2);
+        assertEquals(expected, compiled.evaluateDouble(new double[]{2, 3}), 0);
+        assertEquals(expected, compiled.toFunction().applyAsDouble(new double[]{2, 3}), 0);
+        Map<String, Object> map = new HashMap<>();
+        map.put("{a}", 2);
+        map.put("{b}", 3);
+        assertEquals(0, BigDecimal.valueOf(expected).compareTo(compiled.evaluate(map)));
+    }
+
+    @Test
+    public void shouldMatchUnoptimizedTree()
+    {
+        String[] expressions = {
+                "tan(1+2+1.0+1+1+1+1000.10001+(100.0+10+19/20*6+5)+min(100,100.2,99,max(1,2,3,4,5,6,100,10000,1,19999,12,18000))+{a})",
+                "pow({a},2)*1+pow({a},2)-abs({b}-0)+abs({b})",
+                "({a}%{b}+{a}%{b})*({a}%{b}+{a}%{b})+1/3"
+        };
+        double[] values = {7.5, -2};
+        for (String expression : expressions) {
+            ExpressionParser parser = new ExpressionParser(expression);
+            double expected = parser.parse().evaluateDouble(values);
+            assertEquals(expression, expected, CompiledExpression.compile(expression).evaluateDouble(values), 1e-12);
+        }
+    }
+}
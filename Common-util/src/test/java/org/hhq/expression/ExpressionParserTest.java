@@ -0,0 +1,77 @@
+package org.hhq.expression;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import java.util.Collections;
+
+/**
+ * Unit test for {@link ExpressionParser}，按未优化的语法树求值
+ */
+public class ExpressionParserTest
+{
+    @Test
+    public void shouldApplyPrecedence()
+    {
+        assertEquals(14, parse("2+3*4"), 0);
+        assertEquals(20, parse("(2+3)*4"), 0);
+        assertEquals(7, parse("1+12%5*3"), 0);
+        assertEquals(-5, parse("1-2*3"), 0);
+        assertEquals(11, parse("max(1,2)*5+1"), 0);
+    }
+
+    @Test
+    public void shouldAssociateLeft()
+    {
+        assertEquals(-5, parse("2-3-4"), 0);
+        assertEquals(2, parse("8/2/2"), 0);
+        assertEquals(1, parse("9%5%3"), 0);
+        assertEquals(3, parse("10-4+-3"), 0);
+    }
+
+    @Test
+    public void shouldParseUnaryMinus()
+    {
+        assertEquals(3, parse("--{a}", 3), 0);
+        assertEquals(-3, parse("-{a}", 3), 0);
+        assertEquals(-3, parse("+-{a}", 3), 0);
+        assertEquals(-9, parse("-{a}*3", 3), 0);
+        assertEquals(-9, parse("2*-(1+{a})-1", 3), 0);
+    }
+
+    @Test
+    public void shouldRejectInvalidExpressions()
+    {
+        assertParseError("", "表达式为空");
+        assertParseError("  ", "表达式为空");
+        assertParseError("()", "非法字符')'");
+        assertParseError("{a}{a}", "多余的字符'{'");
+        assertParseError("foo(1)", "没有对应的集合函数：foo");
+        assertParseError("(1+2", "缺少')'");
+        assertParseError("1+", "表达式不完整");
+        try {
+            CompiledExpression.compile("{a}+{b}").evaluateDouble(Collections.singletonMap("{a}", 1));
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("缺少变量{b}"));
+        }
+    }
+
+    private static double parse(String expression, double... values)
+    {
+        return new ExpressionParser(expression).parse().evaluateDouble(values);
+    }
+
+    private static void assertParseError(String expression, String message)
+    {
+        try {
+            new ExpressionParser(expression).parse();
+            fail(expression);
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains(message));
+        }
+    }
+}
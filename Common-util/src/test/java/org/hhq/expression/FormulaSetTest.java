@@ -0,0 +1,105 @@
+package org.hhq.expression;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Unit test for {@link FormulaSet}.
+ */
+public class FormulaSetTest
+{
+    @Test
+    public void shouldEvaluateInDependencyOrder()
+    {
+        Map<String, String> formulas = new LinkedHashMap<>();
+        formulas.put("{total}", "{subtotal}+{tax}");
+        formulas.put("tax", "round({subtotal}*{rate},2)");
+        formulas.put("{subtotal}", "{price}*{count}");
+        FormulaSet set = new FormulaSet(formulas);
+        assertEquals(Arrays.asList("{total}", "{tax}", "{subtotal}"), set.getFormulaNames());
+        assertEquals(Arrays.asList("{rate}", "{price}", "{count}"), set.getInputNames());
+        assertEquals(3, set.getLevelCount());
+
+        Map<String, Object> inputs = new HashMap<>();
+        inputs.put("{price}", 9.99);
+        inputs.put("{count}", 3);
+        inputs.put("{rate}", 0.13);
+        Map<String, Double> results = set.evaluate(inputs);
+        assertEquals(29.97, results.get("{subtotal}"), 1e-9);
+        assertEquals(3.9, results.get("{tax}"), 1e-9);
+        assertEquals(33.87, results.get("{total}"), 1e-9);
+    }
+
+    @Test
+    public void shouldDetectCycles()
+    {
+        Map<String, String> formulas = new LinkedHashMap<>();
+        formulas.put("{x}", "{a}+1");
+        formulas.put("{a}", "{b}*2");
+        formulas.put("{b}", "{c}+{input}");
+        formulas.put("{c}", "max({a},0)");
+        try {
+            new FormulaSet(formulas);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("{a} -> {b} -> {c} -> {a}"));
+        }
+        try {
+            new FormulaSet(Collections.singletonMap("{a}", "{a}+1"));
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("{a} -> {a}"));
+        }
+    }
+
+    /**
+     * 多层、每层大量公式时并行计算，结果与逐个计算一致
+     */
+    @Test
+    public void shouldEvaluateLevelsInParallel()
+    {
+        int width = 500;
+        int depth = 8;
+        Map<String, String> formulas = new LinkedHashMap<>();
+        for (int level = depth - 1; level >= 0; level--) {
+            for (int i = 0; i < width; i++) {
+                String left = level == 0 ? "{in" + i + "}" : "{f" + (level - 1) + "_" + i + "}";
+                String right = level == 0 ? "{in" + (i + 1) % width + "}" : "{f" + (level - 1) + "_" + (i + 1) % width + "}";
+                formulas.put("{f" + level + "_" + i + "}", "sqrt(abs(" + left + "*" + right + "))+" + (i % 7));
+            }
+        }
+        FunctionRegistry registry = new FunctionRegistry().registerUnary("sqrt", Math::sqrt);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            FormulaSet parallel = new FormulaSet(formulas, registry, pool, 16);
+            FormulaSet sequential = new FormulaSet(formulas, registry, pool, Integer.MAX_VALUE);
+            assertEquals(depth, parallel.getLevelCount());
+            double[] inputs = new double[width];
+            for (int n = 0; n < 20; n++) {
+                Map<String, Object> map = new HashMap<>();
+                for (int i = 0; i < width; i++) {
+                    map.put("{in" + i + "}", (i * 31 + n) % 101);
+                }
+                for (int i = 0; i < width; i++) {
+                    inputs[i] = ((Number) map.get(parallel.getInputNames().get(i))).doubleValue();
+                }
+                double[] expected = sequential.evaluate(inputs);
+                assertArrayEquals(expected, parallel.evaluate(inputs), 0);
+                assertEquals(expected[0], parallel.evaluate(map).get("{f7_0}"), 0);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package org.hhq.expression;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.hhq.MathCalculateUtil;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Unit test for {@link FunctionRegistry}.
+ */
+public class FunctionRegistryTest
+{
+    @Test
+    public void shouldEvaluateBuiltInFunctions() throws Exception
+    {
+        String expression = "sum({a},{b},3)+avg({a},{b})*10+round({a}/3,2)+clamp({b},0,4)";
+        double expected = (1.5 + 7 + 3) + (1.5 + 7) / 2 * 10 + 0.5 + 4;
+        double[] values = {1.5, 7};
+        CompiledExpression compiled = CompiledExpression.compile(expression);
+        assertEquals(expected, compiled.evaluateDouble(values), 1e-12);
+        assertEquals(expected, compiled.toFunction().applyAsDouble(values), 1e-12);
+
+        Map<String, Object> map = new HashMap<>();
+        map.put("{a}", 1.5);
+        map.put("{b}", 7);
+        assertEquals(expected, compiled.evaluate(map).doubleValue(), 1e-12);
+        assertEquals(expected, Double.parseDouble(MathCalculateUtil.calculateByRewrite(expression, map)), 1e-12);
+        assertEquals(3.14, CompiledExpression.compile("round(3.14159,2)").evaluate().doubleValue(), 0);
+    }
+
+    @Test
+    public void shouldCallRegisteredFunctions()
+    {
+        FunctionRegistry registry = new FunctionRegistry()
+                .registerUnary("sqrt", Math::sqrt)
+                .registerBinary("hypot", Math::hypot)
+                .registerTernary("fma", (a, b, c) -> a * b + c)
+                .registerReducing("product", (a, b) -> a * b)
+                .registerVarargs("count", 1, -1, values -> values.length);
+        CompiledExpression compiled = CompiledExpression.compile(
+                "sqrt({a})+hypot(3,{b})+fma({a},2,1)+product({a},{b},2)+count({a},{b},1,1)", registry);
+        double[] values = {16, 4};
+        double expected = 4 + 5 + 33 + 128 + 4;
+        assertEquals(expected, compiled.evaluateDouble(values), 1e-12);
+        assertEquals(expected, compiled.toFunction().applyAsDouble(values), 1e-12);
+        assertTrue(FunctionRegistry.getDefault().get("sqrt") == null);
+    }
+
+    @Test
+    public void shouldCheckFunctionsAtCompileTime()
+    {
+        assertCompileError("clamp(1,2)", "clamp参数个数错误：2，需要3个");
+        assertCompileError("round(1)", "round参数个数错误：1，需要2个");
+        assertCompileError("max(1)", "max参数个数错误：1，需要至少2个");
+        assertCompileError("median(1,2)", "没有对应的集合函数：median");
+    }
+
+    @Test
+    public void shouldNotReplaceFunctions()
+    {
+        FunctionRegistry registry = new FunctionRegistry();
+        try {
+            registry.registerUnary("abs", value -> value);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("函数已存在：abs"));
+        }
+        try {
+            registry.registerUnary("1abs", value -> value);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("函数名称错误"));
+        }
+        try {
+            registry.registerVarargs("none", 0, -1, values -> 0);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("参数个数错误"));
+        }
+    }
+
+    private static void assertCompileError(String expression, String message)
+    {
+        try {
+            CompiledExpression.compile(expression);
+            fail(expression);
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains(message));
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package org.hhq.expression;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Unit test for {@link IncrementalEvaluator}.
+ */
+public class IncrementalEvaluatorTest
+{
+    @Test
+    public void shouldRecomputeOnlyAffectedPath()
+    {
+        //40个变量的求和，每个变量只影响根路径上的运算
+        StringBuilder expression = new StringBuilder("{p0}");
+        double[] values = new double[40];
+        values[0] = 1;
+        for (int i = 1; i < values.length; i++) {
+            expression.append(i % 2 == 0 ? "+" : "*").append("abs({p").append(i).append("})");
+            values[i] = i;
+        }
+        CompiledExpression compiled = CompiledExpression.compile(expression.toString());
+        IncrementalEvaluator evaluator = new IncrementalEvaluator(compiled, values);
+        assertEquals(compiled.evaluateDouble(values), evaluator.getValue(), 0);
+
+        Random random = new Random(42);
+        for (int n = 0; n < 1000; n++) {
+            int slot = random.nextInt(values.length);
+            values[slot] = random.nextInt(100) - 50;
+            double value = evaluator.update("{p" + slot + "}", values[slot]);
+            assertEquals(compiled.evaluateDouble(values), value, 1e-9);
+            assertTrue(evaluator.getLastUpdateCount() <= values.length + 1);
+        }
+        assertTrue(evaluator.getCellCount() > 3 * values.length / 2);
+    }
+
+    @Test
+    public void shouldStopWhenResultUnchanged()
+    {
+        IncrementalEvaluator evaluator = new IncrementalEvaluator(CompiledExpression.compile("max({a},10)*2+{b}"), new double[]{1, 1});
+        assertEquals(21, evaluator.getValue(), 0);
+        assertEquals(21, evaluator.update("a", 5), 0);
+        assertEquals(1, evaluator.getLastUpdateCount());
+        assertEquals(41, evaluator.update("{a}", 20), 0);
+        assertEquals(3, evaluator.getLastUpdateCount());
+        assertEquals(41, evaluator.update("{a}", 20), 0);
+        assertEquals(0, evaluator.getLastUpdateCount());
+        assertEquals(20, evaluator.get("a"), 0);
+    }
+
+    @Test
+    public void shouldShareCommonSubexpressions()
+    {
+        CompiledExpression compiled = CompiledExpression.compile("pow({a}+{b},2)-pow({a}+{b},2)/{c}+({a}+{b})");
+        Map<String, Object> map = new HashMap<>();
+        map.put("{a}", 1);
+        map.put("{b}", 2);
+        map.put("{c}", 3);
+        IncrementalEvaluator evaluator = new IncrementalEvaluator(compiled, map);
+        assertEquals(9 - 3 + 3, evaluator.getValue(), 1e-12);
+        assertEquals(16 - 16.0 / 3 + 4, evaluator.update("{b}", 3), 1e-12);
+        map.put("{a}", 2);
+        map.put("{b}", 3);
+        map.put("{c}", 5);
+        assertEquals(25 - 5 + 5, evaluator.update(map), 1e-12);
+        assertEquals(compiled.evaluateDouble(new double[]{2, 3, 5}), evaluator.getValue(), 0);
+    }
+}
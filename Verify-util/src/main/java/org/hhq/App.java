@@ -1,16 +1,14 @@
 package org.hhq;
 
-import java.lang.reflect.InvocationTargetException;
-
 /**
  * Hello world!
  *
  */
 public class App 
 {
-    public static void main( String[] args ) throws InvocationTargetException, NoSuchMethodException, NoSuchFieldException, InstantiationException, IllegalAccessException {
+    public static void main( String[] args ) throws Exception {
         Verify verify = new Verify();
-        System.out.println(VerifyUtil.verify(verify,"字段值为空",true));
+        VerifyUtil.verify(verify,"字段值为空",true);
 
         System.out.println( "Hello World!" );
     }
@@ -0,0 +1,493 @@
+package org.hhq;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * 注解校验的求值器
+ * 按注解对应的本地方法及字段的声明类型在解析校验计划时选择一次：整数按long比较，浮点数按double比较，BigDecimal按compareTo比较，
+ * CharSequence、Collection、Map、数组直接取长度，整数及BigDecimal的位数按数值计算，均不装箱边界、不创建字符串；
+ * 声明类型为Object、Number等无法确定时按值的实际类型选择
+ * <p>
+ * 未内置的本地方法通过反射调用，扩展注解使用{@link ConstraintValidator}绑定的校验
+ *
+ * @author huhaiqing
+ */
+abstract class ConstraintEvaluator {
+
+    /**
+     * 校验值的类型
+     */
+    enum ValueType {
+        /**
+         * byte、short、int、long及其包装类型
+         */
+        INTEGRAL,
+        /**
+         * float、double及其包装类型
+         */
+        FLOATING,
+        DECIMAL,
+        BIG_INTEGER,
+        /**
+         * 其他Number
+         */
+        NUMBER,
+        TEXT,
+        COLLECTION,
+        MAP,
+        ARRAY,
+        /**
+         * 仅用于声明类型：Object、Number或接口，按值的实际类型选择
+         */
+        DYNAMIC,
+        /**
+         * 不支持的类型
+         */
+        OTHER;
+
+        private static final ClassValue<ValueType> TYPES = new ClassValue<ValueType>() {
+            @Override
+            protected ValueType computeValue(Class<?> type) {
+                return classify(type);
+            }
+        };
+
+        static ValueType of(Class<?> type) {
+            return TYPES.get(type);
+        }
+
+        private static ValueType classify(Class<?> type) {
+            if (type == int.class || type == long.class || type == short.class || type == byte.class || type == Integer.class
+                    || type == Long.class || type == Short.class || type == Byte.class || type == AtomicInteger.class || type == AtomicLong.class) {
+                return INTEGRAL;
+            } else if (type == double.class || type == float.class || type == Double.class || type == Float.class) {
+                return FLOATING;
+            } else if (type == BigDecimal.class) {
+                return DECIMAL;
+            } else if (type == BigInteger.class) {
+                return BIG_INTEGER;
+            } else if (CharSequence.class.isAssignableFrom(type)) {
+                return TEXT;
+            } else if (Collection.class.isAssignableFrom(type)) {
+                return COLLECTION;
+            } else if (Map.class.isAssignableFrom(type)) {
+                return MAP;
+            } else if (type.isArray()) {
+                return ARRAY;
+            } else if (type == Object.class || type == Number.class || type.isInterface()) {
+                return DYNAMIC;
+            } else if (Number.class.isAssignableFrom(type)) {
+                return NUMBER;
+            }
+            return OTHER;
+        }
+    }
+
+    /**
+     * @param value 字段值，NotNull、NotEmpty以外不为null
+     * @return 是否满足校验
+     */
+    abstract boolean test(Object value);
+
+    /**
+     * int、long字段的校验
+     */
+    boolean testLong(long value) {
+        return test(Long.valueOf(value));
+    }
+
+    /**
+     * double字段的校验
+     */
+    boolean testDouble(double value) {
+        return test(Double.valueOf(value));
+    }
+
+    /**
+     * 选择求值器
+     *
+     * @param method     注解对应的本地方法
+     * @param parameters 除第一个参数(字段值)外的参数
+     * @param fieldType  字段的声明类型
+     */
+    static ConstraintEvaluator of(Method method, Object[] parameters, Class<?> fieldType) {
+        ValueType type = ValueType.of(fieldType);
+        switch (method.getName()) {
+            case "isNotNull":
+                return NOT_NULL;
+            case "isNotEmpty":
+                return NOT_EMPTY;
+            case "range":
+                long min = minimum((Long) parameters[1]);
+                return new LongRange(type, min, maximum((Long) parameters[0], min));
+            case "longRange":
+                return longRange(type, (Long) parameters[0], (Long) parameters[1]);
+            case "doubleRange":
+                return doubleRange(type, (Double) parameters[0], (Double) parameters[1]);
+            case "size":
+                long minSize = minimum((Long) parameters[1]);
+                return new Size(type, minSize, maximum((Long) parameters[0], minSize));
+            default:
+                return new Reflective(method, parameters);
+        }
+    }
+
+    /**
+     * @param predicate 扩展注解的校验器绑定的校验
+     */
+    static ConstraintEvaluator of(Predicate<Object> predicate) {
+        return new ConstraintEvaluator() {
+            @Override
+            boolean test(Object value) {
+                return predicate.test(value);
+            }
+        };
+    }
+
+    /**
+     * 与Range、Size的取值一致：min为空或小于0时为0
+     */
+    static long minimum(Long min) {
+        return (min == null || min < 0) ? 0 : min;
+    }
+
+    /**
+     * 与Range、Size的取值一致：max为空或小于min时不限制
+     */
+    static long maximum(Long max, long min) {
+        return (max == null || max < min) ? Long.MAX_VALUE : max;
+    }
+
+    /**
+     * @param max 为null时不限制
+     * @param min 为null时不限制
+     */
+    static ConstraintEvaluator longRange(ValueType type, Long max, Long min) {
+        return new LongRange(type, min == null ? Long.MIN_VALUE : min, max == null ? Long.MAX_VALUE : max);
+    }
+
+    /**
+     * @param max 为null时不限制
+     * @param min 为null时不限制
+     */
+    static ConstraintEvaluator doubleRange(ValueType type, Double max, Double min) {
+        return new DoubleRange(type, min == null ? Double.NEGATIVE_INFINITY : min, max == null ? Double.POSITIVE_INFINITY : max);
+    }
+
+    static ConstraintEvaluator size(ValueType type, long min, long max) {
+        return new Size(type, min, max);
+    }
+
+    /**
+     * @return 与String.valueOf(value).length()一致，不创建字符串
+     */
+    static int length(long value) {
+        int length = 1;
+        //按负数计算，Long.MIN_VALUE也不会溢出
+        if (value < 0) {
+            length++;
+        } else {
+            value = -value;
+        }
+        while (value <= -10) {
+            value /= 10;
+            length++;
+        }
+        return length;
+    }
+
+    /**
+     * @return 与value.toString().length()一致，科学计数法以外不创建字符串
+     */
+    static int length(BigDecimal value) {
+        int scale = value.scale();
+        int precision = value.precision();
+        int sign = value.signum() < 0 ? 1 : 0;
+        if (scale == 0) {
+            return sign + precision;
+        }
+        //toString()在scale大于0且调整后的指数不小于-6时不使用科学计数法
+        if (scale > 0 && (long) precision - 1 - scale >= -6) {
+            //123.45 或 0.00123
+            return precision > scale ? sign + precision + 1 : sign + 2 + scale;
+        }
+        return value.toString().length();
+    }
+
+    private static VerifyError unsupported(String expected, Object value) {
+        return new VerifyError(String.format("参数类型异常->请求%s类型，传入%s类型", expected, value.getClass().toString()));
+    }
+
+    private static final ConstraintEvaluator NOT_NULL = new ConstraintEvaluator() {
+        @Override
+        boolean test(Object value) {
+            return VerifyUtil.isNotNull(value);
+        }
+
+        @Override
+        boolean testLong(long value) {
+            return true;
+        }
+
+        @Override
+        boolean testDouble(double value) {
+            return true;
+        }
+    };
+
+    private static final ConstraintEvaluator NOT_EMPTY = new ConstraintEvaluator() {
+        @Override
+        boolean test(Object value) {
+            return VerifyUtil.isNotEmpty(value);
+        }
+
+        @Override
+        boolean testLong(long value) {
+            return true;
+        }
+
+        @Override
+        boolean testDouble(double value) {
+            return true;
+        }
+    };
+
+    /**
+     * 数值范围，[min, max]
+     */
+    private abstract static class NumberRange extends ConstraintEvaluator {
+        private final ValueType type;
+
+        NumberRange(ValueType type) {
+            this.type = type;
+        }
+
+        abstract boolean testDecimal(BigDecimal value);
+
+        abstract boolean testBigInteger(BigInteger value);
+
+        @Override
+        boolean test(Object value) {
+            ValueType valueType = type == ValueType.DYNAMIC ? ValueType.of(value.getClass()) : type;
+            switch (valueType) {
+                case INTEGRAL:
+                    return testLong(((Number) value).longValue());
+                case FLOATING:
+                case NUMBER:
+                    return testDouble(((Number) value).doubleValue());
+                case DECIMAL:
+                    return testDecimal((BigDecimal) value);
+                case BIG_INTEGER:
+                    return testBigInteger((BigInteger) value);
+                case TEXT:
+                    return testText((CharSequence) value);
+                default:
+                    throw unsupported("Number、String", value);
+            }
+        }
+
+        /**
+         * 最多18位的十进制整数按long比较，其他按Double.parseDouble解析
+         */
+        private boolean testText(CharSequence text) {
+            int length = text.length();
+            int index = 0;
+            boolean negative = false;
+            if (length > 0 && (text.charAt(0) == '-' || text.charAt(0) == '+')) {
+                negative = text.charAt(0) == '-';
+                index++;
+            }
+            if (length > index && length - index <= 18) {
+                long value = 0;
+                for (; index < length; index++) {
+                    char c = text.charAt(index);
+                    if (c < '0' || c > '9') {
+                        break;
+                    }
+                    value = value * 10 + (c - '0');
+                }
+                if (index == length) {
+                    return testLong(negative ? -value : value);
+                }
+            }
+            return testDouble(Double.parseDouble(text.toString()));
+        }
+    }
+
+    private static final class LongRange extends NumberRange {
+        private final long min;
+        private final long max;
+        private final BigDecimal minDecimal;
+        private final BigDecimal maxDecimal;
+
+        LongRange(ValueType type, long min, long max) {
+            super(type);
+            this.min = min;
+            this.max = max;
+            this.minDecimal = BigDecimal.valueOf(min);
+            this.maxDecimal = BigDecimal.valueOf(max);
+        }
+
+        @Override
+        boolean testLong(long value) {
+            return value <= max && value >= min;
+        }
+
+        @Override
+        boolean testDouble(double value) {
+            return value <= max && value >= min;
+        }
+
+        @Override
+        boolean testDecimal(BigDecimal value) {
+            return value.compareTo(maxDecimal) <= 0 && value.compareTo(minDecimal) >= 0;
+        }
+
+        @Override
+        boolean testBigInteger(BigInteger value) {
+            //超出long范围时必然超出[min, max]
+            return value.bitLength() <= 63 && testLong(value.longValue());
+        }
+    }
+
+    private static final class DoubleRange extends NumberRange {
+        private final double min;
+        private final double max;
+
+        /**
+         * 无穷大时为null，不限制
+         */
+        private final BigDecimal minDecimal;
+        private final BigDecimal maxDecimal;
+
+        DoubleRange(ValueType type, double min, double max) {
+            super(type);
+            this.min = min;
+            this.max = max;
+            this.minDecimal = Double.isInfinite(min) || Double.isNaN(min) ? null : new BigDecimal(min);
+            this.maxDecimal = Double.isInfinite(max) || Double.isNaN(max) ? null : new BigDecimal(max);
+        }
+
+        @Override
+        boolean testLong(long value) {
+            return value <= max && value >= min;
+        }
+
+        @Override
+        boolean testDouble(double value) {
+            return value <= max && value >= min;
+        }
+
+        @Override
+        boolean testDecimal(BigDecimal value) {
+            return (maxDecimal == null || value.compareTo(maxDecimal) <= 0) && (minDecimal == null || value.compareTo(minDecimal) >= 0);
+        }
+
+        @Override
+        boolean testBigInteger(BigInteger value) {
+            return testDecimal(new BigDecimal(value));
+        }
+    }
+
+    /**
+     * 长度范围，[min, max]：CharSequence为长度，Collection、Map为元素数，数组为长度，数值为String.valueOf的长度
+     */
+    private static final class Size extends ConstraintEvaluator {
+        private final ValueType type;
+        private final long min;
+        private final long max;
+
+        Size(ValueType type, long min, long max) {
+            this.type = type;
+            this.min = min;
+            this.max = max;
+        }
+
+        private boolean within(long length) {
+            return length <= max && length >= min;
+        }
+
+        @Override
+        boolean testLong(long value) {
+            return within(length(value));
+        }
+
+        /**
+         * double的十进制表示没有简单的长度算法，仍使用Double.toString
+         */
+        @Override
+        boolean testDouble(double value) {
+            return within(Double.toString(value).length());
+        }
+
+        @Override
+        boolean test(Object value) {
+            ValueType valueType = type == ValueType.DYNAMIC ? ValueType.of(value.getClass()) : type;
+            switch (valueType) {
+                case TEXT:
+                    return within(((CharSequence) value).length());
+                case COLLECTION:
+                    return within(((Collection<?>) value).size());
+                case MAP:
+                    return within(((Map<?, ?>) value).size());
+                case ARRAY:
+                    return within(Array.getLength(value));
+                case INTEGRAL:
+                    return testLong(((Number) value).longValue());
+                case DECIMAL:
+                    return within(length((BigDecimal) value));
+                case FLOATING:
+                case BIG_INTEGER:
+                case NUMBER:
+                    return within(value.toString().length());
+                default:
+                    throw unsupported("Number、String、Collection、Map或数组", value);
+            }
+        }
+    }
+
+    /**
+     * 通过反射调用本地方法
+     */
+    private static final class Reflective extends ConstraintEvaluator {
+        private final Method method;
+        private final Object[] parameters;
+
+        Reflective(Method method, Object[] parameters) {
+            this.method = method;
+            this.parameters = parameters;
+        }
+
+        /**
+         * @throws RuntimeException 本地校验方法抛出的异常，如参数类型异常
+         */
+        @Override
+        boolean test(Object value) {
+            Object[] arguments = new Object[parameters.length + 1];
+            arguments[0] = value;
+            System.arraycopy(parameters, 0, arguments, 1, parameters.length);
+            try {
+                return (boolean) method.invoke(null, arguments);
+            } catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                } else if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new IllegalStateException(cause);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
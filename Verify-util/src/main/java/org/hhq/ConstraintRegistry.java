@@ -0,0 +1,44 @@
+package org.hhq;
+
+import java.lang.annotation.Annotation;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.ServiceLoader;
+
+/**
+ * 通过{@link ServiceLoader}加载的{@link ConstraintValidator}，按注解类型索引
+ * 第一次使用时加载一次
+ *
+ * @author huhaiqing
+ */
+final class ConstraintRegistry {
+
+    private ConstraintRegistry() {
+    }
+
+    /**
+     * @return 注解对应的校验器，不存在时返回null
+     */
+    @SuppressWarnings("unchecked")
+    static ConstraintValidator<Annotation> get(Class<? extends Annotation> annotationType) {
+        return (ConstraintValidator<Annotation>) Holder.VALIDATORS.get(annotationType);
+    }
+
+    private static final class Holder {
+        static final Map<Class<?>, ConstraintValidator<?>> VALIDATORS = load();
+
+        private static Map<Class<?>, ConstraintValidator<?>> load() {
+            Map<Class<?>, ConstraintValidator<?>> validators = new HashMap<>();
+            ClassLoader loader = Thread.currentThread().getContextClassLoader();
+            for (ConstraintValidator<?> validator : ServiceLoader.load(ConstraintValidator.class, loader == null ? VerifyUtil.class.getClassLoader() : loader)) {
+                ConstraintValidator<?> previous = validators.put(validator.getAnnotationType(), validator);
+                if (previous != null && previous.getClass() != validator.getClass()) {
+                    throw new VerifyError(String.format("注解:%s 存在多个校验器：%s、%s", validator.getAnnotationType().getName(),
+                            previous.getClass().getName(), validator.getClass().getName()));
+                }
+            }
+            return Collections.unmodifiableMap(validators);
+        }
+    }
+}
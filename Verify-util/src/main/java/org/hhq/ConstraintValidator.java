@@ -0,0 +1,40 @@
+package org.hhq;
+
+import java.lang.annotation.Annotation;
+import java.util.function.Predicate;
+
+/**
+ * 扩展校验注解的校验器
+ * 实现类在 META-INF/services/org.hhq.ConstraintValidator 中登记，由{@link java.util.ServiceLoader}加载，每个实现只创建一个实例；
+ * 解析校验计划时对每个字段上的注解调用一次{@link #bind(Annotation, Class)}，取出注解参数并完成预处理(如编译正则表达式)，
+ * 之后每次校验只调用返回的{@link Predicate}
+ * <p>
+ * 与内置注解相同：字段值为empty时记录为违反，不调用校验；注解的value()为false时结果取反
+ *
+ * @param <A> 校验注解，需标注{@link org.hhq.annotation.Constraint}
+ * @author huhaiqing
+ */
+public interface ConstraintValidator<A extends Annotation> {
+
+    /**
+     * @return 校验的注解类型
+     */
+    Class<A> getAnnotationType();
+
+    /**
+     * @return 排序优先级，越小越先校验；NotNull为1，NotEmpty为2，Range、Size为3
+     */
+    default int getOrder() {
+        return 3;
+    }
+
+    /**
+     * 绑定字段上的注解
+     *
+     * @param annotation 字段上的注解
+     * @param fieldType  字段的声明类型
+     * @return 绑定了注解参数的校验，参数为不为empty的字段值，需线程安全
+     * @throws RuntimeException 注解不适用于该字段类型或注解参数错误，解析校验计划时转为{@link VerifyError}
+     */
+    Predicate<Object> bind(A annotation, Class<?> fieldType);
+}
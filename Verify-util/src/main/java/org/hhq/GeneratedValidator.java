@@ -0,0 +1,157 @@
+package org.hhq;
+
+/**
+ * 编译时生成的校验器
+ * {@link org.hhq.processor.ValidatorProcessor}为标注了校验注解的类生成名为 类名+Validator 的子类(如：{@code VerifyValidator})，
+ * 以普通Java代码完成注解校验；{@link VerifyUtil#verify(Object, String, boolean, Class[])}存在生成的校验器时直接使用，不存在时使用反射校验；
+ * 生成的校验器只校验{@link org.hhq.annotation.Default}分组
+ * <p>
+ * 嵌套类的校验器名称以_连接外部类名，如：{@code Outer.Inner}对应{@code Outer_InnerValidator}
+ *
+ * @param <T> 校验对象的类型
+ * @author huhaiqing
+ */
+public abstract class GeneratedValidator<T> {
+    /**
+     * 校验器名称的后缀
+     */
+    public static final String SUFFIX = "Validator";
+
+    private final Class<T> type;
+
+    protected GeneratedValidator(Class<T> type) {
+        this.type = type;
+    }
+
+    /**
+     * @return 校验对象的类
+     */
+    public final Class<T> getType() {
+        return type;
+    }
+
+    /**
+     * @return 需要校验的字段个数
+     */
+    public abstract int getFieldCount();
+
+    /**
+     * 校验第index个字段，与{@link VerifyUtil#validate(Object, String, boolean, ValidationResult)}的校验规则一致
+     * 字段需要向下校验时通过{@link #validateNested(Object, String, ValidationResult)}交由VerifyUtil在该字段之后校验
+     *
+     * @param verifyObject     校验对象
+     * @param index            字段下标，按声明顺序排列
+     * @param describeParam    如果没有校验描述的时候选用该描述
+     * @param annotationVerify 仅仅进行注解校验
+     * @param result           校验结果
+     * @return 是否继续校验，FAIL_FAST模式下违反校验后为false
+     */
+    public abstract boolean validateField(T verifyObject, int index, String describeParam, boolean annotationVerify, ValidationResult result);
+
+    /**
+     * @param type 校验对象的类
+     * @return 生成的校验器的类名
+     */
+    public static String validatorName(Class<?> type) {
+        String name = type.getName();
+        int index = name.lastIndexOf('.');
+        return name.substring(0, index + 1) + name.substring(index + 1).replace('$', '_') + SUFFIX;
+    }
+
+    /**
+     * 字段值为empty时记录违反的校验
+     *
+     * @return 是否继续校验
+     */
+    protected static boolean emptyViolation(ValidationResult result, String field, String constraint, String message) {
+        return result.add(field, constraint, message);
+    }
+
+    /**
+     * 记录违反的注解校验
+     *
+     * @param annotationName 注解类名
+     * @param describe       注解的describe()
+     * @return 是否继续校验
+     * @throws VerifyError 注解未提供describe
+     */
+    protected static boolean violation(ValidationResult result, String field, String annotationName, String describe) {
+        return VerifyUtil.violation(result, field, annotationName, describe);
+    }
+
+    /**
+     * 非注解校验时，String判断empty，其他类型判断null
+     *
+     * @return 是否继续校验
+     */
+    protected static boolean validatePresent(Object value, boolean string, String describeParam, ValidationResult result, String field) {
+        return VerifyUtil.validatePresent(value, string, describeParam, result, field);
+    }
+
+    /**
+     * 非普通类型的值在该字段之后向下校验
+     *
+     * @return 是否继续校验
+     */
+    protected static boolean validateNested(Object value, String field, ValidationResult result) {
+        return VerifyUtil.validateNested(value, field, result);
+    }
+
+    /**
+     * 与{@link VerifyUtil#range(Object, Long, Long)}一致
+     *
+     * @return 生成的代码中保存为静态常量，每次校验不再计算边界
+     */
+    protected static Bound range(Long max, Long min) {
+        long minimum = ConstraintEvaluator.minimum(min);
+        return new Bound(ConstraintEvaluator.longRange(ConstraintEvaluator.ValueType.DYNAMIC, ConstraintEvaluator.maximum(max, minimum), minimum));
+    }
+
+    /**
+     * 与{@link VerifyUtil#longRange(Object, Long, Long)}一致
+     */
+    protected static Bound longRange(Long max, Long min) {
+        return new Bound(ConstraintEvaluator.longRange(ConstraintEvaluator.ValueType.DYNAMIC, max, min));
+    }
+
+    /**
+     * 与{@link VerifyUtil#doubleRange(Object, Double, Double)}一致
+     */
+    protected static Bound doubleRange(Double max, Double min) {
+        return new Bound(ConstraintEvaluator.doubleRange(ConstraintEvaluator.ValueType.DYNAMIC, max, min));
+    }
+
+    /**
+     * 与{@link VerifyUtil#size(Object, Long, Long)}一致
+     */
+    protected static Bound size(Long max, Long min) {
+        long minimum = ConstraintEvaluator.minimum(min);
+        return new Bound(ConstraintEvaluator.size(ConstraintEvaluator.ValueType.DYNAMIC, minimum, ConstraintEvaluator.maximum(max, minimum)));
+    }
+
+    /**
+     * 声明类型无法直接比较的范围、长度注解，按值的实际类型校验
+     */
+    protected static final class Bound {
+        private final ConstraintEvaluator evaluator;
+
+        private Bound(ConstraintEvaluator evaluator) {
+            this.evaluator = evaluator;
+        }
+
+        /**
+         * @param value 字段值，不为null
+         */
+        public boolean test(Object value) {
+            return evaluator.test(value);
+        }
+
+        public boolean test(long value) {
+            return evaluator.testLong(value);
+        }
+
+        public boolean test(double value) {
+            return evaluator.testDouble(value);
+        }
+    }
+}
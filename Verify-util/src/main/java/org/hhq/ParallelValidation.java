@@ -0,0 +1,134 @@
+package org.hhq;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 集合的并行校验
+ * 元素数超过{@code threshold}的集合按每份最多{@code threshold}个元素拆分，交由{@link ForkJoinPool}并行校验；
+ * 每份写入独立的{@link ValidationResult}，完成后按下标顺序合并，因此结果与顺序校验一致
+ * <p>
+ * FAIL_FAST模式下记录已发现的最小违反下标，下标更大的元素不再校验
+ *
+ * @author huhaiqing
+ */
+final class ParallelValidation {
+
+    final ForkJoinPool pool;
+
+    /**
+     * 每份校验的最多元素数，元素数超过该值时并行
+     */
+    final int threshold;
+
+    ParallelValidation(ForkJoinPool pool, int threshold) {
+        if (pool == null) {
+            throw new NullPointerException();
+        }
+        if (threshold <= 0) {
+            throw new IllegalArgumentException("threshold必须大于0：" + threshold);
+        }
+        this.pool = pool;
+        this.threshold = threshold;
+    }
+
+    /**
+     * @param elements         集合元素或Map的值
+     * @param keys             Map的key，集合时为null
+     * @param field            集合所在的字段名称
+     * @param describeParam    如果没有校验描述的时候选用该描述
+     * @param annotationVerify 仅仅进行注解校验
+     * @param result           校验结果
+     * @return 是否继续校验
+     */
+    boolean validate(Object[] elements, Object[] keys, String field, String describeParam, boolean annotationVerify, ValidationResult result) {
+        ChunkTask task = new ChunkTask(elements, keys, field, describeParam, annotationVerify, result,
+                new ValidationResult[(elements.length + threshold - 1) / threshold], new AtomicInteger(Integer.MAX_VALUE));
+        //已在该线程池中时直接执行，子任务由当前线程拆分
+        if (ForkJoinTask.getPool() == pool) {
+            task.invoke();
+        } else {
+            pool.invoke(task);
+        }
+        for (ValidationResult part : task.parts) {
+            if (!result.addAll(part)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 按份拆分的任务，[from, to)为份的下标
+     */
+    private final class ChunkTask extends RecursiveAction {
+        private final Object[] elements;
+        private final Object[] keys;
+        private final String field;
+        private final String describeParam;
+        private final boolean annotationVerify;
+        private final ValidationResult result;
+        private final ValidationResult[] parts;
+
+        /**
+         * FAIL_FAST模式下已发现的最小违反下标
+         */
+        private final AtomicInteger firstFailure;
+        private final int from;
+        private final int to;
+
+        ChunkTask(Object[] elements, Object[] keys, String field, String describeParam, boolean annotationVerify,
+                  ValidationResult result, ValidationResult[] parts, AtomicInteger firstFailure) {
+            this(elements, keys, field, describeParam, annotationVerify, result, parts, firstFailure, 0, parts.length);
+        }
+
+        private ChunkTask(Object[] elements, Object[] keys, String field, String describeParam, boolean annotationVerify,
+                          ValidationResult result, ValidationResult[] parts, AtomicInteger firstFailure, int from, int to) {
+            this.elements = elements;
+            this.keys = keys;
+            this.field = field;
+            this.describeParam = describeParam;
+            this.annotationVerify = annotationVerify;
+            this.result = result;
+            this.parts = parts;
+            this.firstFailure = firstFailure;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                validateChunk(from);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new ChunkTask(elements, keys, field, describeParam, annotationVerify, result, parts, firstFailure, from, middle),
+                    new ChunkTask(elements, keys, field, describeParam, annotationVerify, result, parts, firstFailure, middle, to));
+        }
+
+        private void validateChunk(int chunk) {
+            ValidationResult part = result.fork();
+            parts[chunk] = part;
+            int end = Math.min(elements.length, (chunk + 1) * threshold);
+            for (int i = chunk * threshold; i < end && i <= firstFailure.get(); i++) {
+                if (keys == null) {
+                    part.push(field, i);
+                } else {
+                    part.push(field, keys[i]);
+                }
+                boolean next = VerifyUtil.validateObject(elements[i], describeParam, annotationVerify, part);
+                part.pop();
+                if (!next) {
+                    int failure;
+                    while (i < (failure = firstFailure.get()) && !firstFailure.compareAndSet(failure, i)) {
+                        //重试
+                    }
+                    return;
+                }
+            }
+        }
+    }
+}
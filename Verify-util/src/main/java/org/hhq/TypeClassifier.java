@@ -0,0 +1,110 @@
+package org.hhq;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * 类型分类
+ * 决定一个值是否需要向下校验以及如何向下校验，每个类只分类一次并缓存
+ * <p>
+ * 普通类型(SCALAR)：原始类型及其包装类型、Number、CharSequence、枚举、原始类型数组，以及JDK中除集合、Map、Optional以外的类，
+ * 如Date、LocalDate、UUID；按类判断而不是按简单类名判断，其他包中同名的类(如自定义的Date)按实际类型分类
+ *
+ * @author huhaiqing
+ */
+final class TypeClassifier {
+
+    enum Kind {
+        /**
+         * 普通类型，不向下校验
+         */
+        SCALAR,
+        /**
+         * 集合，校验每个元素
+         */
+        COLLECTION,
+        /**
+         * Map，校验每个值
+         */
+        MAP,
+        /**
+         * 对象数组，校验每个元素
+         */
+        ARRAY,
+        /**
+         * Optional，校验其中的值
+         */
+        OPTIONAL,
+        /**
+         * 其他对象，校验其字段
+         */
+        BEAN,
+        /**
+         * 仅用于声明类型：Object或接口，按值的实际类型分类
+         */
+        DYNAMIC
+    }
+
+    /**
+     * JDK类的包名前缀，这些类不是需要校验的对象
+     */
+    private static final String[] JDK_PACKAGES = {"java.", "javax.", "jdk.", "sun.", "com.sun."};
+
+    /**
+     * 按值的实际类型分类
+     */
+    private static final ClassValue<Kind> KINDS = new ClassValue<Kind>() {
+        @Override
+        protected Kind computeValue(Class<?> type) {
+            return classify(type);
+        }
+    };
+
+    private TypeClassifier() {
+    }
+
+    /**
+     * @param type 值的实际类型
+     * @return 分类，不为DYNAMIC
+     */
+    static Kind of(Class<?> type) {
+        return KINDS.get(type);
+    }
+
+    /**
+     * @param type 字段的声明类型
+     * @return 分类，Object及集合、Map以外的接口为DYNAMIC
+     */
+    static Kind ofDeclared(Class<?> type) {
+        if (type == Object.class || (type.isInterface() && !Collection.class.isAssignableFrom(type) && !Map.class.isAssignableFrom(type))) {
+            return Kind.DYNAMIC;
+        }
+        if (type.isArray() && (type.getComponentType() == Object.class || type.getComponentType().isInterface())) {
+            return Kind.ARRAY;
+        }
+        return of(type);
+    }
+
+    private static Kind classify(Class<?> type) {
+        if (type.isPrimitive() || Number.class.isAssignableFrom(type) || CharSequence.class.isAssignableFrom(type)
+                || type == Boolean.class || type == Character.class || type.isEnum() || Enum.class.isAssignableFrom(type)) {
+            return Kind.SCALAR;
+        } else if (type.isArray()) {
+            return type.getComponentType().isPrimitive() ? Kind.SCALAR : Kind.ARRAY;
+        } else if (Collection.class.isAssignableFrom(type)) {
+            return Kind.COLLECTION;
+        } else if (Map.class.isAssignableFrom(type)) {
+            return Kind.MAP;
+        } else if (type == Optional.class) {
+            return Kind.OPTIONAL;
+        }
+        String name = type.getName();
+        for (String jdkPackage : JDK_PACKAGES) {
+            if (name.startsWith(jdkPackage)) {
+                return Kind.SCALAR;
+            }
+        }
+        return Kind.BEAN;
+    }
+}
@@ -0,0 +1,272 @@
+package org.hhq;
+
+import org.hhq.annotation.Default;
+
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 校验计划
+ * 一个类需要校验的字段、字段上排序后的注解以及注解参数只与类有关，由{@link VerifyUtil}在第一次校验该类时解析一次并缓存，
+ * 之后的校验直接使用，不再获取字段、注解，也不再反射调用注解方法
+ * <p>
+ * 字段值通过缓存的{@link MethodHandle}读取，每次校验每个字段只读取一次；int、long、double字段按原始类型读取和校验，不装箱；
+ * 注解按字段类型使用{@link ConstraintEvaluator}求值
+ *
+ * @author huhaiqing
+ */
+final class ValidationPlan {
+
+    /**
+     * 需要校验的字段，按声明顺序排列
+     */
+    final FieldPlan[] fields;
+
+    /**
+     * 编译时生成的校验器，存在时不使用{@code fields}
+     */
+    final GeneratedValidator<Object> validator;
+
+    /**
+     * 字段名称对应的下标，仅反射校验时存在
+     */
+    private final Map<String, Integer> indexes;
+
+    ValidationPlan(FieldPlan[] fields) {
+        this.fields = fields;
+        this.validator = null;
+        this.indexes = new HashMap<>();
+        for (int i = 0; i < fields.length; i++) {
+            indexes.put(fields[i].field.getName(), i);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    ValidationPlan(GeneratedValidator<?> validator) {
+        this.fields = new FieldPlan[0];
+        this.validator = (GeneratedValidator<Object>) validator;
+        this.indexes = Collections.emptyMap();
+    }
+
+    /**
+     * @return 字段的下标，不存在时为-1
+     */
+    int indexOf(String name) {
+        Integer index = indexes.get(name);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * @return 需要校验的字段个数
+     */
+    int fieldCount() {
+        return validator != null ? validator.getFieldCount() : fields.length;
+    }
+
+    /**
+     * 字段值的读取方式
+     */
+    enum Kind {
+        OBJECT, INT, LONG, DOUBLE
+    }
+
+    /**
+     * 字段的校验计划
+     */
+    static final class FieldPlan {
+        /**
+         * 字段
+         */
+        final Field field;
+
+        final Kind kind;
+
+        /**
+         * 字段值的读取方法，OBJECT:(Object)Object，INT:(Object)int，LONG:(Object)long，DOUBLE:(Object)double
+         */
+        private final MethodHandle getter;
+
+        /**
+         * 是否为String类型，非注解校验时String判断empty，其他类型判断null
+         */
+        final boolean string;
+
+        /**
+         * 声明类型的分类，SCALAR时不需要向下校验，DYNAMIC时按值的实际类型分类
+         */
+        final TypeClassifier.Kind valueKind;
+
+        /**
+         * 排序后的注解校验
+         */
+        final ConstraintPlan[] constraints;
+
+        FieldPlan(Field field, ConstraintPlan[] constraints) throws IllegalAccessException {
+            this.field = field;
+            this.constraints = constraints;
+            Class<?> type = field.getType();
+            this.string = type == String.class;
+            this.valueKind = TypeClassifier.ofDeclared(type);
+            this.kind = type == int.class ? Kind.INT : type == long.class ? Kind.LONG : type == double.class ? Kind.DOUBLE : Kind.OBJECT;
+            field.setAccessible(true);
+            MethodHandle handle = MethodHandles.lookup().unreflectGetter(field);
+            if (Modifier.isStatic(field.getModifiers())) {
+                handle = MethodHandles.dropArguments(handle, 0, Object.class);
+            }
+            this.getter = handle.asType(MethodType.methodType(kind == Kind.OBJECT ? Object.class : type, Object.class));
+        }
+
+        Object get(Object target) {
+            try {
+                return (Object) getter.invokeExact(target);
+            } catch (Throwable e) {
+                throw rethrow(e);
+            }
+        }
+
+        int getInt(Object target) {
+            try {
+                return (int) getter.invokeExact(target);
+            } catch (Throwable e) {
+                throw rethrow(e);
+            }
+        }
+
+        long getLong(Object target) {
+            try {
+                return (long) getter.invokeExact(target);
+            } catch (Throwable e) {
+                throw rethrow(e);
+            }
+        }
+
+        /**
+         * @return 两个对象的该字段是否相同，原始类型按值比较，其他按equals(数组按内容)比较
+         */
+        boolean same(Object target, Object other) {
+            switch (kind) {
+                case INT:
+                    return getInt(target) == getInt(other);
+                case LONG:
+                    return getLong(target) == getLong(other);
+                case DOUBLE:
+                    return Double.compare(getDouble(target), getDouble(other)) == 0;
+                default:
+                    return Objects.deepEquals(get(target), get(other));
+            }
+        }
+
+        double getDouble(Object target) {
+            try {
+                return (double) getter.invokeExact(target);
+            } catch (Throwable e) {
+                throw rethrow(e);
+            }
+        }
+
+        private static RuntimeException rethrow(Throwable e) {
+            if (e instanceof RuntimeException) {
+                throw (RuntimeException) e;
+            } else if (e instanceof Error) {
+                throw (Error) e;
+            }
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 注解的校验计划：按字段类型选择的求值器以及已取出的注解参数
+     */
+    static final class ConstraintPlan {
+        final Annotation annotation;
+
+        /**
+         * 注解名称，如：NotNull
+         */
+        final String name;
+
+        /**
+         * 按注解对应的本地方法及字段类型选择的求值器
+         */
+        private final ConstraintEvaluator evaluator;
+
+        /**
+         * 注解的value()，允许否定注解
+         */
+        final boolean expected;
+
+        /**
+         * 注解的describe()
+         */
+        final Object describe;
+
+        /**
+         * 字段值为empty时的描述
+         */
+        final String emptyDescribe;
+
+        /**
+         * 注解所属的分组，只属于{@link Default}时为null
+         */
+        private final Class<?>[] groups;
+
+        /**
+         * @param groups 注解所属的分组，为空时属于{@link Default}
+         */
+        ConstraintPlan(Annotation annotation, ConstraintEvaluator evaluator, boolean expected, Object describe, String emptyDescribe,
+                       Class<?>[] groups) {
+            this.annotation = annotation;
+            this.groups = groups == null || groups.length == 0 || (groups.length == 1 && groups[0] == Default.class) ? null : groups;
+            this.name = annotation.annotationType().getSimpleName();
+            this.evaluator = evaluator;
+            this.expected = expected;
+            this.describe = describe;
+            this.emptyDescribe = emptyDescribe;
+        }
+
+        /**
+         * @return 是否属于本次校验的分组
+         */
+        boolean isActive(ValidationResult result) {
+            return result.isActive(groups);
+        }
+
+        /**
+         * int字段的校验
+         */
+        boolean testInt(int value) {
+            return evaluator.testLong(value);
+        }
+
+        /**
+         * long字段的校验
+         */
+        boolean testLong(long value) {
+            return evaluator.testLong(value);
+        }
+
+        /**
+         * double字段的校验
+         */
+        boolean testDouble(double value) {
+            return evaluator.testDouble(value);
+        }
+
+        /**
+         * @param value 字段值
+         * @return 求值结果
+         * @throws RuntimeException 求值时抛出的异常，如参数类型异常
+         */
+        boolean test(Object value) {
+            return evaluator.test(value);
+        }
+    }
+}
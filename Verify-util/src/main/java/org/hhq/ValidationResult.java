@@ -0,0 +1,406 @@
+package org.hhq;
+
+import org.hhq.annotation.Default;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * 校验结果
+ * {@link VerifyUtil#validate(Object, String, boolean, ValidationResult)}不抛出校验异常，违反的校验以{@link Violation}记录在结果中，
+ * 包含字段路径(如：items[1].name)、注解名称及描述
+ * <p>
+ * FAIL_FAST模式在第一个违反的校验后停止，COLLECT_ALL模式记录全部违反的校验
+ * <p>
+ * 结果同时指定校验的分组：只校验属于这些分组(或其父接口)的注解，未指定时为{@link Default}
+ * <p>
+ * 结果可以通过{@link #clear()}复用：校验通过时不分配对象，只有违反校验时才创建{@link Violation}，且不获取堆栈
+ * <p>
+ * 集合的并行校验({@link #setParallel(int)})及最大校验深度({@link #setMaxDepth(int)})设置在结果上，只对使用该结果的校验生效，复用时保留
+ * <p>
+ * 实例保存校验状态，不是线程安全的
+ *
+ * @author huhaiqing
+ */
+public final class ValidationResult {
+
+    /**
+     * 校验模式
+     */
+    public enum Mode {
+        /**
+         * 第一个违反的校验后停止
+         */
+        FAIL_FAST,
+        /**
+         * 记录全部违反的校验
+         */
+        COLLECT_ALL
+    }
+
+    private final Mode mode;
+
+    private static final Class<?>[] DEFAULT_GROUPS = {Default.class};
+
+    /**
+     * 校验的分组，未指定时为{Default.class}
+     */
+    private final Class<?>[] groups;
+
+    /**
+     * 是否只校验{@link Default}
+     */
+    private final boolean defaultGroup;
+
+    /**
+     * 违反的校验，第一次违反时创建
+     */
+    private List<Violation> violations;
+
+    /**
+     * 当前字段路径：字段名称，集合下标(无下标时为-1)，Map的key
+     */
+    private String[] pathNames = new String[8];
+    private int[] pathIndexes = new int[8];
+    private Object[] pathKeys = new Object[8];
+    private int depth;
+
+    /**
+     * 校验对象图时使用的显式栈，第一次校验时创建
+     */
+    private WorkStack stack;
+
+    /**
+     * 集合的并行校验，为null时顺序校验
+     */
+    private ParallelValidation parallel;
+
+    /**
+     * 最大校验深度，根对象为0，字段值或集合元素每深一层加1
+     */
+    private int maxDepth = Integer.MAX_VALUE;
+
+    /**
+     * @param mode   校验模式
+     * @param groups 校验的分组，未指定时为{@link Default}
+     */
+    public ValidationResult(Mode mode, Class<?>... groups) {
+        if (mode == null) {
+            throw new NullPointerException();
+        }
+        this.mode = mode;
+        this.groups = groups == null || groups.length == 0 ? DEFAULT_GROUPS : groups.clone();
+        this.defaultGroup = this.groups.length == 1 && this.groups[0] == Default.class;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * @return 校验的分组
+     */
+    public Class<?>[] getGroups() {
+        return groups.clone();
+    }
+
+    /**
+     * 开启集合的并行校验，使用公共ForkJoinPool
+     *
+     * @param threshold 元素数超过该值的集合(或Map)并行校验，每个任务最多校验threshold个元素
+     * @return 该结果
+     */
+    public ValidationResult setParallel(int threshold) {
+        return setParallel(ForkJoinPool.commonPool(), threshold);
+    }
+
+    /**
+     * 开启集合的并行校验
+     * 元素数超过threshold的集合(或Map)拆分后交由pool并行校验，违反的校验按下标顺序合并，结果与顺序校验一致；
+     * 自定义校验中有阻塞操作时应使用独立的线程池
+     *
+     * @param pool      校验使用的线程池
+     * @param threshold 元素数超过该值的集合(或Map)并行校验，每个任务最多校验threshold个元素
+     * @return 该结果
+     */
+    public ValidationResult setParallel(ForkJoinPool pool, int threshold) {
+        this.parallel = new ParallelValidation(pool, threshold);
+        return this;
+    }
+
+    /**
+     * 关闭集合的并行校验
+     *
+     * @return 该结果
+     */
+    public ValidationResult disableParallel() {
+        this.parallel = null;
+        return this;
+    }
+
+    public boolean isParallel() {
+        return parallel != null;
+    }
+
+    /**
+     * @return 集合的并行校验，为null时顺序校验
+     */
+    ParallelValidation parallel() {
+        return parallel;
+    }
+
+    /**
+     * 设置最大校验深度
+     * 超过该深度的对象不再校验，记录为MaxDepth的违反
+     *
+     * @param depth 最大校验深度，根对象为0，字段值或集合元素每深一层加1
+     * @return 该结果
+     */
+    public ValidationResult setMaxDepth(int depth) {
+        if (depth < 0) {
+            throw new IllegalArgumentException("depth不能小于0：" + depth);
+        }
+        this.maxDepth = depth;
+        return this;
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * @return 是否只校验{@link Default}，是时可以使用编译时生成的校验器
+     */
+    boolean isDefaultGroup() {
+        return defaultGroup;
+    }
+
+    /**
+     * @param constraintGroups 注解所属的分组，为null时属于{@link Default}
+     * @return 注解是否需要校验：校验的分组为注解所属分组或其子接口
+     */
+    boolean isActive(Class<?>[] constraintGroups) {
+        if (constraintGroups == null) {
+            if (defaultGroup) {
+                return true;
+            }
+            constraintGroups = DEFAULT_GROUPS;
+        }
+        for (Class<?> group : groups) {
+            for (Class<?> constraintGroup : constraintGroups) {
+                if (constraintGroup.isAssignableFrom(group)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return 是否没有违反的校验
+     */
+    public boolean isValid() {
+        return violations == null || violations.isEmpty();
+    }
+
+    /**
+     * @return 违反的校验，按校验顺序排列
+     */
+    public List<Violation> getViolations() {
+        return violations == null ? Collections.<Violation>emptyList() : Collections.unmodifiableList(violations);
+    }
+
+    /**
+     * @return 违反的校验个数
+     */
+    public int size() {
+        return violations == null ? 0 : violations.size();
+    }
+
+    /**
+     * 清空结果以便复用
+     */
+    public void clear() {
+        if (violations != null) {
+            violations.clear();
+        }
+        Arrays.fill(pathKeys, 0, depth, null);
+        depth = 0;
+    }
+
+    /**
+     * 记录违反的校验
+     *
+     * @param field      当前对象的字段名称，为null时路径即当前路径
+     * @param constraint 注解名称
+     * @param message    描述
+     * @return 是否继续校验
+     */
+    boolean add(String field, String constraint, String message) {
+        if (violations == null) {
+            violations = new ArrayList<>();
+        }
+        violations.add(new Violation(path(field), constraint, message));
+        return mode == Mode.COLLECT_ALL;
+    }
+
+    /**
+     * @return 模式、分组、并行设置、最大深度及当前字段路径相同的空结果，用于并行校验集合的一部分
+     */
+    ValidationResult fork() {
+        ValidationResult part = new ValidationResult(mode, groups);
+        part.parallel = parallel;
+        part.maxDepth = maxDepth;
+        part.pathNames = Arrays.copyOf(pathNames, pathNames.length);
+        part.pathIndexes = Arrays.copyOf(pathIndexes, pathIndexes.length);
+        part.pathKeys = Arrays.copyOf(pathKeys, pathKeys.length);
+        part.depth = depth;
+        part.stack().inheritAncestors(stack());
+        return part;
+    }
+
+    /**
+     * 合并{@link #fork()}得到的结果
+     *
+     * @return 是否继续校验
+     */
+    boolean addAll(ValidationResult part) {
+        if (part.isValid()) {
+            return true;
+        }
+        if (violations == null) {
+            violations = new ArrayList<>();
+        }
+        violations.addAll(part.violations);
+        return mode == Mode.COLLECT_ALL;
+    }
+
+    /**
+     * 进入字段的值(非集合)
+     */
+    void push(String field) {
+        push(field, -1, null);
+    }
+
+    /**
+     * 进入集合字段的第index个元素
+     */
+    void push(String field, int index) {
+        push(field, index, null);
+    }
+
+    /**
+     * 进入Map字段中key对应的值
+     */
+    void push(String field, Object key) {
+        push(field, -1, key);
+    }
+
+    private void push(String field, int index, Object key) {
+        if (depth == pathNames.length) {
+            pathNames = Arrays.copyOf(pathNames, depth * 2);
+            pathIndexes = Arrays.copyOf(pathIndexes, depth * 2);
+            pathKeys = Arrays.copyOf(pathKeys, depth * 2);
+        }
+        pathNames[depth] = field;
+        pathIndexes[depth] = index;
+        pathKeys[depth] = key;
+        depth++;
+    }
+
+    void pop() {
+        pathKeys[--depth] = null;
+    }
+
+    /**
+     * @return 当前路径的深度，即当前对象在对象图中的深度
+     */
+    int depth() {
+        return depth;
+    }
+
+    /**
+     * 弹出路径直到深度为{@code depth}
+     */
+    void truncatePath(int depth) {
+        while (this.depth > depth) {
+            pop();
+        }
+    }
+
+    WorkStack stack() {
+        if (stack == null) {
+            stack = new WorkStack();
+        }
+        return stack;
+    }
+
+    private String path(String field) {
+        if (depth == 0) {
+            return field == null ? "" : field;
+        }
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < depth; i++) {
+            //集合本身是元素时字段名称为空，如：values[0][1]
+            if (i > 0 && !pathNames[i].isEmpty()) {
+                builder.append('.');
+            }
+            builder.append(pathNames[i]);
+            if (pathKeys[i] != null) {
+                builder.append('[').append(pathKeys[i]).append(']');
+            } else if (pathIndexes[i] >= 0) {
+                builder.append('[').append(pathIndexes[i]).append(']');
+            }
+        }
+        return field == null ? builder.toString() : builder.append('.').append(field).toString();
+    }
+
+    @Override
+    public String toString() {
+        return "ValidationResult" + getViolations();
+    }
+
+    /**
+     * 违反的校验
+     */
+    public static final class Violation {
+        private final String path;
+        private final String constraint;
+        private final String message;
+
+        Violation(String path, String constraint, String message) {
+            this.path = path;
+            this.constraint = constraint;
+            this.message = message;
+        }
+
+        /**
+         * @return 字段路径，如：owner.name、items[1].age、values[key].age
+         */
+        public String getPath() {
+            return path;
+        }
+
+        /**
+         * @return 注解名称，如：NotNull；非注解校验时String为NotEmpty，其他类型为NotNull；超过最大校验深度时为MaxDepth
+         */
+        public String getConstraint() {
+            return constraint;
+        }
+
+        /**
+         * @return 注解的describe，非注解校验时为传入的描述
+         */
+        public String getMessage() {
+            return message;
+        }
+
+        @Override
+        public String toString() {
+            return path + "(" + constraint + "):" + message;
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package org.hhq;
+
+import org.hhq.annotation.Default;
+import org.hhq.annotation.Valid;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Parameter;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 方法校验代理
+ * 为接口创建{@link Proxy}，调用方法前校验标注了校验注解的参数，调用后校验标注了校验注解的方法返回值；
+ * 参数或方法上标注{@link Valid}时按值的字段注解向下校验
+ * <p>
+ * 每个方法需要校验的参数、参数上排序后的注解校验只与接口有关，第一次为该接口创建代理时解析一次并缓存，
+ * 之后的调用只读取缓存的计划；没有校验注解的方法直接调用
+ * <p>
+ * 参数违反校验时抛出{@link IllegalArgumentException}，返回值违反校验时抛出{@link IllegalStateException}，
+ * 信息为第一个违反的校验描述；被代理对象抛出的异常原样抛出
+ *
+ * @author huhaiqing
+ */
+public final class VerifyProxy {
+
+    /**
+     * 返回值在违反校验时的名称
+     */
+    private static final String RETURN_NAME = "return";
+
+    /**
+     * 接口方法的校验计划缓存
+     */
+    private static final ClassValue<Map<Method, MethodPlan>> PLANS = new ClassValue<Map<Method, MethodPlan>>() {
+        @Override
+        protected Map<Method, MethodPlan> computeValue(Class<?> type) {
+            Map<Method, MethodPlan> plans = new HashMap<>();
+            for (Method method : type.getMethods()) {
+                plans.put(method, new MethodPlan(method));
+            }
+            return plans;
+        }
+    };
+
+    private VerifyProxy() {
+    }
+
+    /**
+     * 创建校验代理
+     *
+     * @param type   代理的接口
+     * @param target 被代理的对象
+     * @param groups 校验的分组，未指定时为{@link Default}
+     * @param <T>    接口类型
+     * @return 调用方法时校验参数及返回值的代理
+     * @throws IllegalArgumentException type不是接口
+     */
+    public static <T> T create(Class<T> type, T target, Class<?>... groups) {
+        if (!type.isInterface()) {
+            throw new IllegalArgumentException(String.format("%s 不是接口", type.getName()));
+        }
+        if (target == null) {
+            throw new NullPointerException();
+        }
+        Handler handler = new Handler(target, PLANS.get(type), groups);
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+
+    private static final class Handler implements InvocationHandler {
+        private final Object target;
+
+        private final Map<Method, MethodPlan> plans;
+
+        private final Class<?>[] groups;
+
+        /**
+         * 每个线程复用一个结果，参数与返回值的校验各自清空后使用，校验结束前不调用被代理对象
+         */
+        private final ThreadLocal<ValidationResult> results;
+
+        Handler(Object target, Map<Method, MethodPlan> plans, Class<?>[] groups) {
+            this.target = target;
+            this.plans = plans;
+            this.groups = groups.clone();
+            this.results = ThreadLocal.withInitial(() -> new ValidationResult(ValidationResult.Mode.FAIL_FAST, this.groups));
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            MethodPlan plan = plans.get(method);
+            if (plan == null) {
+                //Object的方法
+                return invoke(method, args);
+            }
+            if (plan.parameters.length > 0) {
+                ValidationResult result = results.get();
+                result.clear();
+                for (ParameterPlan parameter : plan.parameters) {
+                    if (!VerifyUtil.validateValue(args[parameter.index], parameter.name, parameter.constraints, parameter.cascade, result)) {
+                        break;
+                    }
+                }
+                if (!result.isValid()) {
+                    throw new IllegalArgumentException(result.getViolations().get(0).getMessage());
+                }
+            }
+            Object value = invoke(plan.method, args);
+            if (plan.returnValue != null) {
+                ValidationResult result = results.get();
+                result.clear();
+                VerifyUtil.validateValue(value, RETURN_NAME, plan.returnValue.constraints, plan.returnValue.cascade, result);
+                if (!result.isValid()) {
+                    throw new IllegalStateException(result.getViolations().get(0).getMessage());
+                }
+            }
+            return value;
+        }
+
+        private Object invoke(Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    /**
+     * 方法的校验计划
+     */
+    private static final class MethodPlan {
+        /**
+         * 调用被代理对象的方法，非public接口的方法已设置为可访问
+         */
+        final Method method;
+
+        /**
+         * 需要校验的参数，按参数顺序排列
+         */
+        final ParameterPlan[] parameters;
+
+        /**
+         * 返回值的校验，不需要校验时为null
+         */
+        final ParameterPlan returnValue;
+
+        MethodPlan(Method method) {
+            this.method = method;
+            if (!Modifier.isPublic(method.getDeclaringClass().getModifiers())) {
+                method.setAccessible(true);
+            }
+            List<ParameterPlan> plans = new ArrayList<>();
+            Parameter[] parameters = method.getParameters();
+            for (int i = 0; i < parameters.length; i++) {
+                ParameterPlan plan = ParameterPlan.of(i, parameters[i].getName(), parameters[i].getType(), parameters[i].getAnnotations(),
+                        parameters[i].isAnnotationPresent(Valid.class));
+                if (plan != null) {
+                    plans.add(plan);
+                }
+            }
+            this.parameters = plans.toArray(new ParameterPlan[0]);
+            this.returnValue = method.getReturnType() == void.class ? null
+                    : ParameterPlan.of(-1, RETURN_NAME, method.getReturnType(), method.getAnnotations(), method.isAnnotationPresent(Valid.class));
+        }
+    }
+
+    /**
+     * 参数或返回值的校验计划
+     */
+    private static final class ParameterPlan {
+        /**
+         * 参数下标，返回值为-1
+         */
+        final int index;
+
+        /**
+         * 参数名称，编译时未指定-parameters时为arg0、arg1...
+         */
+        final String name;
+
+        /**
+         * 排序后的注解校验
+         */
+        final ValidationPlan.ConstraintPlan[] constraints;
+
+        /**
+         * 是否标注了{@link Valid}
+         */
+        final boolean cascade;
+
+        private ParameterPlan(int index, String name, ValidationPlan.ConstraintPlan[] constraints, boolean cascade) {
+            this.index = index;
+            this.name = name;
+            this.constraints = constraints;
+            this.cascade = cascade;
+        }
+
+        /**
+         * @return 校验计划，没有校验注解且未标注{@link Valid}时为null
+         */
+        static ParameterPlan of(int index, String name, Class<?> type, Annotation[] annotations, boolean cascade) {
+            ValidationPlan.ConstraintPlan[] constraints = VerifyUtil.buildConstraints(name, type, annotations);
+            return constraints.length == 0 && !cascade ? null : new ParameterPlan(index, name, constraints, cascade);
+        }
+    }
+}
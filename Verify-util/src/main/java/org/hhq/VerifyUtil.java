@@ -1,5 +1,7 @@
 package org.hhq;
 
+import org.hhq.annotation.Constraint;
+import org.hhq.annotation.Default;
 import org.hhq.annotation.verify.NotEmpty;
 import org.hhq.annotation.verify.NotNull;
 
@@ -15,11 +17,6 @@ import java.util.stream.Collectors;
  * @author huhaiqing
  */
 public class VerifyUtil {
-    /**
-     * 创建一个本地对象
-     * 用于调用本地方法
-     */
-    private static final VerifyUtil VERIFY_UTIL;
     /**
      * 校验注解扩展
      * key:注解名称
@@ -50,12 +47,13 @@ public class VerifyUtil {
     private static final Class<?> VERIFYUTIL_CLASS = VerifyUtil.class;
 
     static {
-        VERIFY_UTIL = new VerifyUtil();
         verifyMap = new HashMap<>();
         verifyMap.put("NotEmpty", new String[]{"isNotEmpty"});
         verifyMap.put("NotNull", new String[]{"isNotNull"});
         verifyMap.put("Range", new String[]{"range", "max", "min"});
         verifyMap.put("Size", new String[]{"size", "max", "min"});
+        verifyMap.put("LongRange", new String[]{"longRange", "max", "min"});
+        verifyMap.put("DoubleRange", new String[]{"doubleRange", "max", "min"});
     }
 
     static {
@@ -64,6 +62,8 @@ public class VerifyUtil {
         methodMap.put("isNotNull", new Class[]{Object.class});
         methodMap.put("range", new Class[]{Object.class, Long.class, Long.class});
         methodMap.put("size", new Class[]{Object.class, Long.class, Long.class});
+        methodMap.put("longRange", new Class[]{Object.class, Long.class, Long.class});
+        methodMap.put("doubleRange", new Class[]{Object.class, Double.class, Double.class});
     }
 
     static {
@@ -73,88 +73,660 @@ public class VerifyUtil {
         //下面两个不需要重新排序
         sortMap.put("Range",3);
         sortMap.put("Size",3);
+        sortMap.put("LongRange",3);
+        sortMap.put("DoubleRange",3);
     }
 
+    /**
+     * 校验计划缓存
+     * key:校验对象的类，value:该类的校验计划，第一次校验该类时解析
+     */
+    private static final ClassValue<ValidationPlan> PLANS = new ClassValue<ValidationPlan>() {
+        @Override
+        protected ValidationPlan computeValue(Class<?> type) {
+            return buildPlan(type);
+        }
+    };
+
+    /**
+     * 反射校验计划缓存
+     * 编译时生成的校验器只校验{@link Default}分组，校验其他分组或只校验部分字段时使用反射校验计划
+     */
+    private static final ClassValue<ValidationPlan> REFLECTIVE_PLANS = new ClassValue<ValidationPlan>() {
+        @Override
+        protected ValidationPlan computeValue(Class<?> type) {
+            ValidationPlan plan = PLANS.get(type);
+            return plan.validator == null ? plan : buildReflectivePlan(type);
+        }
+    };
+
     /**
      * 校验方法
      *
      * @param verifyObject     校验对象
      * @param describeParam    如果没有校验描述的时候选用该描述
      * @param annotationVerify 仅仅进行注解校验
+     * @param groups           校验的分组，未指定时为{@link Default}
      * @param <T>              泛型扩展
      * @throws Exception       校验结果通过异常方式抛出
      */
-    public static <T> void verify(T verifyObject, String describeParam, boolean annotationVerify) throws Exception {
+    public static <T> void verify(T verifyObject, String describeParam, boolean annotationVerify, Class<?>... groups) throws Exception {
+        ValidationResult result = new ValidationResult(ValidationResult.Mode.FAIL_FAST, groups);
+        if (!validate(verifyObject, describeParam, annotationVerify, result)) {
+            throw new Exception(result.getViolations().get(0).getMessage());
+        }
+    }
+
+    /**
+     * 校验方法，不抛出校验异常
+     *
+     * @param verifyObject     校验对象
+     * @param describeParam    如果没有校验描述的时候选用该描述
+     * @param annotationVerify 仅仅进行注解校验
+     * @param mode             校验模式
+     * @param groups           校验的分组，未指定时为{@link Default}
+     * @param <T>              泛型扩展
+     * @return 校验结果
+     */
+    public static <T> ValidationResult validate(T verifyObject, String describeParam, boolean annotationVerify, ValidationResult.Mode mode,
+                                                Class<?>... groups) {
+        ValidationResult result = new ValidationResult(mode, groups);
+        validate(verifyObject, describeParam, annotationVerify, result);
+        return result;
+    }
+
+    /**
+     * 校验方法，不抛出校验异常，违反的校验追加到result中
+     * result可通过{@link ValidationResult#clear()}复用，校验通过时不分配对象
+     *
+     * @param verifyObject     校验对象
+     * @param describeParam    如果没有校验描述的时候选用该描述
+     * @param annotationVerify 仅仅进行注解校验
+     * @param result           校验结果，按其模式决定违反校验后是否继续，按其分组决定校验的注解
+     * @param <T>              泛型扩展
+     * @return 本次校验是否通过
+     */
+    public static <T> boolean validate(T verifyObject, String describeParam, boolean annotationVerify, ValidationResult result) {
+        int size = result.size();
+        validateObject(verifyObject, describeParam, annotationVerify, result);
+        return result.size() == size;
+    }
+
+    /**
+     * 只校验指定的字段，用于只修改部分字段的场景
+     * 仅进行注解校验，校验{@link Default}分组；指定字段的值为对象或集合时向下校验，其他字段不读取
+     *
+     * @param verifyObject 校验对象
+     * @param properties   校验的字段名称
+     * @param <T>          泛型扩展
+     * @throws Exception   校验结果通过异常方式抛出
+     */
+    public static <T> void verifyProperties(T verifyObject, String... properties) throws Exception {
+        ValidationResult result = new ValidationResult(ValidationResult.Mode.FAIL_FAST);
+        if (!validateProperties(verifyObject, null, true, result, properties)) {
+            throw new Exception(result.getViolations().get(0).getMessage());
+        }
+    }
+
+    /**
+     * 只校验指定的字段，不抛出校验异常，违反的校验追加到result中
+     * 字段按声明顺序校验
+     *
+     * @param verifyObject     校验对象
+     * @param describeParam    如果没有校验描述的时候选用该描述
+     * @param annotationVerify 仅仅进行注解校验
+     * @param result           校验结果
+     * @param properties       校验的字段名称
+     * @param <T>              泛型扩展
+     * @return 本次校验是否通过
+     * @throws IllegalArgumentException 字段不存在
+     */
+    public static <T> boolean validateProperties(T verifyObject, String describeParam, boolean annotationVerify, ValidationResult result,
+                                                 String... properties) {
         assertNull(verifyObject);
-        Class cls = verifyObject.getClass();
-        Field[] fields = cls.getDeclaredFields();
-        Method method = null;
-        Object object =  null;
-        String[] paramStr = null;
-        Object[] paramObj = null;
-        for (Field field : fields) {
-            //方便field获取值
-            field.setAccessible(true);
-            //添加额外注解
-            Collection<Annotation> annotations = getAdditionalAnnotations(field.getDeclaredAnnotations());
-            //本注解
-            annotations.addAll(Arrays.asList(field.getDeclaredAnnotations()));
-            //过滤以及排序
-            annotations = filterAndSortedAnnotation(annotations);
-            for (Annotation annotation : annotations) {
-                Class<? extends Annotation> annotationType = annotation.annotationType();
-                if (verifyMap.containsKey(annotationType.getSimpleName())) {
-                    paramStr = verifyMap.get(annotationType.getSimpleName());
-                    //调用本类方法需要传入的参数
-                    paramObj = new Object[paramStr.length];
-                    //第一个参数值
-                    paramObj[0] = field.get(verifyObject);
-                    for (int j = 1; j < paramStr.length; j++) {
-                        method = annotationType.getDeclaredMethod(paramStr[j]);
-                        paramObj[j] = method.invoke(annotation);
+        ValidationPlan plan = REFLECTIVE_PLANS.get(verifyObject.getClass());
+        int[] selection = new int[properties.length];
+        for (int i = 0; i < properties.length; i++) {
+            selection[i] = plan.indexOf(properties[i]);
+            if (selection[i] < 0) {
+                throw new IllegalArgumentException(String.format("字段不存在：%s.%s", verifyObject.getClass().getName(), properties[i]));
+            }
+        }
+        Arrays.sort(selection);
+        return validateSelection(verifyObject, plan, selection, describeParam, annotationVerify, result);
+    }
+
+    /**
+     * 只校验与快照相比发生变化的字段，用于只修改部分字段的场景
+     * 仅进行注解校验，校验{@link Default}分组
+     *
+     * @param verifyObject 校验对象
+     * @param snapshot     修改前的快照，与校验对象为同一个类
+     * @param <T>          泛型扩展
+     * @throws Exception   校验结果通过异常方式抛出
+     */
+    public static <T> void verifyChanged(T verifyObject, T snapshot) throws Exception {
+        ValidationResult result = new ValidationResult(ValidationResult.Mode.FAIL_FAST);
+        if (!validateChanged(verifyObject, snapshot, null, true, result)) {
+            throw new Exception(result.getViolations().get(0).getMessage());
+        }
+    }
+
+    /**
+     * 只校验与快照相比发生变化的字段，不抛出校验异常，违反的校验追加到result中
+     * 原始类型按值比较，其他类型按equals(数组按内容)比较；未重写equals的对象按引用比较，快照为浅拷贝时未修改的对象不会重复校验
+     *
+     * @param verifyObject     校验对象
+     * @param snapshot         修改前的快照，与校验对象为同一个类
+     * @param describeParam    如果没有校验描述的时候选用该描述
+     * @param annotationVerify 仅仅进行注解校验
+     * @param result           校验结果
+     * @param <T>              泛型扩展
+     * @return 本次校验是否通过
+     * @throws IllegalArgumentException 快照与校验对象不是同一个类
+     */
+    public static <T> boolean validateChanged(T verifyObject, T snapshot, String describeParam, boolean annotationVerify, ValidationResult result) {
+        assertNull(verifyObject);
+        assertNull(snapshot);
+        if (snapshot.getClass() != verifyObject.getClass()) {
+            throw new IllegalArgumentException(String.format("快照类型%s与校验对象类型%s不一致", snapshot.getClass().getName(), verifyObject.getClass().getName()));
+        }
+        ValidationPlan plan = REFLECTIVE_PLANS.get(verifyObject.getClass());
+        int[] selection = new int[plan.fields.length];
+        int count = 0;
+        for (int i = 0; i < plan.fields.length; i++) {
+            if (!plan.fields[i].same(verifyObject, snapshot)) {
+                selection[count++] = i;
+            }
+        }
+        return count == 0 || validateSelection(verifyObject, plan, Arrays.copyOf(selection, count), describeParam, annotationVerify, result);
+    }
+
+    private static boolean validateSelection(Object verifyObject, ValidationPlan plan, int[] selection, String describeParam,
+                                             boolean annotationVerify, ValidationResult result) {
+        if (TypeClassifier.of(verifyObject.getClass()) != TypeClassifier.Kind.BEAN) {
+            throw new IllegalArgumentException(String.format("%s 没有可校验的字段", verifyObject.getClass().getName()));
+        }
+        int size = result.size();
+        WorkStack stack = result.stack();
+        int base = stack.size();
+        int pathDepth = result.depth();
+        try {
+            if (stack.pushObject(verifyObject, plan, false, selection)) {
+                walk(stack, base, describeParam, annotationVerify, result);
+            }
+        } finally {
+            stack.truncate(base);
+            result.truncatePath(pathDepth);
+        }
+        return result.size() == size;
+    }
+
+    /**
+     * 以verifyObject为根，按字段顺序深度优先校验对象图
+     * 使用{@link WorkStack}代替递归；已在当前路径上的对象(循环引用)不再进入，超过最大深度的对象记录为MaxDepth并不再进入
+     *
+     * @return 是否继续校验，FAIL_FAST模式下违反校验后为false
+     */
+    static boolean validateObject(Object verifyObject, String describeParam, boolean annotationVerify, ValidationResult result) {
+        assertNull(verifyObject);
+        WorkStack stack = result.stack();
+        int base = stack.size();
+        int pathDepth = result.depth();
+        try {
+            return descend(verifyObject, TypeClassifier.of(verifyObject.getClass()), null, false, stack, describeParam, annotationVerify, result)
+                    && walk(stack, base, describeParam, annotationVerify, result);
+        } finally {
+            //提前结束或异常时恢复
+            stack.truncate(base);
+            result.truncatePath(pathDepth);
+        }
+    }
+
+    private static boolean walk(WorkStack stack, int base, String describeParam, boolean annotationVerify, ValidationResult result) {
+        while (stack.size() > base) {
+            int top = stack.size() - 1;
+            if (!stack.isObject(top)) {
+                if (!stack.hasNextElement(top)) {
+                    if (stack.pop()) {
+                        result.pop();
                     }
-                    //允许否定注解
-                    object = annotationType.getDeclaredMethod("value").invoke(annotation);
-                    if(!isNotEmpty(paramObj[0])){
-                        if(annotation instanceof NotEmpty){
-                            throw new Exception(((NotEmpty)annotation).describe());
-                        }else if(annotation instanceof NotNull){
-                            throw new Exception(((NotNull)annotation).describe());
-                        }else{
-                            throw new Exception(String.format("%s:值为空",field.getName()));
-                        }
-                    }else if ((boolean) object != (boolean) getMethod(annotationType.getSimpleName(), methodMap.get(paramStr[0])).invoke(VERIFY_UTIL, paramObj)) {
-                        method = annotationType.getDeclaredMethod("describe");
-                        Object describe = method.invoke(annotation);
-                        if (describe == null || (describe instanceof String && ((String) describe).trim().isEmpty())) {
-                            throw new VerifyError(String.format("使用注解:%s 却未提供describe", annotationType.getName()));
-                        }
-                        throw new Exception(describe.toString());
+                    continue;
+                }
+                Object element = stack.nextElement(top, result);
+                assertNull(element);
+                if (!descend(element, TypeClassifier.of(element.getClass()), null, true, stack, describeParam, annotationVerify, result)) {
+                    return false;
+                }
+                continue;
+            }
+            int field = stack.nextField(top);
+            if (field < 0) {
+                if (stack.pop()) {
+                    result.pop();
+                }
+                continue;
+            }
+            if (!validateField(stack.plan(top), field, stack.object(top), describeParam, annotationVerify, result)) {
+                return false;
+            }
+            //字段需要向下校验时压入，处理完再继续下一个字段
+            Object nested = stack.takePending();
+            if (nested != null && !descend(nested, stack.pendingKind(), stack.pendingField(), false, stack, describeParam, annotationVerify, result)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 按值的分类向下校验：对象压入对象帧，集合、Map、数组压入元素帧(开启并行校验且元素数超过阈值时在此并行校验)，
+     * Optional校验其中的值，普通类型不校验
+     *
+     * @param kind   值的分类，不为DYNAMIC
+     * @param field  值所在的字段名称，根对象时为null
+     * @param pathed 是否已在路径中压入了该值(集合元素)，未进入时弹出
+     * @return 是否继续校验
+     */
+    private static boolean descend(Object value, TypeClassifier.Kind kind, String field, boolean pathed, WorkStack stack,
+                                   String describeParam, boolean annotationVerify, ValidationResult result) {
+        while (kind == TypeClassifier.Kind.OPTIONAL) {
+            value = ((Optional<?>) value).orElse(null);
+            if (value == null) {
+                break;
+            }
+            kind = TypeClassifier.of(value.getClass());
+        }
+        boolean next = true;
+        if (value == null || kind == TypeClassifier.Kind.SCALAR) {
+            //不需要向下校验
+        } else if (kind == TypeClassifier.Kind.BEAN) {
+            if (!pathed && field != null) {
+                result.push(field);
+                pathed = true;
+            }
+            int maxDepth = result.getMaxDepth();
+            if (result.depth() > maxDepth) {
+                next = result.add(null, "MaxDepth", String.format("超过最大校验深度:%d", maxDepth));
+            } else if (stack.pushObject(value, (result.isDefaultGroup() ? PLANS : REFLECTIVE_PLANS).get(value.getClass()), pathed)) {
+                return true;
+            }
+        } else {
+            //集合本身是元素或根对象时，其元素的路径没有字段名称
+            String elementField = pathed || field == null ? "" : field;
+            int size = kind == TypeClassifier.Kind.MAP ? ((Map<?, ?>) value).size()
+                    : kind == TypeClassifier.Kind.ARRAY ? ((Object[]) value).length : ((Collection<?>) value).size();
+            ParallelValidation parallel = result.parallel();
+            if (size == 0) {
+                //空集合
+            } else if (parallel != null && size > parallel.threshold) {
+                if (stack.enterAncestor(value)) {
+                    try {
+                        next = validateParallel(parallel, value, kind, size, elementField, describeParam, annotationVerify, result);
+                    } finally {
+                        stack.exitAncestor(value);
                     }
                 }
+            } else if (stack.pushElements(value, kind, elementField, pathed)) {
+                return true;
+            }
+        }
+        //未进入时弹出
+        if (pathed) {
+            result.pop();
+        }
+        return next;
+    }
+
+    private static boolean validateParallel(ParallelValidation parallel, Object value, TypeClassifier.Kind kind, int size, String field,
+                                            String describeParam, boolean annotationVerify, ValidationResult result) {
+        switch (kind) {
+            case MAP:
+                Object[] keys = new Object[size];
+                Object[] values = new Object[size];
+                int index = 0;
+                for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                    keys[index] = entry.getKey();
+                    values[index++] = entry.getValue();
+                }
+                return parallel.validate(values, keys, field, describeParam, annotationVerify, result);
+            case ARRAY:
+                return parallel.validate((Object[]) value, null, field, describeParam, annotationVerify, result);
+            default:
+                return parallel.validate(((Collection<?>) value).toArray(), null, field, describeParam, annotationVerify, result);
+        }
+    }
+
+    /**
+     * 校验对象的第index个字段
+     */
+    private static boolean validateField(ValidationPlan plan, int index, Object verifyObject, String describeParam,
+                                         boolean annotationVerify, ValidationResult result) {
+        if (plan.validator != null) {
+            return plan.validator.validateField(verifyObject, index, describeParam, annotationVerify, result);
+        }
+        ValidationPlan.FieldPlan fieldPlan = plan.fields[index];
+        //原始类型不为空，也不需要向下校验
+        return fieldPlan.kind == ValidationPlan.Kind.OBJECT
+                ? validateField(fieldPlan, verifyObject, describeParam, annotationVerify, result)
+                : validatePrimitive(fieldPlan, verifyObject, result);
+    }
+
+    private static boolean validateField(ValidationPlan.FieldPlan fieldPlan, Object verifyObject, String describeParam,
+                                         boolean annotationVerify, ValidationResult result) {
+        String name = fieldPlan.field.getName();
+        //每个字段只读取一次
+        Object value = fieldPlan.get(verifyObject);
+        //第一个属于本次分组的注解，没有时与没有注解的字段相同
+        ValidationPlan.ConstraintPlan first = firstActive(fieldPlan.constraints, result);
+        if (first != null) {
+            if (!isNotEmpty(value)) {
+                return result.add(name, first.name, first.emptyDescribe);
+            }
+            for (ValidationPlan.ConstraintPlan constraint : fieldPlan.constraints) {
+                if (constraint.isActive(result) && constraint.expected != constraint.test(value) && !violation(result, name, constraint)) {
+                    return false;
+                }
+            }
+        } else if (!annotationVerify && !validatePresent(value, fieldPlan.string, describeParam, result, name)) {
+            //没有注解时，非注解校验判断是否为空
+            return false;
+        }
+        return fieldPlan.valueKind == TypeClassifier.Kind.SCALAR || validateNested(value, fieldPlan.valueKind, name, result);
+    }
+
+    private static ValidationPlan.ConstraintPlan firstActive(ValidationPlan.ConstraintPlan[] constraints, ValidationResult result) {
+        for (ValidationPlan.ConstraintPlan constraint : constraints) {
+            if (constraint.isActive(result)) {
+                return constraint;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 校验方法参数或返回值，与字段的注解校验一致
+     *
+     * @param value       参数值或返回值
+     * @param name        参数名称
+     * @param constraints 参数上的注解校验
+     * @param cascade     是否按值的字段注解向下校验
+     * @param result      校验结果
+     * @return 是否继续校验
+     */
+    static boolean validateValue(Object value, String name, ValidationPlan.ConstraintPlan[] constraints, boolean cascade, ValidationResult result) {
+        ValidationPlan.ConstraintPlan first = firstActive(constraints, result);
+        if (first != null) {
+            if (!isNotEmpty(value)) {
+                return result.add(name, first.name, first.emptyDescribe);
             }
-            //如果没有进入注解循环
-            if (!annotationVerify) {
-                if (field.getType().getSimpleName().equalsIgnoreCase("String")) {
-                    method = getMethod("NotEmpty", Object.class);
-                } else {
-                    method = getMethod("NotNull", Object.class);
+            for (ValidationPlan.ConstraintPlan constraint : constraints) {
+                if (constraint.isActive(result) && constraint.expected != constraint.test(value) && !violation(result, name, constraint)) {
+                    return false;
                 }
-                if (!(boolean) method.invoke(VERIFY_UTIL, field.get(verifyObject))) {
-                    if (!isNotEmpty(describeParam)) {
-                        describeParam="值为空";
+            }
+        }
+        if (!cascade || value == null) {
+            return true;
+        }
+        result.push(name);
+        try {
+            return validateObject(value, null, true, result);
+        } finally {
+            result.pop();
+        }
+    }
+
+    /**
+     * 校验int、long、double字段，按原始类型读取，不装箱
+     */
+    private static boolean validatePrimitive(ValidationPlan.FieldPlan fieldPlan, Object verifyObject, ValidationResult result) {
+        if (fieldPlan.constraints.length == 0) {
+            return true;
+        }
+        String name = fieldPlan.field.getName();
+        switch (fieldPlan.kind) {
+            case INT:
+                int intValue = fieldPlan.getInt(verifyObject);
+                for (ValidationPlan.ConstraintPlan constraint : fieldPlan.constraints) {
+                    if (constraint.isActive(result) && constraint.expected != constraint.testInt(intValue) && !violation(result, name, constraint)) {
+                        return false;
                     }
-                    throw new Exception(describeParam);
                 }
+                return true;
+            case LONG:
+                long longValue = fieldPlan.getLong(verifyObject);
+                for (ValidationPlan.ConstraintPlan constraint : fieldPlan.constraints) {
+                    if (constraint.isActive(result) && constraint.expected != constraint.testLong(longValue) && !violation(result, name, constraint)) {
+                        return false;
+                    }
+                }
+                return true;
+            default:
+                double doubleValue = fieldPlan.getDouble(verifyObject);
+                for (ValidationPlan.ConstraintPlan constraint : fieldPlan.constraints) {
+                    if (constraint.isActive(result) && constraint.expected != constraint.testDouble(doubleValue) && !violation(result, name, constraint)) {
+                        return false;
+                    }
+                }
+                return true;
+        }
+    }
+
+    /**
+     * 非注解校验时，String判断empty，其他类型判断null
+     *
+     * @return 是否继续校验
+     */
+    static boolean validatePresent(Object value, boolean string, String describeParam, ValidationResult result, String field) {
+        if (!(string ? isNotEmpty(value) : isNotNull(value))) {
+            if (!isNotEmpty(describeParam)) {
+                describeParam="值为空";
+            }
+            return result.add(field, string ? "NotEmpty" : "NotNull", describeParam);
+        }
+        return true;
+    }
+
+    /**
+     * 字段类型不是普通类型时，按值的实际类型判断是否需要向下校验
+     * 集合、数组校验每个元素，Map校验每个值，Optional校验其中的值，其他对象校验自身；交由{@link WorkStack}在该字段之后校验
+     *
+     * @return 是否继续校验
+     */
+    static boolean validateNested(Object value, String field, ValidationResult result) {
+        return validateNested(value, TypeClassifier.Kind.DYNAMIC, field, result);
+    }
+
+    /**
+     * @param declaredKind 字段声明类型的分类，为DYNAMIC时按值的实际类型分类
+     */
+    private static boolean validateNested(Object value, TypeClassifier.Kind declaredKind, String field, ValidationResult result) {
+        if (value == null) {
+            return true;
+        }
+        TypeClassifier.Kind kind = declaredKind == TypeClassifier.Kind.DYNAMIC ? TypeClassifier.of(value.getClass()) : declaredKind;
+        if (kind != TypeClassifier.Kind.SCALAR) {
+            result.stack().schedule(value, kind, field);
+        }
+        return true;
+    }
+
+    /**
+     * 记录违反的注解校验
+     *
+     * @return 是否继续校验
+     * @throws VerifyError 注解未提供describe
+     */
+    private static boolean violation(ValidationResult result, String field, ValidationPlan.ConstraintPlan constraint) {
+        return violation(result, field, constraint.annotation.annotationType().getName(), constraint.describe);
+    }
+
+    static boolean violation(ValidationResult result, String field, String annotationName, Object describe) {
+        if (describe == null || (describe instanceof String && ((String) describe).trim().isEmpty())) {
+            throw new VerifyError(String.format("使用注解:%s 却未提供describe", annotationName));
+        }
+        return result.add(field, annotationName.substring(Math.max(annotationName.lastIndexOf('.'), annotationName.lastIndexOf('$')) + 1), describe.toString());
+    }
+
+    /**
+     * 解析类的校验计划
+     * 存在编译时生成的校验器时直接使用，否则获取字段、额外注解，过滤排序，并取出注解参数以及对应的本地方法；
+     * 扩展注解绑定到对应的{@link ConstraintValidator}
+     *
+     * @param cls 校验对象的类
+     * @return 校验计划
+     */
+    private static ValidationPlan buildPlan(Class<?> cls) {
+        GeneratedValidator<?> validator = findValidator(cls);
+        if (validator != null) {
+            return new ValidationPlan(validator);
+        }
+        return buildReflectivePlan(cls);
+    }
+
+    /**
+     * 解析类的反射校验计划
+     */
+    private static ValidationPlan buildReflectivePlan(Class<?> cls) {
+        Field[] fields = cls.getDeclaredFields();
+        ValidationPlan.FieldPlan[] fieldPlans = new ValidationPlan.FieldPlan[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            Field field = fields[i];
+            ValidationPlan.ConstraintPlan[] constraints = buildConstraints(field.getName(), field.getType(), field.getDeclaredAnnotations());
+            try {
+                fieldPlans[i] = new ValidationPlan.FieldPlan(field, constraints);
+            } catch (IllegalAccessException e) {
+                throw new VerifyError(String.format("字段:%s 无法访问：%s", field, e));
+            }
+        }
+        return new ValidationPlan(fieldPlans);
+    }
+
+    /**
+     * 解析字段、方法参数或方法返回值上的注解
+     *
+     * @param name        字段或参数名称
+     * @param type        字段或参数的声明类型
+     * @param declared    声明的注解
+     * @return 过滤、排序后的注解校验
+     */
+    static ValidationPlan.ConstraintPlan[] buildConstraints(String name, Class<?> type, Annotation[] declared) {
+        //添加额外注解
+        Collection<Annotation> annotations = getAdditionalAnnotations(declared);
+        //本注解
+        annotations.addAll(Arrays.asList(declared));
+        //过滤以及排序
+        annotations = filterAndSortedAnnotation(annotations);
+        List<ValidationPlan.ConstraintPlan> constraints = new ArrayList<>();
+        for (Annotation annotation : annotations) {
+            ConstraintValidator<Annotation> constraintValidator = ConstraintRegistry.get(annotation.annotationType());
+            if (constraintValidator != null) {
+                constraints.add(buildConstraint(name, type, annotation, constraintValidator));
+            } else if (annotation.annotationType().isAnnotationPresent(Constraint.class)) {
+                throw new VerifyError(String.format("注解:%s 未找到ConstraintValidator", annotation.annotationType().getName()));
+            } else if (verifyMap.containsKey(annotation.annotationType().getSimpleName())) {
+                constraints.add(buildConstraint(name, type, annotation));
             }
-            //判断是否为非普通类型
-            if (!checkIsGeneralType(field.getType(),field.get(verifyObject))) {
-                //统一通过集合操作信息
-                if((object=returnCollections(field.get(verifyObject)))!=null){
-                    operateCollection(object, describeParam, annotationVerify);
+        }
+        return constraints.toArray(new ValidationPlan.ConstraintPlan[0]);
+    }
+
+    /**
+     * 查找编译时生成的校验器
+     *
+     * @param cls 校验对象的类
+     * @return 生成的校验器，不存在时返回null
+     */
+    private static GeneratedValidator<?> findValidator(Class<?> cls) {
+        Class<?> validatorClass;
+        try {
+            validatorClass = Class.forName(GeneratedValidator.validatorName(cls), true, cls.getClassLoader());
+        } catch (ClassNotFoundException | LinkageError e) {
+            return null;
+        }
+        if (!GeneratedValidator.class.isAssignableFrom(validatorClass)) {
+            return null;
+        }
+        try {
+            GeneratedValidator<?> validator = (GeneratedValidator<?>) validatorClass.getConstructor().newInstance();
+            return validator.getType() == cls ? validator : null;
+        } catch (ReflectiveOperationException e) {
+            throw new VerifyError(String.format("校验器:%s 创建失败：%s", validatorClass.getName(), e));
+        }
+    }
+
+    /**
+     * 取出注解参数以及对应的本地方法
+     */
+    private static ValidationPlan.ConstraintPlan buildConstraint(String name, Class<?> type, Annotation annotation) {
+        Class<? extends Annotation> annotationType = annotation.annotationType();
+        String[] paramStr = verifyMap.get(annotationType.getSimpleName());
+        try {
+            //调用本类方法需要传入的参数，第一个参数为字段值
+            Object[] parameters = new Object[paramStr.length - 1];
+            for (int j = 1; j < paramStr.length; j++) {
+                Object parameter = annotationType.getDeclaredMethod(paramStr[j]).invoke(annotation);
+                //注解中为int，本地方法参数为Long
+                if (parameter instanceof Integer) {
+                    parameter = ((Integer) parameter).longValue();
                 }
+                parameters[j - 1] = parameter;
+            }
+            //允许否定注解
+            boolean expected = (boolean) annotationType.getDeclaredMethod("value").invoke(annotation);
+            Object describe = annotationType.getDeclaredMethod("describe").invoke(annotation);
+            String emptyDescribe;
+            if(annotation instanceof NotEmpty){
+                emptyDescribe = ((NotEmpty)annotation).describe();
+            }else if(annotation instanceof NotNull){
+                emptyDescribe = ((NotNull)annotation).describe();
+            }else{
+                emptyDescribe = String.format("%s:值为空",name);
+            }
+            Method method = getMethod(annotationType.getSimpleName(), methodMap.get(paramStr[0]));
+            return new ValidationPlan.ConstraintPlan(annotation, ConstraintEvaluator.of(method, parameters, type),
+                    expected, describe, emptyDescribe, groups(annotation));
+        } catch (Exception e) {
+            throw new VerifyError(String.format("注解:%s 解析失败：%s", annotationType.getName(), e));
+        }
+    }
+
+    /**
+     * 绑定扩展注解的校验器，注解参数由校验器取出
+     */
+    private static ValidationPlan.ConstraintPlan buildConstraint(String name, Class<?> type, Annotation annotation,
+                                                             ConstraintValidator<Annotation> constraintValidator) {
+        Class<? extends Annotation> annotationType = annotation.annotationType();
+        try {
+            //允许否定注解，未提供value()时为肯定
+            Method value = getAnnotationMethod(annotationType, "value");
+            boolean expected = value == null || value.getReturnType() != boolean.class || (boolean) value.invoke(annotation);
+            Method describe = getAnnotationMethod(annotationType, "describe");
+            if (describe == null) {
+                throw new IllegalArgumentException("未定义describe()");
             }
-            field.setAccessible(false);
+            Predicate<Object> predicate = constraintValidator.bind(annotation, type);
+            return new ValidationPlan.ConstraintPlan(annotation, ConstraintEvaluator.of(predicate), expected, describe.invoke(annotation),
+                    String.format("%s:值为空", name), groups(annotation));
+        } catch (Exception e) {
+            throw new VerifyError(String.format("注解:%s 解析失败：%s", annotationType.getName(), e));
+        }
+    }
+
+    /**
+     * @return 注解的groups()，未定义时为null
+     */
+    private static Class<?>[] groups(Annotation annotation) throws ReflectiveOperationException {
+        Method groups = getAnnotationMethod(annotation.annotationType(), "groups");
+        return groups == null || groups.getReturnType() != Class[].class ? null : (Class<?>[]) groups.invoke(annotation);
+    }
+
+    private static Method getAnnotationMethod(Class<? extends Annotation> annotationType, String name) {
+        try {
+            return annotationType.getDeclaredMethod(name);
+        } catch (NoSuchMethodException e) {
+            return null;
         }
     }
 
@@ -185,84 +757,29 @@ public class VerifyUtil {
 
     /**
      * 对注解进行过滤和排序
+     * 保留{@code PACKAGE_NAME}所在包的注解以及登记了{@link ConstraintValidator}的扩展注解
      * @param paramMap  需要过滤及排序的注解
      * @return  过滤并排序后的注解
      */
     private static Collection<Annotation> filterAndSortedAnnotation(Collection<Annotation> paramMap){
         return paramMap.stream().filter((annotation)->
-                annotation.annotationType().getPackage().getName().startsWith(PACKAGE_NAME)
+                annotation.annotationType().getName().startsWith(PACKAGE_NAME) || ConstraintRegistry.get(annotation.annotationType()) != null
         ).sorted((key1,key2)->{
-            if(sortMap.get(key1.annotationType().getSimpleName())>sortMap.get(key2.annotationType().getSimpleName())){
-                return 1;
-            }else if(sortMap.get(key1.annotationType().getSimpleName())<sortMap.get(key2.annotationType().getSimpleName())){
-                return -1;
-            }else{
-                return 0;
-            }
+            return Integer.compare(priority(key1), priority(key2));
         }).collect(Collectors.toList());
     }
 
     /**
-     * 判断是否为普通类型
-     *
-     * @param cls 类名
-     * @param object 对象
-     * @return boolean, true:普通类型，false:可能是集合类型
-     */
-    private static boolean checkIsGeneralType(Class<?> cls,Object object) {
-        String simpleName = cls.getSimpleName();
-        //当Object不为空时
-        if(object instanceof Number || object instanceof String || object instanceof Date){
-            return true;
-        }else if (simpleName.equalsIgnoreCase("byte") || simpleName.equalsIgnoreCase("boolean") || simpleName.equalsIgnoreCase("int") || simpleName.equalsIgnoreCase("long") || simpleName.equalsIgnoreCase("double")) {
-            return true;
-        } else if (simpleName.equalsIgnoreCase("Integer") || simpleName.equalsIgnoreCase("BigInteger") || simpleName.equalsIgnoreCase("BigDecimal")) {
-            return true;
-        } else if (simpleName.equalsIgnoreCase("String") || simpleName.equalsIgnoreCase("date") || simpleName.equalsIgnoreCase("object")) {
-            return true;
-        }
-        return false;
-    }
-
-    /**
-     * 校验集合类型
-     *
-     * @param object 需要判断的对象
-     * @return Object：集合类型，or：null
-     */
-    private static Object returnCollections(Object object) {
-        if(isNotEmpty(object)){
-            if(object instanceof Map){
-                return ((Map) object).values();
-            }else if(object instanceof Collection){
-                return object;
-            }else{
-                return Arrays.asList(object);
-            }
-        }
-        return null;
-    }
-
-    /**
-     * 操作集合
-     *
-     * @param object           属性值(集合)
-     * @param describeParam    如果annotationVerify:true时,没有标记注解的属性返回描述结果
-     * @param annotationVerify 是否只校验注解
-     * @throws Exception 出现异常
-     */
-    @SuppressWarnings("unchecked")
-    private static void operateCollection(Object object, String describeParam, boolean annotationVerify) throws Exception {
-        if (object instanceof Collection) {
-            Collection<?> collection = (Collection<?>) object;
-            for (Object objectValue : collection) {
-                verify(objectValue, describeParam, annotationVerify);
-            }
+     * 扩展注解的优先级由校验器提供；组合注解(如StringVerify)不在sortMap中，排在最后
+     */
+    private static int priority(Annotation annotation) {
+        ConstraintValidator<Annotation> constraintValidator = ConstraintRegistry.get(annotation.annotationType());
+        if (constraintValidator != null) {
+            return constraintValidator.getOrder();
         }
+        return sortMap.getOrDefault(annotation.annotationType().getSimpleName(), Integer.MAX_VALUE);
     }
 
-
-
     private static Method getMethod(String methodName, Class<?>... classes) throws Exception {
         assertEmpty(verifyMap.get(methodName) == null || verifyMap.get(methodName).length <= 0, "传入方法名称为空");
         return VERIFYUTIL_CLASS.getMethod(verifyMap.get(methodName)[0], classes);
@@ -313,30 +830,36 @@ public class VerifyUtil {
      */
     public static boolean range(Object object, Long max, Long min) {
         assertNull(object);
-        Double tempValue = 0.0;
-        min = (min==null || min<0) ? 0 : min;
-        max = (max==null || max<min) ? Long.MAX_VALUE : max;
-        if (!(object instanceof Number) && !(object instanceof String)) {
-            throw new VerifyError(String.format("参数类型异常->请求%s、%s类型，传入%s类型", Number.class.toString(), String.class.toString(), object.getClass().toString()));
-        }
-        if (object instanceof Byte && ((Byte) object > max || (Byte) object < min)) {
-            return false;
-        } else if (object instanceof Integer && ((Integer) object > max || (Integer) object < min)) {
-            return false;
-        } else if (object instanceof Float && ((Float) object > max || (Float) object < min)) {
-            return false;
-        } else if (object instanceof Double && ((Double) object > max || (Double) object < min)) {
-            return false;
-        } else {
-            if (object instanceof String) {
-                if ((tempValue = Double.valueOf(String.valueOf(object))) > max || tempValue < min) {
-                    return false;
-                }
-                return true;
-            } else {
-                return (((Number) object).doubleValue() <= max) && (((Number) object).doubleValue() >= min);
-            }
-        }
+        long minimum = ConstraintEvaluator.minimum(min);
+        return ConstraintEvaluator.longRange(ConstraintEvaluator.ValueType.DYNAMIC, ConstraintEvaluator.maximum(max, minimum), minimum).test(object);
+    }
+
+    /**
+     * 适用于数值
+     * long范围，边界不调整
+     *
+     * @param object 判断对象
+     * @param max    最大值，为null时不限制
+     * @param min    最小值，为null时不限制
+     * @return 判断结果
+     */
+    public static boolean longRange(Object object, Long max, Long min) {
+        assertNull(object);
+        return ConstraintEvaluator.longRange(ConstraintEvaluator.ValueType.DYNAMIC, max, min).test(object);
+    }
+
+    /**
+     * 适用于数值
+     * double范围，边界不调整
+     *
+     * @param object 判断对象
+     * @param max    最大值，为null时不限制
+     * @param min    最小值，为null时不限制
+     * @return 判断结果
+     */
+    public static boolean doubleRange(Object object, Double max, Double min) {
+        assertNull(object);
+        return ConstraintEvaluator.doubleRange(ConstraintEvaluator.ValueType.DYNAMIC, max, min).test(object);
     }
 
     /**
@@ -349,21 +872,8 @@ public class VerifyUtil {
      */
     public static boolean size(Object object, Long max, Long min) {
         assertNull(object);
-        min = (min==null || min<0) ? 0 : min;
-        max = (max==null || max<min) ? Long.MAX_VALUE : max;
-        if (!(object instanceof Number) && !(object instanceof String) && !(object instanceof Collection) && !(object instanceof Map)) {
-            throw new VerifyError(String.format("参数类型异常->请求Number、String、Collection或Map类型，传入%s类型", object.getClass().toString()));
-        }
-        if (object instanceof String && (((String) object).length() > max || ((String) object).length() < min)) {
-            return false;
-        } else if (object instanceof Collection && (((Collection) object).size() > max || ((Collection) object).size() < min)) {
-            return false;
-        } else if (object instanceof Map && (((Map) object).size() > max || ((Map) object).size() < min)) {
-            return false;
-        } else if (object instanceof Number && (String.valueOf(object).length()>max || String.valueOf(object).length()<min)) {
-            return false;
-        }
-        return true;
+        long minimum = ConstraintEvaluator.minimum(min);
+        return ConstraintEvaluator.size(ConstraintEvaluator.ValueType.DYNAMIC, minimum, ConstraintEvaluator.maximum(max, minimum)).test(object);
     }
 
     /**
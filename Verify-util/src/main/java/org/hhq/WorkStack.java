@@ -0,0 +1,305 @@
+package org.hhq;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * 校验对象图时使用的显式栈，代替递归，对象图很深时也不会栈溢出
+ * <p>
+ * 栈帧分为两种：对象帧记录对象、校验计划以及下一个要校验的字段；元素帧记录集合、Map或数组以及下一个要校验的元素。
+ * 字段需要向下校验时先压入子对象(或集合)，处理完再继续下一个字段，因此校验顺序与递归时一致
+ * <p>
+ * 栈中的对象及集合同时记录在按identity比较的祖先集合中，再次遇到祖先时不再进入，双向引用的对象图不会无限循环
+ * <p>
+ * 随{@link ValidationResult}复用，数组按需扩容
+ *
+ * @author huhaiqing
+ */
+final class WorkStack {
+
+    private static final byte OBJECT = 0;
+
+    /**
+     * 可随机访问的List，按下标读取
+     */
+    private static final byte LIST = 1;
+
+    private static final byte ITERATOR = 2;
+
+    /**
+     * Map.entrySet()的迭代器，路径使用key
+     */
+    private static final byte MAP = 3;
+
+    private static final byte ARRAY = 4;
+
+    private byte[] kinds = new byte[16];
+
+    /**
+     * 对象帧：校验对象；元素帧：List、数组或Iterator
+     */
+    private Object[] objects = new Object[16];
+
+    /**
+     * 记录在祖先集合中的对象：对象帧为校验对象，元素帧为集合、Map或数组
+     */
+    private Object[] owners = new Object[16];
+
+    /**
+     * 对象帧：校验计划
+     */
+    private ValidationPlan[] plans = new ValidationPlan[16];
+
+    /**
+     * 对象帧：只校验的字段下标，为null时校验全部字段
+     */
+    private int[][] selections = new int[16][];
+
+    /**
+     * 对象帧：下一个字段的下标(或在selections中的位置)；元素帧：下一个元素的下标
+     */
+    private int[] indexes = new int[16];
+
+    /**
+     * 是否在路径中压入了字段(或元素)，弹出时一并弹出
+     */
+    private boolean[] pathed = new boolean[16];
+
+    /**
+     * 元素帧：集合所在的字段名称
+     */
+    private String[] fields = new String[16];
+
+    private int size;
+
+    /**
+     * 栈中的对象及集合
+     */
+    private final IdentityHashMap<Object, Boolean> ancestors = new IdentityHashMap<>();
+
+    /**
+     * 字段校验完成后需要向下校验的值，由{@link #schedule(Object, TypeClassifier.Kind, String)}设置
+     */
+    private Object pending;
+    private TypeClassifier.Kind pendingKind;
+    private String pendingField;
+
+    int size() {
+        return size;
+    }
+
+    boolean isObject(int frame) {
+        return kinds[frame] == OBJECT;
+    }
+
+    Object object(int frame) {
+        return objects[frame];
+    }
+
+    ValidationPlan plan(int frame) {
+        return plans[frame];
+    }
+
+    /**
+     * @return 对象帧中下一个要校验的字段，全部校验完时为-1
+     */
+    int nextField(int frame) {
+        int[] selection = selections[frame];
+        if (selection != null) {
+            return indexes[frame] < selection.length ? selection[indexes[frame]++] : -1;
+        }
+        return indexes[frame] < plans[frame].fieldCount() ? indexes[frame]++ : -1;
+    }
+
+    /**
+     * 压入对象帧
+     *
+     * @param pathed 是否在路径中压入了字段，弹出时一并弹出
+     * @return 对象已是祖先时不压入，返回false
+     */
+    boolean pushObject(Object object, ValidationPlan plan, boolean pathed) {
+        return pushObject(object, plan, pathed, null);
+    }
+
+    /**
+     * 压入只校验部分字段的对象帧
+     *
+     * @param selection 只校验的字段下标，按校验顺序排列；为null时校验全部字段
+     */
+    boolean pushObject(Object object, ValidationPlan plan, boolean pathed, int[] selection) {
+        if (ancestors.put(object, Boolean.TRUE) != null) {
+            return false;
+        }
+        push(OBJECT, object, object, pathed);
+        plans[size - 1] = plan;
+        selections[size - 1] = selection;
+        return true;
+    }
+
+    /**
+     * 压入集合、Map或数组的元素帧
+     *
+     * @param kind   值的分类，COLLECTION、MAP或ARRAY
+     * @param field  路径中元素所在的字段名称，集合本身是元素时为空字符串
+     * @param pathed 是否在路径中压入了集合本身，弹出时一并弹出
+     * @return 集合已是祖先时不压入，返回false
+     */
+    boolean pushElements(Object value, TypeClassifier.Kind kind, String field, boolean pathed) {
+        if (ancestors.put(value, Boolean.TRUE) != null) {
+            return false;
+        }
+        switch (kind) {
+            case MAP:
+                push(MAP, ((Map<?, ?>) value).entrySet().iterator(), value, pathed);
+                break;
+            case ARRAY:
+                push(ARRAY, value, value, pathed);
+                break;
+            default:
+                if (value instanceof List && value instanceof RandomAccess) {
+                    push(LIST, value, value, pathed);
+                } else {
+                    push(ITERATOR, ((Collection<?>) value).iterator(), value, pathed);
+                }
+        }
+        fields[size - 1] = field;
+        return true;
+    }
+
+    private void push(byte kind, Object object, Object owner, boolean pathed) {
+        if (size == kinds.length) {
+            int length = size * 2;
+            kinds = Arrays.copyOf(kinds, length);
+            objects = Arrays.copyOf(objects, length);
+            owners = Arrays.copyOf(owners, length);
+            plans = Arrays.copyOf(plans, length);
+            selections = Arrays.copyOf(selections, length);
+            indexes = Arrays.copyOf(indexes, length);
+            this.pathed = Arrays.copyOf(this.pathed, length);
+            fields = Arrays.copyOf(fields, length);
+        }
+        kinds[size] = kind;
+        objects[size] = object;
+        owners[size] = owner;
+        this.pathed[size] = pathed;
+        indexes[size] = 0;
+        size++;
+    }
+
+    boolean hasNextElement(int frame) {
+        switch (kinds[frame]) {
+            case LIST:
+                return indexes[frame] < ((List<?>) objects[frame]).size();
+            case ARRAY:
+                return indexes[frame] < ((Object[]) objects[frame]).length;
+            default:
+                return ((Iterator<?>) objects[frame]).hasNext();
+        }
+    }
+
+    /**
+     * 取出元素帧的下一个元素，并在路径中压入 字段[下标] 或 字段[key]
+     */
+    Object nextElement(int frame, ValidationResult result) {
+        int index = indexes[frame]++;
+        switch (kinds[frame]) {
+            case LIST:
+                result.push(fields[frame], index);
+                return ((List<?>) objects[frame]).get(index);
+            case ARRAY:
+                result.push(fields[frame], index);
+                return ((Object[]) objects[frame])[index];
+            case MAP:
+                Map.Entry<?, ?> entry = (Map.Entry<?, ?>) ((Iterator<?>) objects[frame]).next();
+                result.push(fields[frame], entry.getKey());
+                return entry.getValue();
+            default:
+                result.push(fields[frame], index);
+                return ((Iterator<?>) objects[frame]).next();
+        }
+    }
+
+    /**
+     * 弹出栈顶帧
+     *
+     * @return 是否在路径中压入了字段(或元素)
+     */
+    boolean pop() {
+        int top = --size;
+        ancestors.remove(owners[top]);
+        objects[top] = null;
+        owners[top] = null;
+        plans[top] = null;
+        selections[top] = null;
+        fields[top] = null;
+        return pathed[top];
+    }
+
+    /**
+     * 弹出帧直到只剩{@code size}个，用于提前结束或异常时恢复
+     */
+    void truncate(int size) {
+        while (this.size > size) {
+            pop();
+        }
+        pending = null;
+        pendingKind = null;
+        pendingField = null;
+    }
+
+    /**
+     * 字段校验完成后向下校验该值
+     *
+     * @param kind 值的分类，不为SCALAR、OPTIONAL、DYNAMIC
+     */
+    void schedule(Object value, TypeClassifier.Kind kind, String field) {
+        this.pending = value;
+        this.pendingKind = kind;
+        this.pendingField = field;
+    }
+
+    /**
+     * @return 需要向下校验的值，没有时为null；取出后清除
+     */
+    Object takePending() {
+        Object value = pending;
+        pending = null;
+        return value;
+    }
+
+    TypeClassifier.Kind pendingKind() {
+        return pendingKind;
+    }
+
+    String pendingField() {
+        return pendingField;
+    }
+
+    /**
+     * 并行校验的集合不压入元素帧，校验前记录为祖先，拆分后的每一部分继承后能识别包含自身的集合
+     *
+     * @return 集合已是祖先时返回false，不再校验
+     */
+    boolean enterAncestor(Object value) {
+        return ancestors.put(value, Boolean.TRUE) == null;
+    }
+
+    /**
+     * 并行校验完成后移除{@link #enterAncestor(Object)}记录的祖先
+     */
+    void exitAncestor(Object value) {
+        ancestors.remove(value);
+    }
+
+    /**
+     * 并行校验集合的一部分时，继承当前的祖先，使其同样能识别循环引用
+     */
+    void inheritAncestors(WorkStack parent) {
+        ancestors.putAll(parent.ancestors);
+    }
+}
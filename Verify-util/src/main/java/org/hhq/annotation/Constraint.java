@@ -0,0 +1,19 @@
+package org.hhq.annotation;
+
+import java.lang.annotation.*;
+
+import static java.lang.annotation.ElementType.ANNOTATION_TYPE;
+
+/** 扩展校验注解的元注解
+ * 标注了该注解的校验注解由对应的{@link org.hhq.ConstraintValidator}校验，校验器通过ServiceLoader加载，
+ * 注解可以在任意包中；注解需提供describe()，可提供value()对注解进行肯定或否定
+ * Documented           允许生成文档
+ * Target[ANNOTATION_TYPE] 适用范围为 注解
+ * Retention[RUNTIME]   可用时期为运行时
+ * @author huhaiqing
+ */
+@Documented
+@Target({ANNOTATION_TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Constraint {
+}
@@ -0,0 +1,9 @@
+package org.hhq.annotation;
+
+/** 默认校验分组
+ * 未指定groups()的注解属于该分组；校验时未指定分组则校验该分组
+ * 分组为接口，校验分组B时也会校验B所继承的分组，如：{@code interface Update extends Default}
+ * @author huhaiqing
+ */
+public interface Default {
+}
@@ -0,0 +1,20 @@
+package org.hhq.annotation;
+
+import java.lang.annotation.*;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.ElementType.PARAMETER;
+
+/** 向下校验注解
+ * 标注在方法参数或方法上，由{@link org.hhq.VerifyProxy}按对象的字段注解校验参数值或返回值(对象、集合、Map、数组中的对象)；
+ * 值为null时不校验，需要非null时同时标注{@link org.hhq.annotation.verify.NotNull}
+ * Documented           允许生成文档
+ * Target[PARAMETER,METHOD] 适用范围为 方法参数、方法返回值
+ * Retention[RUNTIME]   可用时期为运行时
+ * @author huhaiqing
+ */
+@Documented
+@Target({PARAMETER, METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Valid {
+}
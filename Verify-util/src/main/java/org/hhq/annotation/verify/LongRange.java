@@ -0,0 +1,48 @@
+package org.hhq.annotation.verify;
+
+import java.lang.annotation.*;
+
+import static java.lang.annotation.ElementType.FIELD;
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.ElementType.PARAMETER;
+
+/** 自定义longRange注解，边界为long，不做调整
+ * Inherited            支持继承
+ * Documented           允许生成文档
+ * Target[FIELD,PARAMETER,METHOD] 适用范围为 字段、方法参数、方法返回值
+ * Retention[RUNTIME]   可用时期为运行时
+ * @author huhaiqing
+ */
+@Inherited
+@Documented
+@Target({FIELD, PARAMETER, METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface LongRange {
+    /**
+     * 对注解进行肯定或否定
+     * @return 是否直接支持注解
+     */
+    boolean value() default true;
+
+    /**
+     * @return 最大值
+     */
+    long max() default Long.MAX_VALUE;
+
+    /**
+     * @return 最小值
+     */
+    long min() default Long.MIN_VALUE;
+
+    /**
+     * 注解判断后的描述
+     * @return 描述信息
+     */
+    String describe() default "";
+
+    /**
+     * 所属的校验分组，为空时属于{@link org.hhq.annotation.Default}
+     * @return 校验分组
+     */
+    Class<?>[] groups() default {};
+}
@@ -0,0 +1,51 @@
+package org.hhq.annotation.verify;
+
+import org.hhq.annotation.Constraint;
+
+import java.lang.annotation.*;
+
+import static java.lang.annotation.ElementType.FIELD;
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.ElementType.PARAMETER;
+
+/** 自定义pattern注解，字段值(CharSequence)需完整匹配正则表达式
+ * Inherited            支持继承
+ * Documented           允许生成文档
+ * Target[FIELD,PARAMETER,METHOD] 适用范围为 字段、方法参数、方法返回值
+ * Retention[RUNTIME]   可用时期为运行时
+ * @author huhaiqing
+ */
+@Inherited
+@Documented
+@Constraint
+@Target({FIELD, PARAMETER, METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Pattern {
+    /**
+     * 对注解进行肯定或否定
+     * @return 是否直接支持注解
+     */
+    boolean value() default true;
+
+    /**
+     * @return 正则表达式
+     */
+    String regexp();
+
+    /**
+     * @return 正则表达式的标志，同{@link java.util.regex.Pattern#compile(String, int)}
+     */
+    int flags() default 0;
+
+    /**
+     * 注解判断后的描述
+     * @return 描述信息
+     */
+    String describe() default "";
+
+    /**
+     * 所属的校验分组，为空时属于{@link org.hhq.annotation.Default}
+     * @return 校验分组
+     */
+    Class<?>[] groups() default {};
+}
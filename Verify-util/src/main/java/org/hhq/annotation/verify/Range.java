@@ -3,17 +3,19 @@ package org.hhq.annotation.verify;
 import java.lang.annotation.*;
 
 import static java.lang.annotation.ElementType.FIELD;
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.ElementType.PARAMETER;
 
 /** 自定义range注解
  * Inherited            支持继承
  * Documented           允许生成文档
- * Target[FIELD]        适用范围为 字段
+ * Target[FIELD,PARAMETER,METHOD] 适用范围为 字段、方法参数、方法返回值
  * Retention[RUNTIME]   可用时期为运行时
  * @author huhaiqing
  */
 @Inherited
 @Documented
-@Target({FIELD})
+@Target({FIELD, PARAMETER, METHOD})
 @Retention(RetentionPolicy.RUNTIME)
 public @interface Range {
     /**
@@ -37,4 +39,10 @@ public @interface Range {
      * @return 描述信息
      */
     String describe() default "";
+
+    /**
+     * 所属的校验分组，为空时属于{@link org.hhq.annotation.Default}
+     * @return 校验分组
+     */
+    Class<?>[] groups() default {};
 }
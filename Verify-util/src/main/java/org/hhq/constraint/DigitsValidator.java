@@ -0,0 +1,78 @@
+package org.hhq.constraint;
+
+import org.hhq.ConstraintValidator;
+import org.hhq.annotation.verify.Digits;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * {@link Digits}的校验器
+ * 整数直接计算位数；其他数值及数值文本转为BigDecimal，去掉小数末尾的0后计算整数位数及小数位数，无法解析的文本不满足校验
+ *
+ * @author huhaiqing
+ */
+public class DigitsValidator implements ConstraintValidator<Digits> {
+
+    @Override
+    public Class<Digits> getAnnotationType() {
+        return Digits.class;
+    }
+
+    @Override
+    public Predicate<Object> bind(Digits annotation, Class<?> fieldType) {
+        Class<?> type = fieldType.isPrimitive() ? Number.class : fieldType;
+        if (!Number.class.isAssignableFrom(type) && !CharSequence.class.isAssignableFrom(type) && !type.isAssignableFrom(String.class)) {
+            throw new IllegalArgumentException(String.format("注解:Digits 只适用于数值或CharSequence，字段类型为%s", fieldType.getName()));
+        }
+        if (annotation.integer() < 0 || annotation.fraction() < 0) {
+            throw new IllegalArgumentException(String.format("integer、fraction不能小于0：%d、%d", annotation.integer(), annotation.fraction()));
+        }
+        int integer = annotation.integer();
+        int fraction = annotation.fraction();
+        return value -> test(value, integer, fraction);
+    }
+
+    private static boolean test(Object value, int integer, int fraction) {
+        if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte
+                || value instanceof AtomicInteger || value instanceof AtomicLong) {
+            return digits(((Number) value).longValue()) <= integer;
+        }
+        BigDecimal decimal;
+        if (value instanceof BigDecimal) {
+            decimal = (BigDecimal) value;
+        } else if (value instanceof BigInteger) {
+            decimal = new BigDecimal((BigInteger) value);
+        } else if (value instanceof Number || value instanceof CharSequence) {
+            try {
+                decimal = new BigDecimal(value.toString());
+            } catch (NumberFormatException e) {
+                return false;
+            }
+        } else {
+            throw new VerifyError(String.format("参数类型异常->请求%s、%s类型，传入%s类型", Number.class.toString(), CharSequence.class.toString(), value.getClass().toString()));
+        }
+        decimal = decimal.stripTrailingZeros();
+        int scale = decimal.scale();
+        return Math.max(decimal.precision() - scale, 0) <= integer && Math.max(scale, 0) <= fraction;
+    }
+
+    /**
+     * @return 整数的位数，不含符号，0为1位
+     */
+    static int digits(long value) {
+        int digits = 1;
+        //按负数计算，Long.MIN_VALUE也不会溢出
+        if (value > 0) {
+            value = -value;
+        }
+        while (value <= -10) {
+            value /= 10;
+            digits++;
+        }
+        return digits;
+    }
+}
@@ -0,0 +1,30 @@
+package org.hhq.constraint;
+
+import org.hhq.ConstraintValidator;
+import org.hhq.annotation.verify.Email;
+
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * {@link Email}的校验器
+ * 本地部分为字母、数字及 !#$%&'*+/=?^_`{|}~.- ，域名由字母、数字、-组成的标签以.连接
+ *
+ * @author huhaiqing
+ */
+public class EmailValidator implements ConstraintValidator<Email> {
+
+    private static final Pattern EMAIL = Pattern.compile(
+            "[A-Za-z0-9!#$%&'*+/=?^_`{|}~.-]+@[A-Za-z0-9](?:[A-Za-z0-9-]*[A-Za-z0-9])?(?:\\.[A-Za-z0-9](?:[A-Za-z0-9-]*[A-Za-z0-9])?)*");
+
+    @Override
+    public Class<Email> getAnnotationType() {
+        return Email.class;
+    }
+
+    @Override
+    public Predicate<Object> bind(Email annotation, Class<?> fieldType) {
+        Texts.assertText(annotation, fieldType);
+        return value -> EMAIL.matcher(Texts.text(value)).matches();
+    }
+}
@@ -0,0 +1,27 @@
+package org.hhq.constraint;
+
+import org.hhq.ConstraintValidator;
+import org.hhq.annotation.verify.Pattern;
+
+import java.util.function.Predicate;
+
+/**
+ * {@link Pattern}的校验器
+ * 正则表达式在绑定字段时编译一次
+ *
+ * @author huhaiqing
+ */
+public class PatternValidator implements ConstraintValidator<Pattern> {
+
+    @Override
+    public Class<Pattern> getAnnotationType() {
+        return Pattern.class;
+    }
+
+    @Override
+    public Predicate<Object> bind(Pattern annotation, Class<?> fieldType) {
+        Texts.assertText(annotation, fieldType);
+        java.util.regex.Pattern pattern = java.util.regex.Pattern.compile(annotation.regexp(), annotation.flags());
+        return value -> pattern.matcher(Texts.text(value)).matches();
+    }
+}
@@ -0,0 +1,34 @@
+package org.hhq.constraint;
+
+import java.lang.annotation.Annotation;
+
+/**
+ * 文本校验器的类型检查
+ *
+ * @author huhaiqing
+ */
+final class Texts {
+
+    private Texts() {
+    }
+
+    /**
+     * @throws IllegalArgumentException 字段类型不可能为CharSequence
+     */
+    static void assertText(Annotation annotation, Class<?> fieldType) {
+        if (!CharSequence.class.isAssignableFrom(fieldType) && !fieldType.isAssignableFrom(String.class)) {
+            throw new IllegalArgumentException(String.format("注解:%s 只适用于CharSequence，字段类型为%s",
+                    annotation.annotationType().getSimpleName(), fieldType.getName()));
+        }
+    }
+
+    /**
+     * @throws VerifyError 字段值不是CharSequence
+     */
+    static CharSequence text(Object value) {
+        if (!(value instanceof CharSequence)) {
+            throw new VerifyError(String.format("参数类型异常->请求%s类型，传入%s类型", CharSequence.class.toString(), value.getClass().toString()));
+        }
+        return (CharSequence) value;
+    }
+}
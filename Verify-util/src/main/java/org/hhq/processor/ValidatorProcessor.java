@@ -0,0 +1,731 @@
+package org.hhq.processor;
+
+import org.hhq.GeneratedValidator;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 校验器生成
+ * 编译时为字段上标注了{@code @NotNull}、{@code @NotEmpty}、{@code @Range}、{@code @Size}或{@code @StringVerify}的类
+ * 生成{@link GeneratedValidator}的子类，以普通Java代码完成与{@link org.hhq.VerifyUtil}相同的校验，运行时不再反射获取字段和注解
+ * <p>
+ * 注解的获取、过滤、排序规则与{@link org.hhq.VerifyUtil}一致：组合注解只展开一层，只保留{@code org.hhq}包下的注解，
+ * 按NotNull、NotEmpty、Range/Size的顺序校验；只生成{@code Default}分组的注解，其他分组运行时使用反射校验
+ * <p>
+ * 以下情况不生成校验器，运行时使用反射校验：非静态内部类、局部类、private的嵌套类、含类型参数的类，
+ * 以及含private字段的类；反射校验直接读取字段，getter可能与字段值不同，因此不通过getter读取
+ * <p>
+ * 该处理器不自动注册，使用时在编译参数中指定：
+ * &lt;annotationProcessors&gt;
+ * &lt;annotationProcessor&gt;org.hhq.processor.ValidatorProcessor&lt;/annotationProcessor&gt;
+ * &lt;/annotationProcessors&gt;
+ *
+ * @author huhaiqing
+ */
+public class ValidatorProcessor extends AbstractProcessor {
+    /**
+     * 注解所在包名，与{@link org.hhq.VerifyUtil}一致
+     */
+    private static final String PACKAGE_NAME = "org.hhq";
+
+    /**
+     * 校验注解
+     */
+    private static final Set<String> SUPPORTED_ANNOTATIONS = new LinkedHashSet<>(Arrays.asList(
+            "org.hhq.annotation.verify.NotNull",
+            "org.hhq.annotation.verify.NotEmpty",
+            "org.hhq.annotation.verify.Range",
+            "org.hhq.annotation.verify.Size",
+            "org.hhq.annotation.verify.LongRange",
+            "org.hhq.annotation.verify.DoubleRange",
+            "org.hhq.annotation.StringVerify"));
+
+    /**
+     * 扩展注解的元注解
+     */
+    private static final String CONSTRAINT = "org.hhq.annotation.Constraint";
+
+    /**
+     * 默认分组，生成的校验器只校验该分组
+     */
+    private static final String DEFAULT_GROUP = "org.hhq.annotation.Default";
+
+    /**
+     * 对注解进行排序
+     * key:注解名称
+     * value:优先级
+     * 优先级越小排在越前，与{@link org.hhq.VerifyUtil}一致
+     */
+    private static final Map<String, Integer> SORT_MAP = new HashMap<>();
+
+    static {
+        SORT_MAP.put("NotNull", 1);
+        SORT_MAP.put("NotEmpty", 2);
+        SORT_MAP.put("Range", 3);
+        SORT_MAP.put("Size", 3);
+        SORT_MAP.put("LongRange", 3);
+        SORT_MAP.put("DoubleRange", 3);
+    }
+
+    /**
+     * JDK类的包名前缀，与{@link org.hhq.TypeClassifier}一致
+     */
+    private static final String[] JDK_PACKAGES = {"java.", "javax.", "jdk.", "sun.", "com.sun."};
+
+    /**
+     * 生成代码中case内语句的缩进
+     */
+    private static final String INDENT = "                ";
+
+    /**
+     * 生成代码中范围、长度注解常量的名称前缀
+     */
+    private static final String BOUND_PREFIX = "BOUND_";
+
+    private Elements elements;
+
+    private Types types;
+
+    private Filer filer;
+
+    private Messager messager;
+
+    /**
+     * 已生成校验器的类，避免多轮处理时重复生成
+     */
+    private final Set<String> generated = new HashSet<>();
+
+    @Override
+    public synchronized void init(ProcessingEnvironment processingEnv) {
+        super.init(processingEnv);
+        this.elements = processingEnv.getElementUtils();
+        this.types = processingEnv.getTypeUtils();
+        this.filer = processingEnv.getFiler();
+        this.messager = processingEnv.getMessager();
+    }
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        return Collections.unmodifiableSet(SUPPORTED_ANNOTATIONS);
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        Set<TypeElement> beans = new LinkedHashSet<>();
+        for (TypeElement annotation : annotations) {
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                if (element.getKind() == ElementKind.FIELD && element.getEnclosingElement() instanceof TypeElement) {
+                    beans.add((TypeElement) element.getEnclosingElement());
+                }
+            }
+        }
+        for (TypeElement bean : beans) {
+            if (generated.add(bean.getQualifiedName().toString())) {
+                generate(bean);
+            }
+        }
+        //不独占注解，其他处理器仍可处理
+        return false;
+    }
+
+    private void generate(TypeElement bean) {
+        String reason = unsupportedReason(bean);
+        List<FieldModel> fields = new ArrayList<>();
+        if (reason == null) {
+            for (VariableElement field : ElementFilter.fieldsIn(bean.getEnclosedElements())) {
+                String extension = extensionConstraint(field);
+                if (extension != null) {
+                    reason = String.format("字段%s使用扩展注解%s", field.getSimpleName(), extension);
+                    break;
+                }
+                FieldModel model = fieldModel(bean, field);
+                if (model.accessor == null) {
+                    reason = String.format("字段%s为private", field.getSimpleName());
+                    break;
+                }
+                fields.add(model);
+            }
+        }
+        if (reason != null) {
+            messager.printMessage(Diagnostic.Kind.NOTE, String.format("%s 未生成校验器，使用反射校验：%s", bean.getQualifiedName(), reason), bean);
+            return;
+        }
+        String packageName = elements.getPackageOf(bean).getQualifiedName().toString();
+        String validatorName = validatorSimpleName(bean);
+        String qualifiedName = packageName.isEmpty() ? validatorName : packageName + "." + validatorName;
+        try (Writer writer = filer.createSourceFile(qualifiedName, bean).openWriter()) {
+            writer.write(source(bean, packageName, validatorName, fields));
+        } catch (IOException e) {
+            messager.printMessage(Diagnostic.Kind.ERROR, String.format("校验器:%s 生成失败：%s", qualifiedName, e), bean);
+        }
+    }
+
+    /**
+     * 扩展注解由运行时通过ServiceLoader加载的校验器校验，生成的代码无法调用
+     *
+     * @return 字段上标注了{@link org.hhq.annotation.Constraint}的注解名称，没有时返回null
+     */
+    private String extensionConstraint(VariableElement field) {
+        for (AnnotationMirror annotation : field.getAnnotationMirrors()) {
+            Element annotationType = annotation.getAnnotationType().asElement();
+            for (AnnotationMirror meta : annotationType.getAnnotationMirrors()) {
+                if (((TypeElement) meta.getAnnotationType().asElement()).getQualifiedName().contentEquals(CONSTRAINT)) {
+                    return annotationType.getSimpleName().toString();
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return 不能生成校验器的原因，可以生成时返回null
+     */
+    private String unsupportedReason(TypeElement bean) {
+        if (bean.getKind() != ElementKind.CLASS) {
+            return "不是类";
+        } else if (!bean.getTypeParameters().isEmpty()) {
+            return "含类型参数";
+        }
+        Element element = bean;
+        while (element instanceof TypeElement) {
+            TypeElement type = (TypeElement) element;
+            if (type.getNestingKind() == NestingKind.LOCAL || type.getNestingKind() == NestingKind.ANONYMOUS) {
+                return "局部类";
+            } else if (type.getModifiers().contains(Modifier.PRIVATE)) {
+                return "private的类";
+            } else if (type.getNestingKind() == NestingKind.MEMBER && !type.getModifiers().contains(Modifier.STATIC)) {
+                return "非静态内部类";
+            }
+            element = type.getEnclosingElement();
+        }
+        return null;
+    }
+
+    /**
+     * 与{@link GeneratedValidator#validatorName(Class)}一致
+     */
+    private static String validatorSimpleName(TypeElement bean) {
+        StringBuilder builder = new StringBuilder(bean.getSimpleName());
+        Element element = bean.getEnclosingElement();
+        while (element instanceof TypeElement) {
+            builder.insert(0, element.getSimpleName() + "_");
+            element = element.getEnclosingElement();
+        }
+        return builder.append(GeneratedValidator.SUFFIX).toString();
+    }
+
+    private FieldModel fieldModel(TypeElement bean, VariableElement field) {
+        FieldModel model = new FieldModel();
+        model.name = field.getSimpleName().toString();
+        TypeMirror type = field.asType();
+        model.kind = type.getKind();
+        model.string = types.erasure(type).toString().equals("java.lang.String");
+        model.generalType = isScalar(type);
+        model.valueType = valueType(type);
+        model.type = model.valueType == ValueType.OTHER ? "Object" : localType(type);
+        model.accessor = accessor(bean, field);
+        for (AnnotationMirror annotation : sortedAnnotations(field)) {
+            String simpleName = annotation.getAnnotationType().asElement().getSimpleName().toString();
+            if (!SORT_MAP.containsKey(simpleName)) {
+                continue;
+            }
+            Map<String, Object> values = values(annotation);
+            ConstraintModel constraint = new ConstraintModel();
+            constraint.simpleName = simpleName;
+            constraint.annotationName = ((TypeElement) annotation.getAnnotationType().asElement()).getQualifiedName().toString();
+            constraint.expected = !Boolean.FALSE.equals(values.get("value"));
+            constraint.describe = (String) values.get("describe");
+            constraint.max = values.get("max") instanceof Number ? (Number) values.get("max") : null;
+            constraint.min = values.get("min") instanceof Number ? (Number) values.get("min") : null;
+            model.constraints.add(constraint);
+        }
+        return model;
+    }
+
+    /**
+     * 按声明类型判断是否为普通类型，与{@link org.hhq.TypeClassifier}对声明类型的分类一致：
+     * 原始类型及其数组、Number、枚举、JDK中除集合、Map、Optional以外的类；Object及接口按值的实际类型判断
+     */
+    private boolean isScalar(TypeMirror type) {
+        if (type.getKind().isPrimitive()) {
+            return true;
+        } else if (type.getKind() == TypeKind.ARRAY) {
+            return ((ArrayType) type).getComponentType().getKind().isPrimitive();
+        } else if (type.getKind() != TypeKind.DECLARED) {
+            return false;
+        }
+        TypeElement element = (TypeElement) types.asElement(type);
+        String name = element.getQualifiedName().toString();
+        if (element.getKind() == ElementKind.INTERFACE || element.getKind() == ElementKind.ANNOTATION_TYPE
+                || name.equals("java.lang.Object")) {
+            return false;
+        } else if (element.getKind() == ElementKind.ENUM || isSubtype(type, "java.lang.Number") || isSubtype(type, "java.lang.CharSequence")) {
+            return true;
+        } else if (isSubtype(type, "java.util.Collection") || isSubtype(type, "java.util.Map") || name.equals("java.util.Optional")) {
+            return false;
+        }
+        for (String jdkPackage : JDK_PACKAGES) {
+            if (name.startsWith(jdkPackage)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 按声明类型选择注解的校验代码，与{@link org.hhq.ConstraintEvaluator}一致；只对JDK类型直接生成比较
+     */
+    private ValueType valueType(TypeMirror type) {
+        if (type.getKind() != TypeKind.DECLARED) {
+            return ValueType.OTHER;
+        }
+        String name = ((TypeElement) types.asElement(type)).getQualifiedName().toString();
+        switch (name) {
+            case "java.lang.Integer":
+            case "java.lang.Long":
+            case "java.lang.Short":
+            case "java.lang.Byte":
+                return ValueType.INTEGRAL;
+            case "java.lang.Double":
+            case "java.lang.Float":
+                return ValueType.FLOATING;
+            default:
+                if (!name.startsWith("java.")) {
+                    return ValueType.OTHER;
+                } else if (isSubtype(type, "java.lang.CharSequence")) {
+                    return ValueType.TEXT;
+                } else if (isSubtype(type, "java.util.Collection") || isSubtype(type, "java.util.Map")) {
+                    return ValueType.SIZED;
+                }
+                return ValueType.OTHER;
+        }
+    }
+
+    /**
+     * @return 字段值在生成代码中的类型，泛型参数为通配符，如：java.util.Map<?, ?>
+     */
+    private String localType(TypeMirror type) {
+        TypeElement element = (TypeElement) types.asElement(type);
+        StringBuilder builder = new StringBuilder(element.getQualifiedName());
+        for (int i = 0; i < element.getTypeParameters().size(); i++) {
+            builder.append(i == 0 ? "<?" : ", ?");
+        }
+        return element.getTypeParameters().isEmpty() ? builder.toString() : builder.append('>').toString();
+    }
+
+    private boolean isSubtype(TypeMirror type, String qualifiedName) {
+        TypeElement element = elements.getTypeElement(qualifiedName);
+        return element != null && types.isSubtype(types.erasure(type), types.erasure(element.asType()));
+    }
+
+    /**
+     * @return 读取字段值的表达式，字段为private时返回null
+     */
+    private static String accessor(TypeElement bean, VariableElement field) {
+        if (field.getModifiers().contains(Modifier.PRIVATE)) {
+            return null;
+        }
+        String target = field.getModifiers().contains(Modifier.STATIC) ? bean.getQualifiedName().toString() : "verifyObject";
+        return target + "." + field.getSimpleName();
+    }
+
+    /**
+     * 获取字段上的注解以及组合注解中的注解(仅扩展一层)，过滤并排序
+     */
+    private List<AnnotationMirror> sortedAnnotations(VariableElement field) {
+        Map<String, AnnotationMirror> annotations = new LinkedHashMap<>();
+        for (AnnotationMirror annotation : field.getAnnotationMirrors()) {
+            for (AnnotationValue value : elements.getElementValuesWithDefaults(annotation).values()) {
+                if (value.getValue() instanceof AnnotationMirror) {
+                    AnnotationMirror additional = (AnnotationMirror) value.getValue();
+                    annotations.put(key(additional), additional);
+                }
+            }
+        }
+        for (AnnotationMirror annotation : field.getAnnotationMirrors()) {
+            annotations.put(key(annotation), annotation);
+        }
+        List<AnnotationMirror> sorted = new ArrayList<>();
+        for (AnnotationMirror annotation : annotations.values()) {
+            PackageElement annotationPackage = elements.getPackageOf(annotation.getAnnotationType().asElement());
+            if (annotationPackage.getQualifiedName().toString().startsWith(PACKAGE_NAME) && isDefaultGroup(annotation)) {
+                sorted.add(annotation);
+            }
+        }
+        Collections.sort(sorted, (annotation1, annotation2) -> Integer.compare(priority(annotation1), priority(annotation2)));
+        return sorted;
+    }
+
+    /**
+     * @return 注解是否属于默认分组：groups()为空或包含{@code Default}
+     */
+    private boolean isDefaultGroup(AnnotationMirror annotation) {
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : elements.getElementValuesWithDefaults(annotation).entrySet()) {
+            if (!entry.getKey().getSimpleName().contentEquals("groups") || !(entry.getValue().getValue() instanceof List)) {
+                continue;
+            }
+            List<?> groups = (List<?>) entry.getValue().getValue();
+            if (groups.isEmpty()) {
+                return true;
+            }
+            for (Object group : groups) {
+                TypeMirror type = (TypeMirror) ((AnnotationValue) group).getValue();
+                if (types.erasure(type).toString().equals(DEFAULT_GROUP)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        return true;
+    }
+
+    private static int priority(AnnotationMirror annotation) {
+        Integer priority = SORT_MAP.get(annotation.getAnnotationType().asElement().getSimpleName().toString());
+        return priority == null ? Integer.MAX_VALUE : priority;
+    }
+
+    /**
+     * 相同类型、相同参数的注解视为同一个，与注解的equals一致
+     */
+    private String key(AnnotationMirror annotation) {
+        return annotation.getAnnotationType() + String.valueOf(values(annotation));
+    }
+
+    private Map<String, Object> values(AnnotationMirror annotation) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : elements.getElementValuesWithDefaults(annotation).entrySet()) {
+            values.put(entry.getKey().getSimpleName().toString(), entry.getValue().getValue());
+        }
+        return values;
+    }
+
+    private String source(TypeElement bean, String packageName, String validatorName, List<FieldModel> fields) {
+        String beanName = bean.getQualifiedName().toString();
+        StringBuilder builder = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            builder.append("package ").append(packageName).append(";\n\n");
+        }
+        builder.append("/**\n")
+                .append(" * {@link ").append(beanName).append("}的校验器，由").append(ValidatorProcessor.class.getName()).append("生成，请勿修改\n")
+                .append(" */\n")
+                .append("public final class ").append(validatorName).append(" extends ").append(GeneratedValidator.class.getName())
+                .append("<").append(beanName).append("> {\n");
+        List<String> bounds = new ArrayList<>();
+        StringBuilder cases = new StringBuilder();
+        for (int i = 0; i < fields.size(); i++) {
+            FieldModel field = fields.get(i);
+            cases.append("            case ").append(i).append(": {\n")
+                    .append("                //").append(field.name).append("\n");
+            if (field.primitive()) {
+                primitiveField(cases, field, bounds);
+            } else {
+                objectField(cases, field, bounds);
+            }
+            cases.append("            }\n");
+        }
+        for (int i = 0; i < bounds.size(); i++) {
+            builder.append("    private static final ").append(GeneratedValidator.class.getName()).append(".Bound ").append(BOUND_PREFIX).append(i)
+                    .append(" = ").append(bounds.get(i)).append(";\n\n");
+        }
+        builder.append("    public ").append(validatorName).append("() {\n")
+                .append("        super(").append(beanName).append(".class);\n")
+                .append("    }\n\n")
+                .append("    @Override\n")
+                .append("    public int getFieldCount() {\n")
+                .append("        return ").append(fields.size()).append(";\n")
+                .append("    }\n\n")
+                .append("    @Override\n")
+                .append("    public boolean validateField(").append(beanName)
+                .append(" verifyObject, int index, String describeParam, boolean annotationVerify, org.hhq.ValidationResult result) {\n")
+                .append("        switch (index) {\n")
+                .append(cases)
+                .append("            default:\n")
+                .append("                return true;\n")
+                .append("        }\n")
+                .append("    }\n")
+                .append("}\n");
+        return builder.toString();
+    }
+
+    /**
+     * int、long、double字段不为空，也不需要向下校验；范围注解直接比较，其他注解装箱后调用本地方法
+     */
+    private static void primitiveField(StringBuilder builder, FieldModel field, List<String> bounds) {
+        if (!field.constraints.isEmpty()) {
+            String local = field.name + "Value";
+            builder.append(INDENT).append(field.kind.name().toLowerCase()).append(" ").append(local).append(" = ").append(field.accessor).append(";\n");
+            for (ConstraintModel constraint : field.constraints) {
+                String test;
+                if (constraint.isRange()) {
+                    test = between(local, constraint);
+                } else {
+                    test = call(constraint, local, bounds);
+                }
+                check(builder, field, constraint, test);
+            }
+        }
+        builder.append(INDENT).append("return true;\n");
+    }
+
+    /**
+     * 有注解时：值为empty记录第一个注解的空值描述，否则依次校验注解；没有注解时：非注解校验判断是否为空
+     * 非普通类型最后向下校验；包装类型的范围、CharSequence的长度、集合及Map的元素数直接比较
+     */
+    private static void objectField(StringBuilder builder, FieldModel field, List<String> bounds) {
+        String local = field.name + "Value";
+        String name = literal(field.name);
+        builder.append(INDENT).append(field.type).append(" ").append(local).append(" = ").append(field.accessor).append(";\n");
+        if (!field.constraints.isEmpty()) {
+            builder.append(INDENT).append("if (!org.hhq.VerifyUtil.isNotEmpty(").append(local).append(")) {\n")
+                    .append(INDENT).append("    return emptyViolation(result, ").append(name).append(", ")
+                    .append(literal(field.constraints.get(0).simpleName)).append(", ").append(literal(field.emptyDescribe())).append(");\n")
+                    .append(INDENT).append("}\n");
+            for (ConstraintModel constraint : field.constraints) {
+                String test;
+                if (constraint.isRange() && field.valueType == ValueType.INTEGRAL) {
+                    test = between(local + ".longValue()", constraint);
+                } else if (constraint.isRange() && field.valueType == ValueType.FLOATING) {
+                    test = between(local + ".doubleValue()", constraint);
+                } else if (constraint.simpleName.equals("Size") && field.valueType == ValueType.TEXT) {
+                    test = between(local + ".length()", constraint);
+                } else if (constraint.simpleName.equals("Size") && field.valueType == ValueType.SIZED) {
+                    test = between(local + ".size()", constraint);
+                } else {
+                    test = call(constraint, local, bounds);
+                }
+                check(builder, field, constraint, test);
+            }
+        } else {
+            builder.append(INDENT).append("if (!annotationVerify && !validatePresent(").append(local).append(", ").append(field.string)
+                    .append(", describeParam, result, ").append(name).append(")) {\n")
+                    .append(INDENT).append("    return false;\n")
+                    .append(INDENT).append("}\n");
+        }
+        if (!field.generalType && !field.kind.isPrimitive()) {
+            builder.append(INDENT).append("return validateNested(").append(local).append(", ").append(name).append(", result);\n");
+        } else {
+            builder.append(INDENT).append("return true;\n");
+        }
+    }
+
+    /**
+     * NotNull、NotEmpty调用{@link org.hhq.VerifyUtil}中注解对应的本地方法；
+     * 范围、长度注解的边界在生成的类初始化时计算一次，保存为静态常量，见{@link GeneratedValidator.Bound}
+     *
+     * @param bounds 生成的类中静态常量的初始化表达式，按常量下标排列
+     */
+    private static String call(ConstraintModel constraint, String local, List<String> bounds) {
+        String bound;
+        switch (constraint.simpleName) {
+            case "NotNull":
+                return "org.hhq.VerifyUtil.isNotNull(" + local + ")";
+            case "NotEmpty":
+                return "org.hhq.VerifyUtil.isNotEmpty(" + local + ")";
+            case "Range":
+                bound = String.format("range(%s, %s)", longLiteral(constraint.max), longLiteral(constraint.min));
+                break;
+            case "LongRange":
+                bound = String.format("longRange(%s, %s)", longLiteral(constraint.max), longLiteral(constraint.min));
+                break;
+            case "DoubleRange":
+                bound = String.format("doubleRange(Double.valueOf(%s), Double.valueOf(%s))",
+                        doubleLiteral(constraint.max.doubleValue()), doubleLiteral(constraint.min.doubleValue()));
+                break;
+            default:
+                bound = String.format("size(%s, %s)", longLiteral(constraint.max), longLiteral(constraint.min));
+        }
+        bounds.add(bound);
+        return BOUND_PREFIX + (bounds.size() - 1) + ".test(" + local + ")";
+    }
+
+    private static void check(StringBuilder builder, FieldModel field, ConstraintModel constraint, String test) {
+        builder.append(INDENT).append("if (").append(constraint.expected ? "!" : "").append(test)
+                .append(" && !violation(result, ").append(literal(field.name)).append(", ")
+                .append(literal(constraint.annotationName)).append(", ").append(literal(constraint.describe)).append(")) {\n")
+                .append(INDENT).append("    return false;\n")
+                .append(INDENT).append("}\n");
+    }
+
+    /**
+     * @return value在注解范围内的表达式，边界与{@link org.hhq.ConstraintEvaluator}的取值一致
+     */
+    private static String between(String value, ConstraintModel constraint) {
+        String min;
+        String max;
+        if (constraint.simpleName.equals("DoubleRange")) {
+            min = doubleLiteral(constraint.min.doubleValue());
+            max = doubleLiteral(constraint.max.doubleValue());
+        } else if (constraint.simpleName.equals("LongRange")) {
+            min = constraint.min.longValue() + "L";
+            max = constraint.max.longValue() + "L";
+        } else {
+            //Range、Size：min为空或小于0时为0，max为空或小于min时不限制
+            long minValue = (constraint.min == null || constraint.min.longValue() < 0) ? 0 : constraint.min.longValue();
+            long maxValue = (constraint.max == null || constraint.max.longValue() < minValue) ? Long.MAX_VALUE : constraint.max.longValue();
+            min = minValue + "L";
+            max = maxValue + "L";
+        }
+        return String.format("(%s <= %s && %s >= %s)", value, max, value, min);
+    }
+
+    private static String longLiteral(Number value) {
+        return value == null ? "null" : "Long.valueOf(" + value.longValue() + "L)";
+    }
+
+    private static String doubleLiteral(double value) {
+        if (Double.isNaN(value)) {
+            return "Double.NaN";
+        } else if (Double.isInfinite(value)) {
+            return value > 0 ? "Double.POSITIVE_INFINITY" : "Double.NEGATIVE_INFINITY";
+        }
+        return value + "D";
+    }
+
+    /**
+     * @return Java字符串字面量，非ASCII字符转为unicode转义，不依赖编译编码
+     */
+    static String literal(String value) {
+        if (value == null) {
+            return "null";
+        }
+        StringBuilder builder = new StringBuilder("\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    builder.append("\\\"");
+                    break;
+                case '\\':
+                    builder.append("\\\\");
+                    break;
+                case '\n':
+                    builder.append("\\n");
+                    break;
+                case '\r':
+                    builder.append("\\r");
+                    break;
+                case '\t':
+                    builder.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20 || c > 0x7e) {
+                        builder.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        builder.append(c);
+                    }
+            }
+        }
+        return builder.append('"').toString();
+    }
+
+    /**
+     * 字段的校验信息
+     */
+    private static final class FieldModel {
+        String name;
+        TypeKind kind;
+        boolean string;
+        boolean generalType;
+        ValueType valueType;
+
+        /**
+         * 生成代码中字段值的类型，无法直接比较时为Object
+         */
+        String type;
+        String accessor;
+        final List<ConstraintModel> constraints = new ArrayList<>();
+
+        boolean primitive() {
+            return kind == TypeKind.INT || kind == TypeKind.LONG || kind == TypeKind.DOUBLE;
+        }
+
+        /**
+         * 字段值为empty时的描述：第一个注解为NotEmpty或NotNull时为其describe，否则为 字段名:值为空
+         */
+        String emptyDescribe() {
+            ConstraintModel first = constraints.get(0);
+            if (first.simpleName.equals("NotEmpty") || first.simpleName.equals("NotNull")) {
+                return first.describe;
+            }
+            return String.format("%s:值为空", name);
+        }
+    }
+
+    /**
+     * 注解的校验信息
+     */
+    private static final class ConstraintModel {
+        String simpleName;
+        String annotationName;
+        boolean expected;
+        String describe;
+        Number max;
+        Number min;
+
+        boolean isRange() {
+            return simpleName.equals("Range") || simpleName.equals("LongRange") || simpleName.equals("DoubleRange");
+        }
+    }
+
+    /**
+     * 字段值的类型，决定注解能否直接比较
+     */
+    private enum ValueType {
+        /**
+         * Integer、Long、Short、Byte
+         */
+        INTEGRAL,
+        /**
+         * Double、Float
+         */
+        FLOATING,
+        /**
+         * JDK中的CharSequence
+         */
+        TEXT,
+        /**
+         * JDK中的Collection、Map
+         */
+        SIZED,
+        OTHER
+    }
+}
@@ -0,0 +1,255 @@
+package org.hhq;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.hhq.annotation.StringVerify;
+import org.hhq.annotation.verify.DoubleRange;
+import org.hhq.annotation.verify.LongRange;
+import org.hhq.annotation.verify.NotEmpty;
+import org.hhq.annotation.verify.NotNull;
+import org.hhq.annotation.verify.Range;
+import org.hhq.annotation.verify.Size;
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Unit test for {@link GeneratedValidator}，校验器由测试编译时的{@link org.hhq.processor.ValidatorProcessor}生成
+ */
+public class GeneratedValidatorTest
+{
+    public static class Line
+    {
+        @NotEmpty(describe = "名称不能为空")
+        String name;
+
+        @StringVerify(size = @Size(describe = "描述长度为1~5", min = 1, max = 5), notEmpty = @NotEmpty(describe = "描述不能为空"),
+                notNull = @NotNull(describe = "描述不能为null"))
+        String describe;
+
+        @Range(max = 20, min = 1, describe = "数量为1~20")
+        int count;
+
+        @Range(value = false, max = 100, describe = "折扣不能为0~100")
+        Double discount;
+
+        Long id;
+
+        public Line(String name, String describe, int count, Double discount, Long id)
+        {
+            this.name = name;
+            this.describe = describe;
+            this.count = count;
+            this.discount = discount;
+            this.id = id;
+        }
+    }
+
+    public static class Invoice
+    {
+        @NotNull(describe = "抬头不能为null")
+        Line head;
+
+        @Size(describe = "明细为1~2个", min = 1, max = 2)
+        List<Line> lines = new ArrayList<>();
+    }
+
+    public static class Quota
+    {
+        @LongRange(max = 10000000000L, describe = "额度不能超过10000000000")
+        Long limit = 10000000000L;
+
+        @Range(max = 10, min = 1, describe = "次数为1~10")
+        Integer times = 10;
+
+        @DoubleRange(min = 0.01, describe = "费率不能小于0.01")
+        double rate = 0.01;
+
+        @Size(max = 2, describe = "标签不超过2个")
+        List<String> tags = new ArrayList<>();
+    }
+
+    public static class Measure
+    {
+        @Range(max = 100, min = 1, describe = "金额为1~100")
+        BigDecimal amount = BigDecimal.TEN;
+
+        @Size(max = 3, describe = "编码不超过3位")
+        int code = 123;
+
+        @DoubleRange(max = 1.5, describe = "比例不能超过1.5")
+        Number ratio = 1;
+
+        @Size(max = 2, describe = "最多2个编码")
+        String[] codes = {"a"};
+    }
+
+    public interface Audit
+    {
+    }
+
+    public static class Ticket
+    {
+        @NotEmpty(describe = "标题不能为空")
+        String title = "a";
+
+        @NotNull(groups = Audit.class, describe = "审核人不能为null")
+        String auditor;
+    }
+
+    /**
+     * 含private字段，不生成校验器；反射校验读取字段而不是getter
+     */
+    public static class Hidden
+    {
+        @NotEmpty(describe = "名称不能为空")
+        private String name;
+
+        public String getName()
+        {
+            return name == null ? "未命名" : name;
+        }
+    }
+
+    @Test
+    public void shouldGenerateValidators() throws Exception
+    {
+        assertTrue(GeneratedValidator.class.isAssignableFrom(Class.forName(GeneratedValidator.validatorName(Line.class))));
+        assertEquals("org.hhq.GeneratedValidatorTest_InvoiceValidator", GeneratedValidator.validatorName(Invoice.class));
+        Class.forName(GeneratedValidator.validatorName(Invoice.class));
+        try {
+            Class.forName(GeneratedValidator.validatorName(Hidden.class));
+            fail();
+        } catch (ClassNotFoundException e) {
+            //使用反射校验
+        }
+        //getter返回的值不为空，字段值为null
+        assertFailure(new Hidden(), true, "名称不能为空");
+    }
+
+    @Test
+    public void shouldVerifyLikeReflection() throws Exception
+    {
+        VerifyUtil.verify(new Line("a", "abc", 10, 120.0, 1L), "值为空", true);
+        assertFailure(new Line("", "abc", 10, 120.0, 1L), true, "名称不能为空");
+        assertFailure(new Line("a", null, 10, 120.0, 1L), true, "描述不能为null");
+        assertFailure(new Line("a", "abcdef", 10, 120.0, 1L), true, "描述长度为1~5");
+        assertFailure(new Line("a", "abc", 21, 120.0, 1L), true, "数量为1~20");
+        assertFailure(new Line("a", "abc", 10, 50.0, 1L), true, "折扣不能为0~100");
+        assertFailure(new Line("a", "abc", 10, null, 1L), true, "discount:值为空");
+        assertFailure(new Line("a", "abc", 10, 120.0, null), false, "字段值为空");
+        VerifyUtil.verify(new Line("a", "abc", 10, 120.0, null), "字段值为空", true);
+    }
+
+    @Test
+    public void shouldVerifyNestedObjects() throws Exception
+    {
+        Invoice invoice = new Invoice();
+        assertFailure(invoice, true, "抬头不能为null");
+        invoice.head = new Line("a", "abc", 1, 120.0, 1L);
+        invoice.lines.add(new Line("b", "abc", 2, 120.0, 2L));
+        VerifyUtil.verify(invoice, "值为空", true);
+
+        invoice.lines.add(new Line("c", "abc", 0, 120.0, 3L));
+        assertFailure(invoice, true, "数量为1~20");
+        invoice.lines.set(1, new Line("c", "abc", 3, 120.0, 3L));
+        invoice.lines.add(new Line("d", "abc", 3, 120.0, 4L));
+        assertFailure(invoice, true, "明细为1~2个");
+    }
+
+    @Test
+    public void shouldCollectAllViolations()
+    {
+        Invoice invoice = new Invoice();
+        invoice.lines.add(new Line("", "abcdef", 0, 50.0, 1L));
+        invoice.lines.add(new Line("b", null, 1, 120.0, 2L));
+        ValidationResult result = VerifyUtil.validate(invoice, "值为空", true, ValidationResult.Mode.COLLECT_ALL);
+        assertEquals("[head(NotNull):抬头不能为null, lines[0].name(NotEmpty):名称不能为空, lines[0].describe(Size):描述长度为1~5, "
+                + "lines[0].count(Range):数量为1~20, lines[0].discount(Range):折扣不能为0~100, lines[1].describe(NotNull):描述不能为null]",
+                result.getViolations().toString());
+    }
+
+    @Test
+    public void shouldCompareTypedFieldsDirectly() throws Exception
+    {
+        Class.forName(GeneratedValidator.validatorName(Quota.class));
+        Quota quota = new Quota();
+        quota.tags.add("a");
+        VerifyUtil.verify(quota, "值为空", true);
+
+        quota.limit = 10000000001L;
+        quota.times = 0;
+        quota.rate = 0.001;
+        quota.tags.add("b");
+        quota.tags.add("c");
+        ValidationResult result = VerifyUtil.validate(quota, "值为空", true, ValidationResult.Mode.COLLECT_ALL);
+        assertEquals("[limit(LongRange):额度不能超过10000000000, times(Range):次数为1~10, rate(DoubleRange):费率不能小于0.01, "
+                + "tags(Size):标签不超过2个]", result.getViolations().toString());
+    }
+
+    @Test
+    public void shouldPrepareBoundsOnce() throws Exception
+    {
+        int bounds = 0;
+        for (Field field : Class.forName(GeneratedValidator.validatorName(Measure.class)).getDeclaredFields()) {
+            if (field.getType() == GeneratedValidator.Bound.class) {
+                assertTrue(Modifier.isStatic(field.getModifiers()) && Modifier.isFinal(field.getModifiers()));
+                bounds++;
+            }
+        }
+        assertEquals(4, bounds);
+
+        Measure measure = new Measure();
+        VerifyUtil.verify(measure, "值为空", true);
+        measure.amount = new BigDecimal("100.5");
+        measure.code = 1234;
+        measure.ratio = 1.6F;
+        measure.codes = new String[]{"a", "b", "c"};
+        ValidationResult result = VerifyUtil.validate(measure, "值为空", true, ValidationResult.Mode.COLLECT_ALL);
+        assertEquals("[amount(Range):金额为1~100, code(Size):编码不超过3位, ratio(DoubleRange):比例不能超过1.5, codes(Size):最多2个编码]",
+                result.getViolations().toString());
+    }
+
+    @Test
+    public void shouldGenerateDefaultGroupOnly() throws Exception
+    {
+        Class.forName(GeneratedValidator.validatorName(Ticket.class));
+        Ticket ticket = new Ticket();
+        VerifyUtil.verify(ticket, "值为空", true);
+        //其他分组使用反射校验
+        try {
+            VerifyUtil.verify(ticket, "值为空", true, Audit.class);
+            fail();
+        } catch (Exception e) {
+            assertEquals("审核人不能为null", e.getMessage());
+        }
+        ticket.title = "";
+        ticket.auditor = "b";
+        VerifyUtil.verify(ticket, "值为空", true, Audit.class);
+        assertFailure(ticket, true, "标题不能为空");
+        //不属于本次分组的注解与没有注解相同
+        ticket.title = "a";
+        ticket.auditor = null;
+        assertFailure(ticket, false, "字段值为空");
+        ValidationResult result = new ValidationResult(ValidationResult.Mode.FAIL_FAST);
+        assertFalse(VerifyUtil.validateProperties(ticket, "字段值为空", false, result, "auditor"));
+        assertEquals("字段值为空", result.getViolations().get(0).getMessage());
+    }
+
+    private static void assertFailure(Object object, boolean annotationVerify, String message)
+    {
+        try {
+            VerifyUtil.verify(object, "字段值为空", annotationVerify);
+            fail(message);
+        } catch (Exception e) {
+            assertEquals(message, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package org.hhq;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.hhq.annotation.Valid;
+import org.hhq.annotation.verify.NotEmpty;
+import org.hhq.annotation.verify.NotNull;
+import org.hhq.annotation.verify.Range;
+import org.hhq.annotation.verify.Size;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Unit test for {@link VerifyProxy}.
+ */
+public class VerifyProxyTest
+{
+    public interface Audit
+    {
+    }
+
+    public static class User
+    {
+        @NotEmpty(describe = "名称不能为空")
+        String name;
+
+        public User(String name)
+        {
+            this.name = name;
+        }
+    }
+
+    public interface UserService
+    {
+        @NotNull(describe = "用户不存在")
+        User find(@Range(min = 1, max = 100, describe = "编号为1~100") long id);
+
+        void save(@NotNull(describe = "用户不能为null") @Valid User user, @NotEmpty(groups = Audit.class, describe = "操作人不能为空") String operator);
+
+        @Valid
+        @Size(max = 2, describe = "最多2个用户")
+        List<User> list(int count);
+
+        int count();
+    }
+
+    public static class SimpleUserService implements UserService
+    {
+        private final List<User> users = new ArrayList<>();
+
+        @Override
+        public User find(long id)
+        {
+            return id > users.size() ? null : users.get((int) id - 1);
+        }
+
+        @Override
+        public void save(User user, String operator)
+        {
+            users.add(user);
+        }
+
+        @Override
+        public List<User> list(int count)
+        {
+            List<User> list = new ArrayList<>(users.subList(0, Math.min(count, users.size())));
+            while (list.size() < count) {
+                list.add(new User(""));
+            }
+            return list;
+        }
+
+        @Override
+        public int count()
+        {
+            if (users.isEmpty()) {
+                throw new UnsupportedOperationException("没有用户");
+            }
+            return users.size();
+        }
+    }
+
+    @Test
+    public void shouldValidateParameters()
+    {
+        UserService service = VerifyProxy.create(UserService.class, new SimpleUserService());
+        service.save(new User("a"), null);
+        assertIllegalArgument(() -> service.save(null, "b"), "用户不能为null");
+        //标注了Valid的参数按字段注解向下校验
+        assertIllegalArgument(() -> service.save(new User(""), "b"), "名称不能为空");
+        assertIllegalArgument(() -> service.find(0), "编号为1~100");
+        assertEquals("a", service.find(1).name);
+
+        UserService audited = VerifyProxy.create(UserService.class, new SimpleUserService(), Audit.class);
+        audited.save(null, "b");
+        assertIllegalArgument(() -> audited.save(new User("a"), ""), "操作人不能为空");
+    }
+
+    @Test
+    public void shouldValidateReturnValues()
+    {
+        UserService service = VerifyProxy.create(UserService.class, new SimpleUserService());
+        service.save(new User("a"), null);
+        assertIllegalState(() -> service.find(2), "用户不存在");
+        assertEquals(1, service.list(1).size());
+        assertIllegalState(() -> service.list(2), "名称不能为空");
+        assertIllegalState(() -> service.list(3), "最多2个用户");
+    }
+
+    @Test
+    public void shouldPassThroughOtherCalls()
+    {
+        SimpleUserService target = new SimpleUserService();
+        UserService service = VerifyProxy.create(UserService.class, target);
+        try {
+            service.count();
+            fail();
+        } catch (UnsupportedOperationException e) {
+            //被代理对象的异常原样抛出
+            assertEquals("没有用户", e.getMessage());
+        }
+        assertEquals(target.hashCode(), service.hashCode());
+        assertTrue(service.equals(target));
+        try {
+            VerifyProxy.create(SimpleUserService.class, target);
+            fail();
+        } catch (IllegalArgumentException e) {
+            //只能代理接口
+        }
+    }
+
+    private static void assertIllegalArgument(Runnable call, String message)
+    {
+        try {
+            call.run();
+            fail(message);
+        } catch (IllegalArgumentException e) {
+            assertEquals(message, e.getMessage());
+        }
+    }
+
+    private static void assertIllegalState(Runnable call, String message)
+    {
+        try {
+            call.run();
+            fail(message);
+        } catch (IllegalStateException e) {
+            assertEquals(message, e.getMessage());
+        }
+    }
+}
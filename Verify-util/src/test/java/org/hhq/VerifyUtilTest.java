@@ -0,0 +1,569 @@
+package org.hhq;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.hhq.annotation.Constraint;
+import org.hhq.annotation.Default;
+import org.hhq.annotation.StringVerify;
+import org.hhq.annotation.verify.Digits;
+import org.hhq.annotation.verify.DoubleRange;
+import org.hhq.annotation.verify.Email;
+import org.hhq.annotation.verify.LongRange;
+import org.hhq.annotation.verify.NotEmpty;
+import org.hhq.annotation.verify.NotNull;
+import org.hhq.annotation.verify.Pattern;
+import org.hhq.annotation.verify.Range;
+import org.hhq.annotation.verify.Size;
+import org.junit.Test;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Predicate;
+
+/**
+ * Unit test for {@link VerifyUtil}.
+ */
+public class VerifyUtilTest
+{
+    public static class Item
+    {
+        @NotEmpty(describe = "名称不能为空")
+        private String name;
+
+        @StringVerify(size = @Size(describe = "描述长度为1~5", min = 1, max = 5), notEmpty = @NotEmpty(describe = "描述不能为空"),
+                notNull = @NotNull(describe = "描述不能为null"))
+        private String describe;
+
+        @Range(max = 20, min = 1, describe = "年龄为1~20")
+        private int age;
+
+        private Long id;
+
+        public Item(String name, String describe, int age, Long id)
+        {
+            this.name = name;
+            this.describe = describe;
+            this.age = age;
+            this.id = id;
+        }
+    }
+
+    public static class Order
+    {
+        @NotNull(describe = "所有者不能为null")
+        private Item owner;
+
+        @Size(describe = "明细为1~3个", min = 1, max = 3)
+        private List<Item> items = new ArrayList<>();
+    }
+
+    public static class Batch
+    {
+        private List<Item> items = new ArrayList<>();
+
+        private Map<String, Item> named = new LinkedHashMap<>();
+    }
+
+    public static class Node
+    {
+        @NotEmpty(describe = "节点名称不能为空")
+        private String name;
+
+        private Node parent;
+
+        private Node next;
+
+        private List<Node> children = new ArrayList<>();
+
+        public Node(String name)
+        {
+            this.name = name;
+        }
+
+        Node add(Node child)
+        {
+            child.parent = this;
+            children.add(child);
+            return this;
+        }
+    }
+
+    /**
+     * 与java.util.Date同名，按实际类型向下校验
+     */
+    public static class Date
+    {
+        @NotEmpty(describe = "日期不能为空")
+        private String value;
+    }
+
+    public static class Holder
+    {
+        private Item[] array;
+
+        private Optional<Item> optional = Optional.empty();
+
+        private Object any;
+
+        private List<List<Item>> groups = new ArrayList<>();
+
+        private Date date;
+
+        private java.util.Date created = new java.util.Date();
+
+        private int[] codes = {1, 2};
+    }
+
+    public static class Limits
+    {
+        @LongRange(max = 10000000000L, min = -5, describe = "金额为-5~10000000000")
+        private Long amount = 10000000000L;
+
+        @DoubleRange(max = 0.5, min = -0.5, describe = "偏差为-0.5~0.5")
+        private double deviation;
+
+        @Range(max = 100, min = 1, describe = "数量为1~100")
+        private String count = "100";
+
+        @Size(max = 4, min = 1, describe = "编码为1~4位")
+        private Integer code = -123;
+
+        @Size(max = 5, describe = "价格不超过5位")
+        private BigDecimal price = new BigDecimal("0.001");
+
+        @Size(max = 2, min = 1, describe = "标签为1~2个")
+        private String[] tags = {"a"};
+    }
+
+    /**
+     * 测试中登记的扩展注解
+     */
+    @Constraint
+    @Target(ElementType.FIELD)
+    @Retention(RetentionPolicy.RUNTIME)
+    public @interface Even
+    {
+        String describe();
+    }
+
+    public static class EvenValidator implements ConstraintValidator<Even>
+    {
+        @Override
+        public Class<Even> getAnnotationType()
+        {
+            return Even.class;
+        }
+
+        @Override
+        public Predicate<Object> bind(Even annotation, Class<?> fieldType)
+        {
+            return value -> ((Number) value).longValue() % 2 == 0;
+        }
+    }
+
+    public static class Contact
+    {
+        @NotEmpty(describe = "编号不能为空")
+        @Pattern(regexp = "[A-Z]{2}\\d{4}", describe = "编号格式为两个大写字母加四位数字")
+        String code = "AB1234";
+
+        @Email(describe = "邮箱格式错误")
+        String email = "a.b@example.com";
+
+        @Digits(integer = 3, fraction = 2, describe = "金额最多3位整数2位小数")
+        BigDecimal amount = new BigDecimal("123.40");
+
+        @Digits(integer = 2, describe = "年龄最多2位")
+        int age = -99;
+
+        @Pattern(value = false, regexp = "(?i)admin", flags = java.util.regex.Pattern.CASE_INSENSITIVE, describe = "名称不能为admin")
+        String name = "root";
+
+        @Even(describe = "数量必须为偶数")
+        Integer count = 2;
+    }
+
+    public interface Create
+    {
+    }
+
+    public interface Update extends Create
+    {
+    }
+
+    public static class Account
+    {
+        @NotNull(groups = Update.class, describe = "编号不能为null")
+        private Long id;
+
+        @NotEmpty(describe = "名称不能为空")
+        private String name = "admin";
+
+        @Size(max = 6, min = 1, groups = {Default.class, Create.class}, describe = "密码为1~6位")
+        private String password = "123456";
+
+        @Range(max = 150, describe = "年龄为0~150")
+        private int age = 20;
+
+        private Item owner;
+    }
+
+    public static class Measure
+    {
+        @Range(max = 100, min = 10, describe = "重量为10~100")
+        private long weight;
+
+        @Range(max = 2, describe = "比例为0~2")
+        private double ratio;
+
+        public Measure(long weight, double ratio)
+        {
+            this.weight = weight;
+            this.ratio = ratio;
+        }
+    }
+
+    @Test
+    public void shouldVerifyPrimitiveRanges() throws Exception
+    {
+        VerifyUtil.verify(new Measure(10, 2), "值为空", true);
+        VerifyUtil.verify(new Measure(100, 0), "值为空", false);
+        assertFailure(new Measure(9, 1), true, "重量为10~100");
+        assertFailure(new Measure(101, 1), true, "重量为10~100");
+        assertFailure(new Measure(50, 2.5), true, "比例为0~2");
+        assertFailure(new Measure(50, -0.5), true, "比例为0~2");
+    }
+
+    @Test
+    public void shouldVerifyFields() throws Exception
+    {
+        VerifyUtil.verify(new Item("a", "abc", 10, 1L), "值为空", true);
+        assertFailure(new Item("", "abc", 10, 1L), true, "名称不能为空");
+        assertFailure(new Item("a", null, 10, 1L), true, "描述不能为null");
+        assertFailure(new Item("a", "abcdef", 10, 1L), true, "描述长度为1~5");
+        assertFailure(new Item("a", "abc", 21, 1L), true, "年龄为1~20");
+        assertFailure(new Item("a", "abc", 10, null), false, "字段值为空");
+        //注解校验时不校验未标注注解的字段
+        VerifyUtil.verify(new Item("a", "abc", 10, null), "字段值为空", true);
+    }
+
+    @Test
+    public void shouldVerifyNestedObjects() throws Exception
+    {
+        Order order = new Order();
+        assertFailure(order, true, "所有者不能为null");
+        order.owner = new Item("a", "abc", 10, 1L);
+        order.items.add(new Item("b", "abc", 5, 2L));
+        VerifyUtil.verify(order, "值为空", true);
+
+        order.items.add(new Item("c", "abc", 0, 3L));
+        assertFailure(order, true, "年龄为1~20");
+        order.items.add(new Item("d", "abc", 1, 3L));
+        order.items.add(new Item("e", "abc", 1, 3L));
+        assertFailure(order, true, "明细为1~3个");
+    }
+
+    @Test
+    public void shouldCollectAllViolations()
+    {
+        Order order = new Order();
+        order.items.add(new Item("", "abc", 10, 1L));
+        order.items.add(new Item("b", "abcdef", 0, 2L));
+        ValidationResult result = VerifyUtil.validate(order, "值为空", true, ValidationResult.Mode.COLLECT_ALL);
+        assertFalse(result.isValid());
+        assertEquals("[owner(NotNull):所有者不能为null, items[0].name(NotEmpty):名称不能为空, "
+                + "items[1].describe(Size):描述长度为1~5, items[1].age(Range):年龄为1~20]", result.getViolations().toString());
+
+        result = VerifyUtil.validate(order, "值为空", true, ValidationResult.Mode.FAIL_FAST);
+        assertEquals(1, result.size());
+        assertEquals("owner", result.getViolations().get(0).getPath());
+    }
+
+    @Test
+    public void shouldReuseResult()
+    {
+        ValidationResult result = new ValidationResult(ValidationResult.Mode.COLLECT_ALL);
+        assertFalse(VerifyUtil.validate(new Item("a", "abc", 10, null), "编号为空", false, result));
+        assertEquals("[id(NotNull):编号为空]", result.getViolations().toString());
+        //结果追加
+        assertTrue(VerifyUtil.validate(new Item("a", "abc", 10, 1L), "编号为空", false, result));
+        assertEquals(1, result.size());
+        result.clear();
+        assertTrue(result.isValid());
+        assertTrue(VerifyUtil.validate(new Item("a", "abc", 10, 1L), "编号为空", false, result));
+        assertTrue(result.getViolations().isEmpty());
+    }
+
+    @Test
+    public void shouldValidateLargeCollectionsInParallel()
+    {
+        Batch batch = new Batch();
+        for (int i = 0; i < 200; i++) {
+            batch.items.add(new Item("a" + i, "abc", i % 37 == 5 ? 0 : 10, (long) i));
+            batch.named.put("n" + i, new Item(i % 53 == 7 ? "" : "n", "abc", 10, (long) i));
+        }
+        ValidationResult sequential = VerifyUtil.validate(batch, "值为空", true, ValidationResult.Mode.COLLECT_ALL);
+        ValidationResult first = VerifyUtil.validate(batch, "值为空", true, ValidationResult.Mode.FAIL_FAST);
+        assertEquals(10, sequential.size());
+        assertEquals("items[5].age", first.getViolations().get(0).getPath());
+        assertEquals("named[n7].name", sequential.getViolations().get(6).getPath());
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int i = 0; i < 20; i++) {
+                ValidationResult all = new ValidationResult(ValidationResult.Mode.COLLECT_ALL).setParallel(pool, 8);
+                VerifyUtil.validate(batch, "值为空", true, all);
+                assertEquals(sequential.getViolations().toString(), all.getViolations().toString());
+                ValidationResult failFast = new ValidationResult(ValidationResult.Mode.FAIL_FAST).setParallel(pool, 8);
+                VerifyUtil.validate(batch, "值为空", true, failFast);
+                assertEquals(first.getViolations().toString(), failFast.getViolations().toString());
+            }
+            //并行设置只对使用该结果的校验生效
+            assertFalse(new ValidationResult(ValidationResult.Mode.COLLECT_ALL).isParallel());
+
+            //包含自身的集合与顺序校验一样不再进入
+            List<Object> self = new ArrayList<>();
+            self.add(new Item("", "abc", 10, 0L));
+            for (int i = 1; i < 10; i++) {
+                self.add(new Item("a", "abc", 10, (long) i));
+            }
+            self.add(self);
+            ValidationResult result = new ValidationResult(ValidationResult.Mode.COLLECT_ALL).setParallel(pool, 8);
+            VerifyUtil.validate(self, "值为空", true, result);
+            assertEquals("[[0].name(NotEmpty):名称不能为空]", result.getViolations().toString());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldValidateCyclicGraphs() throws Exception
+    {
+        Node root = new Node("root").add(new Node("a")).add(new Node(""));
+        root.next = root;
+        root.children.get(0).next = root.children.get(1);
+        ValidationResult result = VerifyUtil.validate(root, "值为空", true, ValidationResult.Mode.COLLECT_ALL);
+        //共享但不构成环的对象在每条路径上都会校验
+        assertEquals("[children[0].next.name(NotEmpty):节点名称不能为空, children[1].name(NotEmpty):节点名称不能为空]",
+                result.getViolations().toString());
+        assertFailure(root, true, "节点名称不能为空");
+    }
+
+    @Test
+    public void shouldValidateDeepGraphsWithoutRecursion() throws Exception
+    {
+        Node head = new Node("0");
+        Node tail = head;
+        for (int i = 1; i < 100000; i++) {
+            tail.next = new Node(String.valueOf(i));
+            tail = tail.next;
+        }
+        VerifyUtil.verify(head, "值为空", true);
+        tail.name = "";
+        assertFailure(head, true, "节点名称不能为空");
+
+        ValidationResult result = new ValidationResult(ValidationResult.Mode.COLLECT_ALL).setMaxDepth(2);
+        VerifyUtil.validate(head, "值为空", true, result);
+        assertEquals("[next.next.next(MaxDepth):超过最大校验深度:2]", result.getViolations().toString());
+        //复用时保留最大深度
+        result.clear();
+        VerifyUtil.validate(head, "值为空", true, result);
+        assertEquals(1, result.size());
+        assertEquals(Integer.MAX_VALUE, new ValidationResult(ValidationResult.Mode.COLLECT_ALL).getMaxDepth());
+    }
+
+    @Test
+    public void shouldClassifyTypesByClass() throws Exception
+    {
+        Holder holder = new Holder();
+        VerifyUtil.verify(holder, "值为空", true);
+
+        Item invalid = new Item("", "abc", 1, 1L);
+        holder.array = new Item[]{new Item("a", "abc", 1, 1L), invalid};
+        holder.optional = Optional.of(invalid);
+        holder.any = invalid;
+        holder.groups.add(Arrays.asList(new Item("a", "abc", 1, 1L), invalid));
+        holder.date = new Date();
+        ValidationResult result = VerifyUtil.validate(holder, "值为空", true, ValidationResult.Mode.COLLECT_ALL);
+        assertEquals("[array[1].name(NotEmpty):名称不能为空, optional.name(NotEmpty):名称不能为空, any.name(NotEmpty):名称不能为空, "
+                + "groups[0][1].name(NotEmpty):名称不能为空, date.value(NotEmpty):日期不能为空]", result.getViolations().toString());
+
+        //根对象为集合时校验每个元素，普通类型不校验
+        result = VerifyUtil.validate(Collections.singletonList(invalid), "值为空", true, ValidationResult.Mode.COLLECT_ALL);
+        assertEquals("[[0].name(NotEmpty):名称不能为空]", result.getViolations().toString());
+        VerifyUtil.verify("abc", "值为空", true);
+    }
+
+    @Test
+    public void shouldEvaluateConstraintsByFieldType() throws Exception
+    {
+        Limits limits = new Limits();
+        VerifyUtil.verify(limits, "值为空", true);
+
+        limits.amount = 10000000001L;
+        limits.deviation = -0.6;
+        limits.count = "101";
+        limits.code = -1234;
+        limits.price = new BigDecimal("-1.234");
+        limits.tags = new String[0];
+        ValidationResult result = VerifyUtil.validate(limits, "值为空", true, ValidationResult.Mode.COLLECT_ALL);
+        assertEquals("[amount(LongRange):金额为-5~10000000000, deviation(DoubleRange):偏差为-0.5~0.5, count(Range):数量为1~100, "
+                + "code(Size):编码为1~4位, price(Size):价格不超过5位, tags(Size):标签为1~2个]", result.getViolations().toString());
+
+        //文本中的小数按double解析
+        limits = new Limits();
+        limits.count = "100.5";
+        assertFailure(limits, true, "数量为1~100");
+    }
+
+    @Test
+    public void shouldComputeLengthsWithoutStrings()
+    {
+        for (long value : new long[]{0, 9, 10, -1, -10, 123456789, Long.MAX_VALUE, Long.MIN_VALUE}) {
+            assertEquals(String.valueOf(value).length(), ConstraintEvaluator.length(value));
+        }
+        for (String value : new String[]{"0", "0.00", "1.5", "-12.345", "0.000123", "-0.5", "123", "1E+3", "1E-10", "123.4500"}) {
+            assertEquals(value, value.length(), ConstraintEvaluator.length(new BigDecimal(value)));
+        }
+        assertTrue(VerifyUtil.size(12345L, 5L, 5L));
+        assertFalse(VerifyUtil.size(12345.0, 5L, 5L));
+        assertTrue(VerifyUtil.range("3", 5L, null));
+        //Range的min小于0时为0，LongRange不调整
+        assertFalse(VerifyUtil.range("-3", 5L, null));
+        assertTrue(VerifyUtil.longRange(-3, 5L, null));
+        assertFalse(VerifyUtil.doubleRange(new BigDecimal("0.51"), 0.5, null));
+    }
+
+    @Test
+    public void shouldValidateExtensionConstraints() throws Exception
+    {
+        //使用扩展注解的类不生成校验器
+        try {
+            Class.forName(GeneratedValidator.validatorName(Contact.class));
+            fail();
+        } catch (ClassNotFoundException e) {
+            //使用反射校验
+        }
+        Contact contact = new Contact();
+        VerifyUtil.verify(contact, "值为空", true);
+
+        contact.code = "ab1234";
+        contact.email = "a.b@";
+        contact.amount = new BigDecimal("1234");
+        contact.age = 100;
+        contact.name = "Admin";
+        contact.count = 3;
+        ValidationResult result = VerifyUtil.validate(contact, "值为空", true, ValidationResult.Mode.COLLECT_ALL);
+        assertEquals("[code(Pattern):编号格式为两个大写字母加四位数字, email(Email):邮箱格式错误, amount(Digits):金额最多3位整数2位小数, "
+                + "age(Digits):年龄最多2位, name(Pattern):名称不能为admin, count(Even):数量必须为偶数]", result.getViolations().toString());
+
+        contact = new Contact();
+        contact.code = "";
+        assertFailure(contact, true, "编号不能为空");
+        contact = new Contact();
+        contact.amount = new BigDecimal("1.234");
+        assertFailure(contact, true, "金额最多3位整数2位小数");
+    }
+
+    @Test
+    public void shouldValidateRequestedGroups() throws Exception
+    {
+        Account account = new Account();
+        VerifyUtil.verify(account, "值为空", true);
+        try {
+            VerifyUtil.verify(account, "值为空", true, Update.class);
+            fail();
+        } catch (Exception e) {
+            assertEquals("编号不能为null", e.getMessage());
+        }
+
+        account.name = null;
+        account.password = "1234567";
+        account.owner = new Item(null, "a", 1, 1L);
+        //Create只校验密码，Update继承Create
+        assertEquals("[password(Size):密码为1~6位]",
+                VerifyUtil.validate(account, "值为空", true, ValidationResult.Mode.COLLECT_ALL, Create.class).getViolations().toString());
+        assertEquals("[id(NotNull):编号不能为null, password(Size):密码为1~6位]",
+                VerifyUtil.validate(account, "值为空", true, ValidationResult.Mode.COLLECT_ALL, Update.class).getViolations().toString());
+        assertEquals("[id(NotNull):编号不能为null, name(NotEmpty):名称不能为空, password(Size):密码为1~6位, owner.name(NotEmpty):名称不能为空]",
+                VerifyUtil.validate(account, "值为空", true, ValidationResult.Mode.COLLECT_ALL, Default.class, Update.class).getViolations().toString());
+        assertFailure(account, true, "名称不能为空");
+    }
+
+    @Test
+    public void shouldValidateSelectedProperties() throws Exception
+    {
+        Account account = new Account();
+        account.name = null;
+        account.age = 200;
+        VerifyUtil.verifyProperties(account, "password", "owner");
+        try {
+            VerifyUtil.verifyProperties(account, "age");
+            fail();
+        } catch (Exception e) {
+            assertEquals("年龄为0~150", e.getMessage());
+        }
+        //按声明顺序校验，对象字段向下校验
+        account.owner = new Item("", "a", 1, 1L);
+        ValidationResult result = new ValidationResult(ValidationResult.Mode.COLLECT_ALL);
+        assertFalse(VerifyUtil.validateProperties(account, "值为空", true, result, "owner", "age", "name"));
+        assertEquals("[name(NotEmpty):名称不能为空, age(Range):年龄为0~150, owner.name(NotEmpty):名称不能为空]", result.getViolations().toString());
+        try {
+            VerifyUtil.verifyProperties(account, "missing");
+            fail();
+        } catch (IllegalArgumentException e) {
+            //字段不存在
+        }
+    }
+
+    @Test
+    public void shouldValidateChangedProperties() throws Exception
+    {
+        Account snapshot = new Account();
+        snapshot.name = null;
+        Account account = new Account();
+        account.name = null;
+        //未修改的字段不校验
+        VerifyUtil.verifyChanged(account, snapshot);
+
+        account.password = "1234567";
+        account.age = 200;
+        ValidationResult result = new ValidationResult(ValidationResult.Mode.COLLECT_ALL);
+        assertFalse(VerifyUtil.validateChanged(account, snapshot, "值为空", true, result));
+        assertEquals("[password(Size):密码为1~6位, age(Range):年龄为0~150]", result.getViolations().toString());
+
+        account = new Account();
+        account.name = null;
+        account.owner = new Item(null, "a", 1, 1L);
+        try {
+            VerifyUtil.verifyChanged(account, snapshot);
+            fail();
+        } catch (Exception e) {
+            assertEquals("名称不能为空", e.getMessage());
+        }
+    }
+
+    private static void assertFailure(Object object, boolean annotationVerify, String message)
+    {
+        try {
+            VerifyUtil.verify(object, "字段值为空", annotationVerify);
+            fail(message);
+        } catch (Exception e) {
+            assertEquals(message, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package org.hhq.benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * 基准测试入口，参数与JMH命令行一致
+ * 未指定-rf时结果默认以JSON格式写入jmh-result.json(或-rff指定的文件)，便于跟踪性能回退
+ * <p>
+ * 打包：mvn -pl toolkit-benchmarks -am package
+ * 运行全部：java -jar toolkit-benchmarks/target/benchmarks.jar
+ * 运行部分：java -jar toolkit-benchmarks/target/benchmarks.jar CalculateBenchmark -rff calculate.json
+ * 对比两次结果：将JSON导入 https://jmh.morethan.io 或按benchmark+params比较primaryMetric.score
+ */
+public class BenchmarkMain {
+
+    /**
+     * 默认的结果文件
+     */
+    public static final String DEFAULT_RESULT_FILE = "jmh-result.json";
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        if (commandLine.shouldHelp() || commandLine.shouldList() || commandLine.shouldListWithParams()
+                || commandLine.shouldListProfilers() || commandLine.shouldListResultFormats()) {
+            //帮助、列表等交由JMH原入口处理
+            org.openjdk.jmh.Main.main(args);
+            return;
+        }
+        ChainedOptionsBuilder builder = new OptionsBuilder().parent(commandLine);
+        if (!commandLine.getResultFormat().hasValue()) {
+            builder.resultFormat(ResultFormatType.JSON);
+        }
+        if (!commandLine.getResult().hasValue()) {
+            builder.result(DEFAULT_RESULT_FILE);
+        }
+        new Runner(builder.build()).run();
+    }
+}
@@ -0,0 +1,89 @@
+package org.hhq.benchmark;
+
+import org.hhq.MathCalculateUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * {@link MathCalculateUtil#calculate(String, Map)}在不同形状表达式上的表现：
+ * short 短表达式；deep 多层括号及函数嵌套；params 大量变量
+ * <p>
+ * calculate 使用表达式缓存的计算；rewrite 字符串改写方式的计算
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CalculateBenchmark {
+
+    @Param({"short", "deep", "params"})
+    public String shape;
+
+    private String expression;
+
+    private Map<String, Object> params;
+
+    @Setup
+    public void setup() {
+        Logger.getLogger(MathCalculateUtil.class.toString()).setLevel(Level.WARNING);
+        params = new HashMap<>();
+        switch (shape) {
+            case "short":
+                expression = "{a}*2+1";
+                params.put("{a}", 3);
+                break;
+            case "deep":
+                expression = deep(12);
+                params.put("{a}", 3);
+                break;
+            case "params":
+                StringBuilder builder = new StringBuilder();
+                for (int i = 0; i < 40; i++) {
+                    builder.append(i == 0 ? "" : "+").append("{p").append(i).append("}*").append(i % 5 + 1);
+                    params.put("{p" + i + "}", i * 1.5);
+                }
+                expression = builder.toString();
+                break;
+            default:
+                throw new IllegalArgumentException(shape);
+        }
+    }
+
+    /**
+     * @return 如：max(abs((max(abs(({a}+1)*2),1)+1)*2),1)
+     */
+    private static String deep(int depth) {
+        String expression = "{a}";
+        for (int i = 0; i < depth; i++) {
+            expression = i % 2 == 0 ? "abs((" + expression + "+" + i + ")*2)" : "max(" + expression + "," + i + ")";
+        }
+        return expression;
+    }
+
+    @Benchmark
+    public String calculate() throws Exception {
+        return MathCalculateUtil.calculate(expression, params);
+    }
+
+    @Benchmark
+    public String rewrite() throws Exception {
+        return MathCalculateUtil.calculateByRewrite(expression, params);
+    }
+}
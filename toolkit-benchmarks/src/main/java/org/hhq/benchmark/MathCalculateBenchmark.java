@@ -0,0 +1,84 @@
+package org.hhq.benchmark;
+
+import org.hhq.MathCalculateUtil;
+import org.hhq.expression.CompiledExpression;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * 同一表达式三种计算方式的对比：
+ * 字符串改写{@link MathCalculateUtil#calculateByRewrite}，语法树解释{@link CompiledExpression#evaluateDouble(double[])}，
+ * 生成字节码{@link CompiledExpression#toFunction()}
+ * <p>
+ * 运行：java -jar toolkit-benchmarks/target/benchmarks.jar MathCalculateBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MathCalculateBenchmark {
+
+    private static final String EXPRESSION = "max({a},{b})*2+pow({c},2)/(1+{a})+floor({b}%3)+abs({c}-{a})*19/20";
+
+    private Map<String, Object> params;
+
+    private double[] values;
+
+    private CompiledExpression compiled;
+
+    private ToDoubleFunction<double[]> function;
+
+    @Setup
+    public void setup() {
+        Logger.getLogger(MathCalculateUtil.class.toString()).setLevel(Level.WARNING);
+        params = new HashMap<>();
+        params.put("{a}", 3);
+        params.put("{b}", 5);
+        params.put("{c}", 7);
+        compiled = MathCalculateUtil.compile(EXPRESSION);
+        values = new double[compiled.getParameterCount()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = ((Number) params.get(compiled.getParameterNames()[i])).doubleValue();
+        }
+        function = compiled.toFunction();
+    }
+
+    @Benchmark
+    public String rewrite() throws Exception {
+        return MathCalculateUtil.calculateByRewrite(EXPRESSION, params);
+    }
+
+    @Benchmark
+    public double interpreter() {
+        return compiled.evaluateDouble(values);
+    }
+
+    @Benchmark
+    public double generated() {
+        return function.applyAsDouble(values);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(MathCalculateBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,133 @@
+package org.hhq.benchmark;
+
+import com.itextpdf.text.Document;
+import com.itextpdf.text.DocumentException;
+import com.itextpdf.text.PageSize;
+import com.itextpdf.text.Paragraph;
+import com.itextpdf.text.Rectangle;
+import com.itextpdf.text.pdf.PdfWriter;
+import com.itextpdf.text.pdf.TextField;
+import org.hhq.PdfUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link PdfUtil#pdfToPdf}的表现，测试文件在启动时生成：
+ * merge 合并三个表单文件；fill 填充表单并固化；flatten 只固化表单
+ * <p>
+ * 每个测试文件{@code PAGES}页，每页{@code FIELDS}个文本域
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PdfBenchmark {
+
+    private static final int PAGES = 5;
+
+    private static final int FIELDS = 10;
+
+    private final PdfUtil pdfUtil = new PdfUtil();
+
+    private File directory;
+
+    private String[] forms;
+
+    private String output;
+
+    private Map<String, String> fields;
+
+    @Setup
+    public void setup() throws IOException, DocumentException {
+        directory = Files.createTempDirectory("pdf-benchmark").toFile();
+        forms = new String[3];
+        for (int i = 0; i < forms.length; i++) {
+            forms[i] = path("form" + i + ".pdf");
+            createForm(forms[i], "form" + i);
+        }
+        output = path("output.pdf");
+        fields = new HashMap<>();
+        for (int page = 0; page < PAGES; page++) {
+            for (int field = 0; field < FIELDS; field++) {
+                fields.put(fieldName("form0", page, field), "value" + page + "_" + field);
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Benchmark
+    public boolean merge() throws IOException, DocumentException {
+        return pdfUtil.pdfToPdf(forms.clone(), output, null, false);
+    }
+
+    @Benchmark
+    public boolean fill() throws IOException, DocumentException {
+        return pdfUtil.pdfToPdf(forms[0], output, fields);
+    }
+
+    @Benchmark
+    public boolean flatten() throws IOException, DocumentException {
+        return pdfUtil.pdfToPdf(forms[0], output);
+    }
+
+    private String path(String name) {
+        return new File(directory, name).getAbsolutePath().replace('\\', '/');
+    }
+
+    private static String fieldName(String form, int page, int field) {
+        return form + "_" + page + "_" + field;
+    }
+
+    /**
+     * 生成含文本域的表单文件
+     */
+    private static void createForm(String path, String form) throws IOException, DocumentException {
+        Document document = new Document(PageSize.A4);
+        try (OutputStream outputStream = new FileOutputStream(path)) {
+            PdfWriter writer = PdfWriter.getInstance(document, outputStream);
+            document.open();
+            for (int page = 0; page < PAGES; page++) {
+                if (page > 0) {
+                    document.newPage();
+                }
+                document.add(new Paragraph(form + " page " + (page + 1)));
+                for (int field = 0; field < FIELDS; field++) {
+                    float top = 760 - field * 40;
+                    TextField textField = new TextField(writer, new Rectangle(100, top - 20, 400, top), fieldName(form, page, field));
+                    writer.addAnnotation(textField.getTextField());
+                }
+            }
+            document.close();
+        }
+    }
+}
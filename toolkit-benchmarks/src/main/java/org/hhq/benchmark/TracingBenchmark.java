@@ -0,0 +1,92 @@
+package org.hhq.benchmark;
+
+import org.hhq.MathCalculateUtil;
+import org.hhq.expression.TraceListener;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+/**
+ * 跟踪开关对字符串改写计算的影响：
+ * off 不跟踪；logging 以info级别记录日志(日志输出到空的Handler，只计算字符串拼接及日志记录的开销)
+ * <p>
+ * 加上-prof gc可以看到不跟踪时没有诊断字符串的分配
+ * 运行：java -jar toolkit-benchmarks/target/benchmarks.jar TracingBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TracingBenchmark {
+
+    private static final String EXPRESSION = "tan(1+2+1.0+1+1+1+1000.10001+(100.0+10+19/20*6+5)+min(100,100.2,99,max(1,2,3,4,5,6,100,10000,1,19999,12,18000))+{pam})";
+
+    @Param({"off", "logging"})
+    public String tracing;
+
+    private Map<String, Object> params;
+
+    @Setup
+    public void setup() {
+        Logger logger = Logger.getLogger(MathCalculateUtil.class.toString());
+        logger.setUseParentHandlers(false);
+        logger.addHandler(new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+        logger.setLevel(Level.INFO);
+        MathCalculateUtil.setTraceListener("logging".equals(tracing) ? TraceListener.logging(logger) : null);
+        params = new HashMap<>();
+        params.put("{pam}", 100);
+    }
+
+    @TearDown
+    public void tearDown() {
+        MathCalculateUtil.setTraceListener(null);
+    }
+
+    @Benchmark
+    public String rewrite() throws Exception {
+        return MathCalculateUtil.calculateByRewrite(EXPRESSION, params);
+    }
+
+    @Benchmark
+    public String calculate() throws Exception {
+        return MathCalculateUtil.calculate(EXPRESSION, params);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(TracingBenchmark.class.getSimpleName()).build()).run();
+    }
+}
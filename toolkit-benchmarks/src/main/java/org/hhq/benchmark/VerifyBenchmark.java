@@ -0,0 +1,190 @@
+package org.hhq.benchmark;
+
+import org.hhq.ValidationResult;
+import org.hhq.VerifyProxy;
+import org.hhq.VerifyUtil;
+import org.hhq.annotation.StringVerify;
+import org.hhq.annotation.Valid;
+import org.hhq.annotation.verify.NotEmpty;
+import org.hhq.annotation.verify.NotNull;
+import org.hhq.annotation.verify.Range;
+import org.hhq.annotation.verify.Size;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link VerifyUtil#verify(Object, String, boolean)}的表现：
+ * flat 只含简单字段的对象；nested 含子对象及子对象集合的对象
+ * <p>
+ * 两个对象均能通过校验，测得的是完整校验一遍的开销
+ * <p>
+ * *Result 使用复用的{@link ValidationResult}校验；invalid* 校验不能通过的对象，比较抛出异常与记录到结果的开销
+ * <p>
+ * bulk* 校验含10000个子对象的集合，比较顺序校验与{@link ValidationResult#setParallel(int)}开启后的并行校验
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VerifyBenchmark {
+
+    private Flat flat;
+
+    private Nested nested;
+
+    private Flat invalid;
+
+    private Bulk bulk;
+
+    private FlatService service;
+
+    /**
+     * 单线程运行，复用同一个结果
+     */
+    private final ValidationResult result = new ValidationResult(ValidationResult.Mode.COLLECT_ALL);
+
+    private final ValidationResult parallelResult = new ValidationResult(ValidationResult.Mode.COLLECT_ALL).setParallel(1000);
+
+    @Setup
+    public void setup() {
+        flat = new Flat("benchmark", "desc", 18, 100L);
+        nested = new Nested();
+        nested.owner = new Flat("owner", "desc", 30, 1L);
+        nested.items = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            nested.items.add(new Flat("item" + i, "desc", i + 1, (long) i));
+        }
+        invalid = new Flat("", "description", 0, 1L);
+        service = VerifyProxy.create(FlatService.class, (flat, age) -> age);
+        bulk = new Bulk();
+        for (int i = 0; i < 10000; i++) {
+            bulk.items.add(new Flat("item" + i, "desc", i % 200 + 1, (long) i));
+        }
+    }
+
+    @Benchmark
+    public Flat flat() throws Exception {
+        VerifyUtil.verify(flat, "值为空", true);
+        return flat;
+    }
+
+    @Benchmark
+    public Nested nested() throws Exception {
+        VerifyUtil.verify(nested, "值为空", true);
+        return nested;
+    }
+
+    @Benchmark
+    public boolean nestedResult() {
+        result.clear();
+        return VerifyUtil.validate(nested, "值为空", true, result);
+    }
+
+    /**
+     * 只校验owner，不遍历items
+     */
+    @Benchmark
+    public boolean nestedProperties() {
+        result.clear();
+        return VerifyUtil.validateProperties(nested, "值为空", true, result, "owner");
+    }
+
+    @Benchmark
+    public boolean bulkSequential() {
+        result.clear();
+        return VerifyUtil.validate(bulk, "值为空", true, result);
+    }
+
+    @Benchmark
+    public boolean bulkParallel() {
+        parallelResult.clear();
+        return VerifyUtil.validate(bulk, "值为空", true, parallelResult);
+    }
+
+    /**
+     * 代理调用时校验一个对象参数及一个原始类型参数
+     */
+    @Benchmark
+    public int proxyCall() {
+        return service.update(flat, 18);
+    }
+
+    @Benchmark
+    public String invalidThrow() {
+        try {
+            VerifyUtil.verify(invalid, "值为空", true);
+            return null;
+        } catch (Exception e) {
+            return e.getMessage();
+        }
+    }
+
+    @Benchmark
+    public int invalidResult() {
+        result.clear();
+        VerifyUtil.validate(invalid, "值为空", true, result);
+        return result.size();
+    }
+
+    /**
+     * 只含简单字段
+     */
+    public interface FlatService {
+        int update(@Valid Flat flat, @Range(max = 200, min = 1, describe = "年龄为1~200") int age);
+    }
+
+    public static class Flat {
+        @NotEmpty(describe = "名称不能为空")
+        private String name;
+
+        @StringVerify(size = @Size(describe = "描述长度为1~10", min = 1, max = 10), notEmpty = @NotEmpty(describe = "描述不能为空"),
+                notNull = @NotNull(describe = "描述不能为null"))
+        private String describe;
+
+        @Range(max = 200, min = 1, describe = "年龄为1~200")
+        private int age;
+
+        @NotNull(describe = "编号不能为null")
+        private Long id;
+
+        public Flat(String name, String describe, int age, Long id) {
+            this.name = name;
+            this.describe = describe;
+            this.age = age;
+            this.id = id;
+        }
+    }
+
+    /**
+     * 含子对象及子对象集合
+     */
+    public static class Nested {
+        @NotNull(describe = "所有者不能为null")
+        private Flat owner;
+
+        @Size(describe = "明细为1~100个", min = 1, max = 100)
+        private List<Flat> items;
+    }
+
+    /**
+     * 含大集合
+     */
+    public static class Bulk {
+        @NotNull(describe = "明细不能为null")
+        private List<Flat> items = new ArrayList<>();
+    }
+}